@@ -0,0 +1,43 @@
+package com.example.bankcards.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Точка входа бенчмарков: принимает обычные аргументы JMH и всегда добавляет
+ * профилировщик GC, чтобы рядом с ops/s печаталась скорость выделения памяти
+ * ({@code gc.alloc.rate.norm} — байт на операцию).
+ * <p>
+ * Пример: {@code mvn -Pjmh test-compile exec:exec -Djmh.args="TransferBenchmark -p cardsPerAccount=1,20"}
+ *
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        Runner runner = new Runner(commandLine);
+
+        if (commandLine.shouldHelp()) {
+            commandLine.showHelp();
+            return;
+        }
+        if (commandLine.shouldList()) {
+            runner.list();
+            return;
+        }
+
+        Options options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
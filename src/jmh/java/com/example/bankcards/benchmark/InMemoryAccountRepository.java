@@ -0,0 +1,107 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.entity.Account;
+import com.example.bankcards.repository.AccountIssueView;
+import com.example.bankcards.repository.AccountRepository;
+import org.springframework.data.domain.Limit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link AccountRepository} в памяти с той же семантикой условного изменения балансов,
+ * что и запрос в БД. Потокобезопасность изменений обеспечивают блокировки счетов
+ * стратегии перевода, как и в приложении.
+ *
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+class InMemoryAccountRepository extends UnsupportedJpaRepository<Account, Long> implements AccountRepository {
+
+    private final Map<Long, Account> accounts = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <S extends Account> S save(S account) {
+        if (account.getId() == null) {
+            account.setId(sequence.incrementAndGet());
+        }
+        accounts.put(account.getId(), account);
+        return account;
+    }
+
+    @Override
+    public Optional<Account> findById(Long id) {
+        return Optional.ofNullable(accounts.get(id));
+    }
+
+    @Override
+    public List<Account> findAllById(Iterable<Long> ids) {
+        List<Account> result = new ArrayList<>();
+        for (Long id : ids) {
+            Account account = accounts.get(id);
+            if (account != null) {
+                result.add(account);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Optional<Account> findByUserId(Long userId) {
+        throw unsupported();
+    }
+
+    @Override
+    public List<AccountIssueView> findIssueViewsByIdIn(Collection<Long> ids) {
+        throw unsupported();
+    }
+
+    @Override
+    public List<AccountIssueView> findIssueViewsWithoutActiveCards(Limit limit) {
+        throw unsupported();
+    }
+
+    @Override
+    public List<Account> findAllByIdForUpdate(Collection<Long> ids) {
+        return findByIdInOrderById(ids);
+    }
+
+    @Override
+    public List<Long> lockAllById(Collection<Long> ids) {
+        throw unsupported();
+    }
+
+    @Override
+    public Optional<Long> findFreeBalanceById(Long id) {
+        throw unsupported();
+    }
+
+    @Override
+    public List<Account> findByIdInOrderById(Collection<Long> ids) {
+        List<Account> result = findAllById(ids);
+        result.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+        return result;
+    }
+
+    @Override
+    public int transferBalance(Long fromId, Long toId, Long userId, long amount) {
+        Account from = accounts.get(fromId);
+        Account to = accounts.get(toId);
+        if (from == null || to == null
+                || !from.getUser().getId().equals(userId)
+                || from.getBalance() < amount) {
+            return to == null ? 0 : 1;
+        }
+
+        from.setBalance(from.getBalance() - amount);
+        to.setBalance(to.getBalance() + amount);
+        return 2;
+    }
+}
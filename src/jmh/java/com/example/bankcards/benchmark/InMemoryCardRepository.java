@@ -0,0 +1,174 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.repository.CardBalanceView;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardSearchFilter;
+import com.example.bankcards.repository.CardStatusTotals;
+import com.example.bankcards.repository.CardView;
+import com.example.bankcards.repository.NewCardRow;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * {@link CardRepository} в памяти с той же семантикой условных списаний,
+ * что и запросы в БД.
+ *
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+class InMemoryCardRepository extends UnsupportedJpaRepository<Card, Long> implements CardRepository {
+
+    private final Map<Long, Card> cards = new ConcurrentHashMap<>();
+    private final Map<Long, List<Card>> cardsByAccount = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <S extends Card> S save(S card) {
+        if (card.getId() == null) {
+            card.setId(sequence.incrementAndGet());
+        }
+        cards.put(card.getId(), card);
+        cardsByAccount.computeIfAbsent(card.getAccount().getId(), id -> new CopyOnWriteArrayList<>()).add(card);
+        return card;
+    }
+
+    @Override
+    public Optional<Card> findById(Long id) {
+        return Optional.ofNullable(cards.get(id));
+    }
+
+    @Override
+    public List<Card> findByStatus(CardStatus status) {
+        throw unsupported();
+    }
+
+    @Override
+    public List<Card> findByUserId(Long userId) {
+        throw unsupported();
+    }
+
+    @Override
+    public List<Card> findByAccountId(Long accountId) {
+        return cardsByAccount.getOrDefault(accountId, List.of());
+    }
+
+    @Override
+    public List<CardView> findViewsByUserId(Long userId) {
+        throw unsupported();
+    }
+
+    @Override
+    public Optional<CardView> findViewById(Long id) {
+        throw unsupported();
+    }
+
+    @Override
+    public Optional<Long> findOwnerIdById(Long id) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean existsByAccountUserIdAndStatus(Long userId, CardStatus status) {
+        throw unsupported();
+    }
+
+    @Override
+    public List<CardStatusTotals> sumByStatusForUser(Long userId) {
+        throw unsupported();
+    }
+
+    @Override
+    public int updateStatusWhere(CardStatus status, Long userId, Long accountId, String binFrom, String binTo) {
+        throw unsupported();
+    }
+
+    @Override
+    public int compareAndSetStatus(Long id, CardStatus expected, CardStatus status) {
+        throw unsupported();
+    }
+
+    @Override
+    public int expireAllBefore(LocalDate date) {
+        throw unsupported();
+    }
+
+    @Override
+    public Stream<CardView> streamAll() {
+        throw unsupported();
+    }
+
+    @Override
+    public List<Card> findByAccountIdInForUpdate(Collection<Long> accountIds) {
+        return findByAccountIdInOrderById(accountIds);
+    }
+
+    @Override
+    public List<Card> findByAccountIdInOrderById(Collection<Long> accountIds) {
+        List<Card> result = new ArrayList<>();
+        for (Long accountId : accountIds) {
+            result.addAll(findByAccountId(accountId));
+        }
+        result.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+        return result;
+    }
+
+    @Override
+    public List<CardBalanceView> findBalancesByAccountIdIn(Collection<Long> accountIds) {
+        List<CardBalanceView> result = new ArrayList<>();
+        for (Card card : findByAccountIdInOrderById(accountIds)) {
+            result.add(new CardBalanceView(card.getId(), card.getAccount().getId(),
+                    card.getAccount().getUser().getId(), card.getStatus(), card.getBalance()));
+        }
+        return result;
+    }
+
+    @Override
+    public int moveBalance(Long fromCardId, long debit, Long toCardId, long credit) {
+        Card from = cards.get(fromCardId);
+        Card to = cards.get(toCardId);
+        boolean toActive = to != null && to.getStatus() == CardStatus.ACTIVE;
+        if (from == null || from.getStatus() != CardStatus.ACTIVE || from.getBalance() < debit || !toActive) {
+            return toActive ? 1 : 0;
+        }
+
+        from.setBalance(from.getBalance() - debit);
+        to.setBalance(to.getBalance() + credit);
+        return 2;
+    }
+
+    @Override
+    public boolean debitAll(long[] cardIds, long[] amounts, int count) {
+        boolean debited = true;
+        for (int i = 0; i < count; i++) {
+            Card card = cards.get(cardIds[i]);
+            if (card.getStatus() != CardStatus.ACTIVE || card.getBalance() < amounts[i]) {
+                debited = false;
+            } else {
+                card.setBalance(card.getBalance() - amounts[i]);
+            }
+        }
+        return debited;
+    }
+
+    @Override
+    public List<Long> insertAll(List<NewCardRow> cards) {
+        throw unsupported();
+    }
+
+    @Override
+    public List<CardView> searchPage(CardSearchFilter filter, long afterId, int limit) {
+        throw unsupported();
+    }
+}
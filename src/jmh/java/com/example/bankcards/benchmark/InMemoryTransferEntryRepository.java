@@ -0,0 +1,41 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.entity.TransferEntry;
+import com.example.bankcards.repository.TransferEntryRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link TransferEntryRepository}, который только считает проводки:
+ * журнал не хранится, чтобы его рост не влиял на измерения.
+ *
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+class InMemoryTransferEntryRepository extends UnsupportedJpaRepository<TransferEntry, Long>
+        implements TransferEntryRepository {
+
+    private final LongAdder entryCount = new LongAdder();
+
+    @Override
+    public List<TransferEntry> findByTransferIdOrderById(UUID transferId) {
+        throw unsupported();
+    }
+
+    @Override
+    public void appendAll(List<TransferEntry> entries) {
+        entryCount.add(entries.size());
+    }
+
+    @Override
+    public void appendTransfer(UUID transferId, Long fromAccountId, Long toAccountId, long amount, LocalDateTime createdAt) {
+        entryCount.add(2);
+    }
+
+    long entryCount() {
+        return entryCount.sum();
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.TransferRequestDTO;
+import com.example.bankcards.dto.TransferResponseDTO;
+import com.example.bankcards.entity.Account;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.security.UserDetailsImpl;
+import com.example.bankcards.service.AccountLockManager;
+import com.example.bankcards.service.CardBalanceCache;
+import com.example.bankcards.service.CardSetVersions;
+import com.example.bankcards.service.PessimisticTransferStrategy;
+import com.example.bankcards.service.SequentialCardDebitAllocator;
+import com.example.bankcards.service.TransferService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность {@link TransferService#transfer(TransferRequestDTO)}
+ * на репозиториях в памяти.
+ * <p>
+ * Каждый поток переводит деньги туда и обратно между собственной парой счетов,
+ * поэтому потоки конкурируют только за общие структуры (полосы блокировок, карты
+ * репозиториев), а не за одни и те же счета. Параметр {@code cardsPerAccount}
+ * задает количество активных карт на каждом счете: все они читаются проекцией
+ * и передаются в стратегию распределения суммы.
+ *
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransferBenchmark {
+
+    private static final long USER_ID = 1L;
+    private static final long CARD_BALANCE = Long.MAX_VALUE / 1024;
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Param({"1", "2", "5", "20"})
+    public int cardsPerAccount;
+
+    private InMemoryAccountRepository accountRepository;
+    private InMemoryCardRepository cardRepository;
+    private TransferService transferService;
+    private User owner;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        accountRepository = new InMemoryAccountRepository();
+        cardRepository = new InMemoryCardRepository();
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        transferService = new TransferService(
+                accountRepository,
+                cardRepository,
+                new InMemoryTransferEntryRepository(),
+                new PessimisticTransferStrategy(
+                        new AccountLockManager(1024, 5000, meterRegistry),
+                        new TransactionTemplate(new NoOpTransactionManager())),
+                new SequentialCardDebitAllocator(),
+                null,
+                new CardBalanceCache(cardRepository, false, 1024, 60_000, meterRegistry),
+                new CardSetVersions(true, 1024)
+        );
+
+        owner = new User();
+        owner.setId(USER_ID);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public TransferResponseDTO transfer_1thread(ThreadAccounts accounts) {
+        return transferService.transfer(accounts.next());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public TransferResponseDTO transfer_4threads(ThreadAccounts accounts) {
+        return transferService.transfer(accounts.next());
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public TransferResponseDTO transfer_maxThreads(ThreadAccounts accounts) {
+        return transferService.transfer(accounts.next());
+    }
+
+    private Long createAccount() {
+        Account account = new Account();
+        account.setUser(owner);
+        account.setBalance(CARD_BALANCE * cardsPerAccount);
+        accountRepository.save(account);
+
+        for (int i = 0; i < cardsPerAccount; i++) {
+            Card card = new Card();
+            card.setCardNumber("4000123412341234");
+            card.setAccount(account);
+            card.setExpirationDate(LocalDate.now().plusYears(3));
+            card.setStatus(CardStatus.ACTIVE);
+            card.setBalance(CARD_BALANCE);
+            cardRepository.save(card);
+        }
+
+        return account.getId();
+    }
+
+    /**
+     * Пара счетов потока и аутентификация владельца в контексте безопасности потока.
+     */
+    @State(Scope.Thread)
+    public static class ThreadAccounts {
+
+        private TransferRequestDTO forward;
+        private TransferRequestDTO backward;
+        private boolean reverse;
+
+        @Setup(Level.Trial)
+        public void setUp(TransferBenchmark benchmark) {
+            Long first = benchmark.createAccount();
+            Long second = benchmark.createAccount();
+            forward = new TransferRequestDTO(first, second, AMOUNT);
+            backward = new TransferRequestDTO(second, first, AMOUNT);
+
+            UserDetailsImpl principal = new UserDetailsImpl(USER_ID, "benchmark", "", List.of());
+            SecurityContextHolder.getContext().setAuthentication(
+                    new UsernamePasswordAuthenticationToken(principal, null, principal.authorities()));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            SecurityContextHolder.clearContext();
+        }
+
+        TransferRequestDTO next() {
+            reverse = !reverse;
+            return reverse ? backward : forward;
+        }
+    }
+}
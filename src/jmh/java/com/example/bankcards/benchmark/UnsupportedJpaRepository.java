@@ -0,0 +1,184 @@
+package com.example.bankcards.benchmark;
+
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.repository.query.FluentQuery;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Основа для репозиториев в памяти: все методы {@link JpaRepository} выбрасывают
+ * {@link UnsupportedOperationException}. Наследники переопределяют только методы,
+ * которые вызывает измеряемый код, поэтому обращение к любому другому методу
+ * сразу видно при запуске бенчмарка.
+ * <p>
+ * Заглушки не заменены динамическим прокси, чтобы вызовы в измеряемом коде шли напрямую,
+ * без рефлексии. Бенчмарки компилируются при каждой сборке тестов, поэтому изменение
+ * интерфейса репозитория сразу ломает сборку, а не обнаруживается при запуске бенчмарка.
+ *
+ * @param <T> тип сущности
+ * @param <ID> тип идентификатора
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+abstract class UnsupportedJpaRepository<T, ID> implements JpaRepository<T, ID> {
+
+    protected static UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException("Метод не поддерживается репозиторием в памяти");
+    }
+
+    @Override
+    public <S extends T> S save(S entity) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends T> List<S> saveAll(Iterable<S> entities) {
+        throw unsupported();
+    }
+
+    @Override
+    public Optional<T> findById(ID id) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean existsById(ID id) {
+        throw unsupported();
+    }
+
+    @Override
+    public List<T> findAll() {
+        throw unsupported();
+    }
+
+    @Override
+    public List<T> findAllById(Iterable<ID> ids) {
+        throw unsupported();
+    }
+
+    @Override
+    public long count() {
+        throw unsupported();
+    }
+
+    @Override
+    public void deleteById(ID id) {
+        throw unsupported();
+    }
+
+    @Override
+    public void delete(T entity) {
+        throw unsupported();
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends ID> ids) {
+        throw unsupported();
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends T> entities) {
+        throw unsupported();
+    }
+
+    @Override
+    public void deleteAll() {
+        throw unsupported();
+    }
+
+    @Override
+    public List<T> findAll(Sort sort) {
+        throw unsupported();
+    }
+
+    @Override
+    public Page<T> findAll(Pageable pageable) {
+        throw unsupported();
+    }
+
+    @Override
+    public void flush() {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends T> S saveAndFlush(S entity) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends T> List<S> saveAllAndFlush(Iterable<S> entities) {
+        throw unsupported();
+    }
+
+    @Override
+    public void deleteAllInBatch(Iterable<T> entities) {
+        throw unsupported();
+    }
+
+    @Override
+    public void deleteAllByIdInBatch(Iterable<ID> ids) {
+        throw unsupported();
+    }
+
+    @Override
+    public void deleteAllInBatch() {
+        throw unsupported();
+    }
+
+    @Override
+    public T getOne(ID id) {
+        throw unsupported();
+    }
+
+    @Override
+    public T getById(ID id) {
+        throw unsupported();
+    }
+
+    @Override
+    public T getReferenceById(ID id) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends T> Optional<S> findOne(Example<S> example) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example, Sort sort) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends T> Page<S> findAll(Example<S> example, Pageable pageable) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends T> long count(Example<S> example) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends T> boolean exists(Example<S> example) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends T, R> R findBy(Example<S> example, Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+        throw unsupported();
+    }
+}
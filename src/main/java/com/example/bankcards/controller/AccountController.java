@@ -15,6 +15,8 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.math.BigDecimal;
+
 /**
  * Контроллер для обработки запросов аутентификации и регистрации пользователей.
  * Предоставляет API для регистрации новых пользователей и входа в систему.
@@ -69,7 +71,7 @@ public class AccountController {
     })
     @GetMapping("/balance")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<Double> getBalance() {
+    public ResponseEntity<BigDecimal> getBalance() {
         return ResponseEntity.ok(accountService.checkAccount());
     }
 
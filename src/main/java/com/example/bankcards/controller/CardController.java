@@ -1,20 +1,42 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.BulkCardIssueRequestDTO;
+import com.example.bankcards.dto.BulkCardIssueResponseDTO;
+import com.example.bankcards.dto.BulkCardStatusRequestDTO;
+import com.example.bankcards.dto.BulkCardStatusResponseDTO;
 import com.example.bankcards.dto.CardDTO;
+import com.example.bankcards.dto.CardPageDTO;
+import com.example.bankcards.dto.CardSummaryDTO;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.service.CardExportService;
+import com.example.bankcards.service.CardIssueService;
 import com.example.bankcards.service.CardService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Контроллер для управления банковскими картами.
@@ -29,14 +51,22 @@ import java.util.List;
 public class CardController {
 
     private final CardService cardService;
+    private final CardExportService cardExportService;
+    private final CardIssueService cardIssueService;
 
     /**
-     * Конструктор для внедрения зависимости CardService.
+     * Конструктор для внедрения зависимостей CardService, CardExportService и CardIssueService.
      *
      * @param cardService сервис для работы с банковскими картами
+     * @param cardExportService сервис выгрузки карт
+     * @param cardIssueService сервис массового выпуска карт
      */
-    public CardController(CardService cardService) {
+    public CardController(CardService cardService,
+                          CardExportService cardExportService,
+                          CardIssueService cardIssueService) {
         this.cardService = cardService;
+        this.cardExportService = cardExportService;
+        this.cardIssueService = cardIssueService;
     }
 
     /**
@@ -60,31 +90,173 @@ public class CardController {
     /**
      * Получает список всех карт текущего пользователя.
      * Доступен только аутентифицированным пользователям с ролью USER.
+     * Если выдача ETag включена ({@code cards.etag.enabled}), ответ содержит ETag,
+     * и при совпадении заголовка If-None-Match с текущей версией набора карт
+     * возвращается 304 без чтения карт из БД.
      *
-     * @return ResponseEntity со списком карт пользователя
+     * @param request текущий запрос, по которому проверяется If-None-Match
+     * @return ResponseEntity со списком карт пользователя или null, если ответ 304 уже сформирован
      */
     @Operation(summary = "Получение всех карт текущего пользователя")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Список карт успешно получен"),
+            @ApiResponse(responseCode = "304", description = "Список карт не изменился с версии из If-None-Match"),
             @ApiResponse(responseCode = "401", description = "Пользователь не аутентифицирован"),
             @ApiResponse(responseCode = "403", description = "Недостаточно прав (не USER)")
     })
     @GetMapping
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<List<CardDTO>> getCardsForUser() {
-        return ResponseEntity.ok(cardService.getCardsForCurrentUser());
+    public ResponseEntity<List<CardDTO>> getCardsForUser(WebRequest request) {
+        Optional<String> etag = cardService.getCardsETagForCurrentUser();
+        if (etag.isEmpty()) {
+            return ResponseEntity.ok(cardService.getCardsForCurrentUser());
+        }
+        if (request.checkNotModified(etag.get())) {
+            return null;
+        }
+
+        return ResponseEntity.ok()
+                .eTag(etag.get())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(cardService.getCardsForCurrentUser());
     }
 
-    @Operation(summary = "Получение карт всех пользователей")
+    /**
+     * Получает страницу карт всех пользователей.
+     * Следующая страница запрашивается с курсором из ответа.
+     * Доступен только аутентифицированным пользователям с ролью ADMIN.
+     *
+     * @param cursor курсор следующей страницы из предыдущего ответа
+     * @param limit размер страницы
+     * @param status фильтр по статусу карты
+     * @param expiresFrom фильтр по дате окончания срока действия (не раньше)
+     * @param expiresTo фильтр по дате окончания срока действия (не позже)
+     * @return страница карт и курсор следующей страницы
+     */
+    @Operation(summary = "Получение карт всех пользователей постранично")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Список карт успешно получен"),
+            @ApiResponse(responseCode = "200", description = "Страница карт успешно получена"),
+            @ApiResponse(responseCode = "400", description = "Некорректный курсор или параметры фильтра"),
             @ApiResponse(responseCode = "401", description = "Пользователь не аутентифицирован"),
             @ApiResponse(responseCode = "403", description = "Недостаточно прав (не ADMIN)")
     })
     @GetMapping("/admin/all")
     @PreAuthorize("hasRole('ADMIN')")
-    public List<CardDTO> getAllCards() {
-        return cardService.getAllCardsForAdmin();
+    public CardPageDTO getAllCards(
+            @Parameter(description = "Курсор следующей страницы из предыдущего ответа")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Размер страницы, не больше cards.admin-page.max-size")
+            @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Статус карты")
+            @RequestParam(required = false) CardStatus status,
+            @Parameter(description = "Срок действия не раньше даты", example = "2027-01-01")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate expiresFrom,
+            @Parameter(description = "Срок действия не позже даты", example = "2027-12-31")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate expiresTo) {
+        return cardService.getAllCardsForAdmin(cursor, limit, status, expiresFrom, expiresTo);
+    }
+
+    /**
+     * Ищет карты всех пользователей по последним 4 цифрам номера, статусу, владельцу
+     * и сроку действия. Следующая страница запрашивается с курсором из ответа.
+     * Доступен только аутентифицированным пользователям с ролью ADMIN.
+     *
+     * @param cursor курсор следующей страницы из предыдущего ответа
+     * @param limit размер страницы
+     * @param last4 последние 4 цифры номера карты
+     * @param status фильтр по статусу карты
+     * @param ownerId фильтр по владельцу карты
+     * @param expiresFrom фильтр по дате окончания срока действия (не раньше)
+     * @param expiresTo фильтр по дате окончания срока действия (не позже)
+     * @return страница найденных карт и курсор следующей страницы
+     */
+    @Operation(summary = "Поиск карт всех пользователей постранично")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Страница найденных карт успешно получена"),
+            @ApiResponse(responseCode = "400", description = "Некорректный курсор или параметры фильтра"),
+            @ApiResponse(responseCode = "401", description = "Пользователь не аутентифицирован"),
+            @ApiResponse(responseCode = "403", description = "Недостаточно прав (не ADMIN)")
+    })
+    @GetMapping("/admin/search")
+    @PreAuthorize("hasRole('ADMIN')")
+    public CardPageDTO searchCards(
+            @Parameter(description = "Курсор следующей страницы из предыдущего ответа")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Размер страницы, не больше cards.admin-page.max-size")
+            @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Последние 4 цифры номера карты", example = "1234")
+            @RequestParam(required = false) String last4,
+            @Parameter(description = "Статус карты")
+            @RequestParam(required = false) CardStatus status,
+            @Parameter(description = "Идентификатор владельца карты", example = "1")
+            @RequestParam(required = false) Long ownerId,
+            @Parameter(description = "Срок действия не раньше даты", example = "2027-01-01")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate expiresFrom,
+            @Parameter(description = "Срок действия не позже даты", example = "2027-12-31")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate expiresTo) {
+        return cardService.searchCardsForAdmin(cursor, limit, last4, status, ownerId, expiresFrom, expiresTo);
+    }
+
+    /**
+     * Выпускает по одной карте на каждый счет из списка или подобранный фильтром.
+     * Доступен только аутентифицированным пользователям с ролью ADMIN.
+     *
+     * @param request счета или фильтр для выпуска карт
+     * @return ResponseEntity с результатами по счетам
+     */
+    @Operation(summary = "Массовый выпуск карт")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Карты выпущены, результаты по счетам в ответе"),
+            @ApiResponse(responseCode = "400", description = "Не заданы счета или фильтр, либо слишком много счетов"),
+            @ApiResponse(responseCode = "401", description = "Пользователь не аутентифицирован"),
+            @ApiResponse(responseCode = "403", description = "Недостаточно прав (не ADMIN)")
+    })
+    @PostMapping("/admin/bulk")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BulkCardIssueResponseDTO> issueCards(@Valid @RequestBody BulkCardIssueRequestDTO request) {
+        return ResponseEntity.ok(cardIssueService.issueCards(request));
+    }
+
+    /**
+     * Меняет статус всех карт владельца, счета или диапазона BIN одним запросом.
+     * Доступен только аутентифицированным пользователям с ролью ADMIN.
+     *
+     * @param request новый статус и фильтры карт
+     * @return ResponseEntity с количеством измененных карт
+     */
+    @Operation(summary = "Массовая смена статуса карт")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Статус изменен, количество карт в ответе"),
+            @ApiResponse(responseCode = "400", description = "Не задан фильтр или недопустимый статус"),
+            @ApiResponse(responseCode = "401", description = "Пользователь не аутентифицирован"),
+            @ApiResponse(responseCode = "403", description = "Недостаточно прав (не ADMIN)")
+    })
+    @PostMapping("/admin/status")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BulkCardStatusResponseDTO> updateStatuses(@Valid @RequestBody BulkCardStatusRequestDTO request) {
+        return ResponseEntity.ok(cardService.updateStatuses(request));
+    }
+
+    /**
+     * Выгружает все карты в формате NDJSON (одна карта в формате JSON на строку).
+     * Карты записываются в ответ по мере чтения из базы данных.
+     * Доступен только аутентифицированным пользователям с ролью ADMIN.
+     *
+     * @param response HTTP-ответ, в тело которого записываются карты
+     * @throws IOException при ошибке записи ответа
+     */
+    @Operation(summary = "Выгрузка всех карт в формате NDJSON")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Карты выгружены"),
+            @ApiResponse(responseCode = "401", description = "Пользователь не аутентифицирован"),
+            @ApiResponse(responseCode = "403", description = "Недостаточно прав (не ADMIN)")
+    })
+    @GetMapping(value = "/admin/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public void exportCards(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        cardExportService.exportAll(response.getOutputStream());
     }
 
     /**
@@ -103,10 +275,28 @@ public class CardController {
     })
     @GetMapping("/{id}/balance")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<Double> getCardBalance(@PathVariable Long id) {
+    public ResponseEntity<BigDecimal> getCardBalance(@PathVariable Long id) {
         return ResponseEntity.ok(cardService.getCardBalance(id));
     }
 
+    /**
+     * Возвращает сводку по картам текущего пользователя: количество по статусам и общий баланс.
+     * Доступен только аутентифицированным пользователям с ролью USER.
+     *
+     * @return ResponseEntity со сводкой по картам
+     */
+    @Operation(summary = "Сводка по картам текущего пользователя")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Сводка успешно получена"),
+            @ApiResponse(responseCode = "401", description = "Пользователь не аутентифицирован"),
+            @ApiResponse(responseCode = "403", description = "Недостаточно прав (не USER)")
+    })
+    @GetMapping("/summary")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<CardSummaryDTO> getCardSummary() {
+        return ResponseEntity.ok(cardService.getCardSummaryForCurrentUser());
+    }
+
     /**
      * Блокирует указанную карту.
      * Доступен только аутентифицированным пользователям с ролью ADMIN.
@@ -118,6 +308,7 @@ public class CardController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Карта успешно заблокирована"),
             @ApiResponse(responseCode = "400", description = "Карта не найдена"),
+            @ApiResponse(responseCode = "409", description = "Карта не активна"),
             @ApiResponse(responseCode = "401", description = "Пользователь не аутентифицирован"),
             @ApiResponse(responseCode = "403", description = "Недостаточно прав (не ADMIN)")
     })
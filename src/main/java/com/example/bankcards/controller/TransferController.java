@@ -1,7 +1,11 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.BatchTransferRequestDTO;
+import com.example.bankcards.dto.BatchTransferResponseDTO;
 import com.example.bankcards.dto.TransferRequestDTO;
 import com.example.bankcards.dto.TransferResponseDTO;
+import com.example.bankcards.dto.TransferStatusDTO;
+import com.example.bankcards.service.AsyncTransferService;
 import com.example.bankcards.service.TransferService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -10,11 +14,17 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.net.URI;
+import java.util.UUID;
+
 /**
  * Контроллер для обработки операций перевода средств между картами.
  * Требует аутентификации через JWT токен.
@@ -27,21 +37,27 @@ import org.springframework.web.bind.annotation.RestController;
 public class TransferController {
 
     private final TransferService transferService;
+    private final AsyncTransferService asyncTransferService;
 
     /**
-     * Конструктор для внедрения зависимости TransferService.
+     * Конструктор для внедрения зависимостей.
      *
      * @param transferService сервис для выполнения операций перевода
+     * @param asyncTransferService сервис для асинхронных переводов
      */
-    public TransferController(TransferService transferService) {
+    public TransferController(TransferService transferService, AsyncTransferService asyncTransferService) {
         this.transferService = transferService;
+        this.asyncTransferService = asyncTransferService;
     }
 
     /**
      * Выполняет перевод средств между картами.
+     * Повтор запроса с тем же заголовком Idempotency-Key возвращает исходный результат
+     * без повторного выполнения перевода.
      * Доступен только аутентифицированным пользователям с ролью USER.
      *
      * @param dto объект запроса на перевод с валидируемыми полями
+     * @param idempotencyKey необязательный ключ идемпотентности клиента
      * @return ResponseEntity с результатом выполнения перевода
      */
     @Operation(summary = "Перевод средств между картами")
@@ -50,12 +66,87 @@ public class TransferController {
             @ApiResponse(responseCode = "400", description = "Ошибка валидации, недостаточно средств, карта не найдена или заблокирована"),
             @ApiResponse(responseCode = "401", description = "Пользователь не аутентифицирован"),
             @ApiResponse(responseCode = "403", description = "Недостаточно прав (не USER)"),
+            @ApiResponse(responseCode = "422", description = "Ключ идемпотентности использован для другого перевода"),
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера")
     })
     @PostMapping
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<TransferResponseDTO> transfer(@Valid @RequestBody TransferRequestDTO dto) {
-        TransferResponseDTO response = transferService.transfer(dto);
+    public ResponseEntity<TransferResponseDTO> transfer(@Valid @RequestBody TransferRequestDTO dto,
+                                                        @RequestHeader(value = "Idempotency-Key", required = false)
+                                                        String idempotencyKey) {
+        TransferResponseDTO response = transferService.transfer(dto, idempotencyKey);
         return ResponseEntity.ok(response);
     }
-}
\ No newline at end of file
+
+    /**
+     * Выполняет пакет переводов в одной транзакции.
+     * Доступен только аутентифицированным пользователям с ролью USER.
+     *
+     * @param request пакет переводов и режим его выполнения
+     * @return ResponseEntity с результатом по каждому переводу пакета
+     */
+    @Operation(summary = "Пакетный перевод средств в одной транзакции")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Пакет обработан, результат указан для каждого перевода"),
+            @ApiResponse(responseCode = "400", description = "Ошибка валидации пакета"),
+            @ApiResponse(responseCode = "401", description = "Пользователь не аутентифицирован"),
+            @ApiResponse(responseCode = "403", description = "Недостаточно прав (не USER)"),
+            @ApiResponse(responseCode = "503", description = "Счета заняты другими операциями")
+    })
+    @PostMapping("/batch")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<BatchTransferResponseDTO> transferBatch(@Valid @RequestBody BatchTransferRequestDTO request) {
+        return ResponseEntity.ok(transferService.transferBatch(request));
+    }
+
+    /**
+     * Принимает перевод к асинхронному выполнению.
+     * Перевод выполняется в фоне, статус доступен по адресу из заголовка Location.
+     * Повтор запроса с тем же заголовком Idempotency-Key не ставит перевод повторно,
+     * а возвращает статус исходного перевода.
+     * Доступен только аутентифицированным пользователям с ролью USER.
+     *
+     * @param dto объект запроса на перевод с валидируемыми полями
+     * @param idempotencyKey необязательный ключ идемпотентности клиента
+     * @return ResponseEntity со статусом 202 и идентификатором перевода
+     */
+    @Operation(summary = "Асинхронный перевод средств между картами")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Перевод принят к выполнению"),
+            @ApiResponse(responseCode = "400", description = "Ошибка валидации"),
+            @ApiResponse(responseCode = "401", description = "Пользователь не аутентифицирован"),
+            @ApiResponse(responseCode = "403", description = "Недостаточно прав (не USER)"),
+            @ApiResponse(responseCode = "422", description = "Ключ идемпотентности использован для другого перевода"),
+            @ApiResponse(responseCode = "503", description = "Очередь переводов переполнена")
+    })
+    @PostMapping("/async")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<TransferStatusDTO> transferAsync(@Valid @RequestBody TransferRequestDTO dto,
+                                                           @RequestHeader(value = "Idempotency-Key", required = false)
+                                                           String idempotencyKey) {
+        TransferStatusDTO status = asyncTransferService.submit(dto, idempotencyKey);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/transfers/" + status.transferId()))
+                .body(status);
+    }
+
+    /**
+     * Возвращает статус перевода текущего пользователя.
+     * Доступен только аутентифицированным пользователям с ролью USER.
+     *
+     * @param transferId идентификатор перевода
+     * @return ResponseEntity со статусом перевода
+     */
+    @Operation(summary = "Статус перевода")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Статус перевода"),
+            @ApiResponse(responseCode = "401", description = "Пользователь не аутентифицирован"),
+            @ApiResponse(responseCode = "403", description = "Недостаточно прав (не USER)"),
+            @ApiResponse(responseCode = "404", description = "Перевод не найден")
+    })
+    @GetMapping("/{transferId}")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<TransferStatusDTO> getTransferStatus(@PathVariable UUID transferId) {
+        return ResponseEntity.ok(asyncTransferService.getStatus(transferId));
+    }
+}
@@ -2,6 +2,8 @@ package com.example.bankcards.dto;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 
+import java.math.BigDecimal;
+
 /**
  * DTO, представляющий данные банковской карты.
  *
@@ -20,7 +22,7 @@ public record AccountDTO(
         @Schema(description = "Уникальный идентификатор владельца счета", example = "2")
         Long userId,
 
-        @Schema(description = "Текущий баланс счета", example = "1234")
-        Double balance
+        @Schema(description = "Текущий баланс счета", example = "1234.00")
+        BigDecimal balance
 
 ) {}
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.example.bankcards.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * DTO с результатом одного перевода из пакета.
+ * @param index Порядковый номер перевода в пакете (с нуля)
+ * @param status Статус перевода ("SUCCESS", "FAILED", "ROLLED_BACK", "SKIPPED")
+ * @param transfer Результат перевода (null, если перевод не выполнен)
+ * @param error Описание ошибки (null при успехе)
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+@Schema(description = "Результат перевода из пакета")
+public record BatchTransferItemResultDTO(
+
+        @Schema(description = "Порядковый номер перевода в пакете", example = "0")
+        int index,
+
+        @Schema(description = "Статус перевода", example = "SUCCESS")
+        String status,
+
+        @Schema(description = "Результат перевода", nullable = true)
+        TransferResponseDTO transfer,
+
+        @Schema(description = "Описание ошибки", nullable = true, example = "Недостаточно средств для перевода.")
+        String error
+
+) {}
@@ -0,0 +1,13 @@
+package com.example.bankcards.dto;
+
+/**
+ * Режим выполнения пакета переводов.
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public enum BatchTransferMode {
+    /** Ошибка любого перевода откатывает весь пакет. */
+    ALL_OR_NOTHING,
+    /** Ошибочные переводы пропускаются, остальные фиксируются. */
+    BEST_EFFORT
+}
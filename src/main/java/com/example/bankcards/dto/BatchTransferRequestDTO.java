@@ -0,0 +1,30 @@
+package com.example.bankcards.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * DTO для пакетного запроса переводов.
+ * @param transfers Переводы в порядке выполнения (от 1 до 500)
+ * @param mode Режим выполнения пакета
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+@Schema(description = "Пакетный запрос на перевод средств между счетами")
+public record BatchTransferRequestDTO(
+
+        @Schema(description = "Переводы в порядке выполнения")
+        @NotEmpty(message = "Пакет переводов не может быть пустым")
+        @Size(max = 500, message = "Пакет не может содержать больше 500 переводов")
+        List<@Valid @NotNull TransferRequestDTO> transfers,
+
+        @Schema(description = "Режим выполнения пакета (ALL_OR_NOTHING, BEST_EFFORT)", example = "ALL_OR_NOTHING")
+        @NotNull(message = "Режим выполнения пакета не может быть пустым")
+        BatchTransferMode mode
+
+) {}
@@ -0,0 +1,31 @@
+package com.example.bankcards.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * DTO для ответа на пакетный перевод.
+ * @param mode Режим выполнения пакета
+ * @param succeeded Количество зафиксированных переводов
+ * @param failed Количество переводов с ошибкой
+ * @param results Результаты переводов в порядке запроса
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+@Schema(description = "Ответ на пакетный перевод средств")
+public record BatchTransferResponseDTO(
+
+        @Schema(description = "Режим выполнения пакета", example = "BEST_EFFORT")
+        BatchTransferMode mode,
+
+        @Schema(description = "Количество зафиксированных переводов", example = "9")
+        int succeeded,
+
+        @Schema(description = "Количество переводов с ошибкой", example = "1")
+        int failed,
+
+        @Schema(description = "Результаты переводов в порядке запроса")
+        List<BatchTransferItemResultDTO> results
+
+) {}
@@ -0,0 +1,29 @@
+package com.example.bankcards.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * DTO с результатом выпуска карты на один счет.
+ * @param accountId Идентификатор счета
+ * @param status Статус выпуска ("ISSUED", "SKIPPED", "FAILED")
+ * @param card Выпущенная карта (null, если карта не выпущена)
+ * @param error Причина, по которой карта не выпущена (null при успехе)
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+@Schema(description = "Результат выпуска карты на счет")
+public record BulkCardIssueItemDTO(
+
+        @Schema(description = "Идентификатор счета", example = "42")
+        Long accountId,
+
+        @Schema(description = "Статус выпуска", example = "ISSUED")
+        String status,
+
+        @Schema(description = "Выпущенная карта", nullable = true)
+        CardDTO card,
+
+        @Schema(description = "Причина, по которой карта не выпущена", nullable = true, example = "Счет не найден.")
+        String error
+
+) {}
@@ -0,0 +1,27 @@
+package com.example.bankcards.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * DTO для массового выпуска карт администратором.
+ * Карты выпускаются либо на перечисленные счета, либо на счета, подобранные фильтром.
+ * @param accountIds Счета, на которые выпускаются карты (до 1000; пусто — выбор по фильтру)
+ * @param withoutActiveCardsOnly Выпускать карты только на счета без активных карт
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+@Schema(description = "Запрос на массовый выпуск карт")
+public record BulkCardIssueRequestDTO(
+
+        @Schema(description = "Идентификаторы счетов; если не заданы, счета выбираются фильтром", example = "[1, 2, 3]", nullable = true)
+        @Size(max = 1000, message = "Нельзя выпустить карты больше чем на 1000 счетов за запрос")
+        List<@NotNull Long> accountIds,
+
+        @Schema(description = "Выпускать карты только на счета без активных карт", example = "true", nullable = true)
+        Boolean withoutActiveCardsOnly
+
+) {}
@@ -0,0 +1,31 @@
+package com.example.bankcards.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * DTO для ответа на массовый выпуск карт.
+ * @param issued Количество выпущенных карт
+ * @param skipped Количество счетов, пропущенных фильтром
+ * @param failed Количество счетов, на которые карту выпустить не удалось
+ * @param results Результаты по счетам в порядке запроса (или возрастания id при выборе фильтром)
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+@Schema(description = "Ответ на массовый выпуск карт")
+public record BulkCardIssueResponseDTO(
+
+        @Schema(description = "Количество выпущенных карт", example = "9")
+        int issued,
+
+        @Schema(description = "Количество счетов, пропущенных фильтром", example = "0")
+        int skipped,
+
+        @Schema(description = "Количество счетов, на которые карту выпустить не удалось", example = "1")
+        int failed,
+
+        @Schema(description = "Результаты по счетам")
+        List<BulkCardIssueItemDTO> results
+
+) {}
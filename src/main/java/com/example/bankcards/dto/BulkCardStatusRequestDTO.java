@@ -0,0 +1,40 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.CardStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+
+/**
+ * DTO для массовой смены статуса карт администратором.
+ * Статус меняется у всех карт, подходящих под все заданные фильтры; должен быть задан хотя бы один фильтр.
+ * @param status Новый статус карт (ACTIVE или BLOCKED)
+ * @param userId Владелец карт
+ * @param accountId Счет карт
+ * @param binFrom Нижняя граница диапазона BIN включительно
+ * @param binTo Верхняя граница диапазона BIN включительно
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+@Schema(description = "Запрос на массовую смену статуса карт")
+public record BulkCardStatusRequestDTO(
+
+        @Schema(description = "Новый статус карт", example = "BLOCKED", allowableValues = {"ACTIVE", "BLOCKED"})
+        @NotNull(message = "Статус обязателен")
+        CardStatus status,
+
+        @Schema(description = "Идентификатор владельца карт", example = "1", nullable = true)
+        Long userId,
+
+        @Schema(description = "Идентификатор счета карт", example = "1", nullable = true)
+        Long accountId,
+
+        @Schema(description = "Нижняя граница диапазона BIN включительно", example = "400000", nullable = true)
+        @Pattern(regexp = "\\d{6}", message = "BIN должен состоять из 6 цифр")
+        String binFrom,
+
+        @Schema(description = "Верхняя граница диапазона BIN включительно", example = "400099", nullable = true)
+        @Pattern(regexp = "\\d{6}", message = "BIN должен состоять из 6 цифр")
+        String binTo
+
+) {}
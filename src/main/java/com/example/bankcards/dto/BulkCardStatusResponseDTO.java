@@ -0,0 +1,22 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.CardStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * DTO для ответа на массовую смену статуса карт.
+ * @param status Установленный статус
+ * @param updated Количество карт, статус которых изменился
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+@Schema(description = "Ответ на массовую смену статуса карт")
+public record BulkCardStatusResponseDTO(
+
+        @Schema(description = "Установленный статус", example = "BLOCKED")
+        CardStatus status,
+
+        @Schema(description = "Количество карт, статус которых изменился", example = "12")
+        int updated
+
+) {}
@@ -3,6 +3,7 @@ package com.example.bankcards.dto;
 import com.example.bankcards.entity.CardStatus;
 import io.swagger.v3.oas.annotations.media.Schema;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 
 /**
@@ -32,7 +33,7 @@ public record CardDTO(
         LocalDate expirationDate,
 
         @Schema(description = "Текущий баланс", example = "1500.75")
-        Double balance,
+        BigDecimal balance,
 
         @Schema(description = "Статус карты (ACTIVE, BLOCKED, EXPIRED)", example = "ACTIVE")
         CardStatus status
@@ -0,0 +1,23 @@
+package com.example.bankcards.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * DTO для страницы списка карт при постраничном просмотре по курсору.
+ * @param items Карты страницы в порядке возрастания id
+ * @param nextCursor Курсор следующей страницы (null, если страница последняя)
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+@Schema(description = "Страница списка карт")
+public record CardPageDTO(
+
+        @Schema(description = "Карты страницы в порядке возрастания id")
+        List<CardDTO> items,
+
+        @Schema(description = "Курсор следующей страницы, null для последней страницы", example = "MTAx")
+        String nextCursor
+
+) {}
@@ -0,0 +1,30 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.CardStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * DTO для сводки по картам пользователя.
+ * @param countsByStatus Количество карт по каждому статусу
+ * @param totalCards Общее количество карт
+ * @param totalBalance Суммарный баланс всех карт
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+@Schema(description = "Сводка по картам пользователя")
+public record CardSummaryDTO(
+
+        @Schema(description = "Количество карт по статусам (статусы без карт содержат 0)",
+                example = "{\"ACTIVE\": 2, \"BLOCKED\": 1, \"EXPIRED\": 0}")
+        Map<CardStatus, Long> countsByStatus,
+
+        @Schema(description = "Общее количество карт", example = "3")
+        long totalCards,
+
+        @Schema(description = "Суммарный баланс всех карт", example = "1500.00")
+        BigDecimal totalBalance
+
+) {}
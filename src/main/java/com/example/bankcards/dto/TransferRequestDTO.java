@@ -1,14 +1,17 @@
 package com.example.bankcards.dto;
 
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 
+import java.math.BigDecimal;
+
 /**
  * DTO для запроса перевода между картами.
  * @param fromAccountId ID счета отправителя (обязательное)
  * @param toAccountId ID счета получателя (обязательное)
- * @param amount Сумма перевода (положительная)
+ * @param amount Сумма перевода (положительная, не более двух знаков после запятой)
  * @since 1.0
  * @author Vsevolod Batyrov
  */
@@ -26,6 +29,7 @@ public record TransferRequestDTO(
         @Schema(description = "Сумма перевода (положительное число)", example = "250.00")
         @NotNull(message = "Сумма перевода не может быть пустой")
         @Positive(message = "Сумма перевода должна быть больше нуля")
-        Double amount
+        @Digits(integer = 15, fraction = 2, message = "Сумма перевода должна содержать не более двух знаков после запятой")
+        BigDecimal amount
 
 ) {}
\ No newline at end of file
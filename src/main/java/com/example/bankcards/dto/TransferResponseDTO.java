@@ -2,10 +2,13 @@ package com.example.bankcards.dto;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 /**
  * DTO для ответа о переводе средств между картами
+ * @param transferId Идентификатор перевода в журнале
  * @param fromAccountId ID счета отправителя
  * @param toAccountId ID счета получателя
  * @param amount Сумма перевода
@@ -17,6 +20,9 @@ import java.time.LocalDateTime;
 @Schema(description = "Ответ на перевод средств между картами")
 public record TransferResponseDTO(
 
+        @Schema(description = "Идентификатор перевода в журнале", example = "3fa85f64-5717-4562-b3fc-2c963f66afa6")
+        UUID transferId,
+
         @Schema(description = "ID счета отправителя", example = "1001")
         Long fromAccountId,
 
@@ -24,7 +30,7 @@ public record TransferResponseDTO(
         Long toAccountId,
 
         @Schema(description = "Сумма перевода", example = "250.00")
-        Double amount,
+        BigDecimal amount,
 
         @Schema(description = "Дата и время выполнения операции", example = "2025-07-14T12:45:00")
         LocalDateTime timestamp,
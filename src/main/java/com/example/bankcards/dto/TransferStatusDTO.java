@@ -0,0 +1,31 @@
+package com.example.bankcards.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.UUID;
+
+/**
+ * DTO со статусом асинхронного перевода.
+ * @param transferId Идентификатор перевода
+ * @param status Статус перевода ("PENDING", "SUCCESS", "FAILED")
+ * @param transfer Результат перевода (null, пока перевод не выполнен или при ошибке)
+ * @param error Описание ошибки (null, если ошибки нет)
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+@Schema(description = "Статус асинхронного перевода")
+public record TransferStatusDTO(
+
+        @Schema(description = "Идентификатор перевода", example = "3f1c2a9e-7b4d-4e2a-9c41-5d8e6f0a1b2c")
+        UUID transferId,
+
+        @Schema(description = "Статус перевода", example = "PENDING")
+        String status,
+
+        @Schema(description = "Результат перевода", nullable = true)
+        TransferResponseDTO transfer,
+
+        @Schema(description = "Описание ошибки", nullable = true, example = "Недостаточно средств для перевода.")
+        String error
+
+) {}
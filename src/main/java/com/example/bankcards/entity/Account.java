@@ -2,31 +2,43 @@ package com.example.bankcards.entity;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 /**
  * Сущность, представляющая банковский счёт в системе.
  * Содержит информацию о пользователе и балансе на счету.
+ * Баланс хранится в копейках. Версия строки увеличивается при каждом
+ * изменении и используется для оптимистичной блокировки.
  *
  * @since 1.1.0
  * @author Vsevolod Batyrov
  */
 @Entity
-@Table
+@Table(name = "accounts")
 public class Account {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(name = "user_id", nullable = false)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
+    /** Баланс в копейках. */
     @Column(name = "balance", nullable = false)
-    private Double balance;
+    private long balance;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
 
     public Long getId() {
         return id;
@@ -44,11 +56,15 @@ public class Account {
         this.user = user;
     }
 
-    public Double getBalance() {
+    public long getBalance() {
         return balance;
     }
 
-    public void setBalance(Double balance) {
+    public void setBalance(long balance) {
         this.balance = balance;
     }
+
+    public long getVersion() {
+        return version;
+    }
 }
@@ -1,12 +1,17 @@
 package com.example.bankcards.entity;
 
+import com.example.bankcards.util.CardNumberUtils;
+import com.example.bankcards.util.EncryptionUtil;
 import jakarta.persistence.*;
 import java.time.LocalDate;
 
 /**
  * Сущность, представляющая банковскую карту в системе.
  * Содержит информацию о номере карты, счете владельца, сроке действия,
- * статусе и балансе.
+ * статусе и балансе. Баланс хранится в копейках. Версия строки
+ * используется для оптимистичной блокировки. Номер карты хранится
+ * зашифрованным, а его BIN и последние 4 цифры — в открытом виде для отбора
+ * карт по диапазону BIN и показа маскированного номера без расшифровки.
  * @since 1.0
  * @author Vsevolod Batyrov
  */
@@ -21,7 +26,13 @@ public class Card {
     @Column(name = "card_number", nullable = false)
     private String encryptedCardNumber;
 
-    @ManyToOne
+    @Column(name = "card_bin", nullable = false, length = 6)
+    private String cardBin;
+
+    @Column(name = "card_last4", nullable = false, length = 4)
+    private String cardLast4;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "account_id", nullable = false)
     private Account account;
 
@@ -32,8 +43,13 @@ public class Card {
     @Column(name = "status", nullable = false)
     private CardStatus status;
 
+    /** Баланс в копейках. */
     @Column(name = "balance", nullable = false)
-    private Double balance;
+    private long balance;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
 
     public Long getId() {
         return id;
@@ -47,8 +63,23 @@ public class Card {
         return encryptedCardNumber;
     }
 
-    public void setEncryptedCardNumber(String encryptedCardNumber) {
-        this.encryptedCardNumber = encryptedCardNumber;
+    public String getCardBin() {
+        return cardBin;
+    }
+
+    public String getCardLast4() {
+        return cardLast4;
+    }
+
+    /**
+     * Задает номер карты: шифрует его и заполняет BIN и последние 4 цифры.
+     *
+     * @param cardNumber открытый номер карты
+     */
+    public void setCardNumber(String cardNumber) {
+        this.encryptedCardNumber = EncryptionUtil.encrypt(cardNumber);
+        this.cardBin = CardNumberUtils.bin(cardNumber);
+        this.cardLast4 = CardNumberUtils.last4(cardNumber);
     }
 
     public Account getAccount() {
@@ -75,11 +106,15 @@ public class Card {
         this.status = status;
     }
 
-    public Double getBalance() {
+    public long getBalance() {
         return balance;
     }
 
-    public void setBalance(Double balance) {
+    public void setBalance(long balance) {
         this.balance = balance;
     }
+
+    public long getVersion() {
+        return version;
+    }
 }
@@ -1,7 +1,12 @@
 package com.example.bankcards.entity;
 
 /**
- * Перечисление, содержащее статус для карт
+ * Перечисление, содержащее статус для карт.
+ * <p>
+ * Допустимые переходы: ACTIVE → BLOCKED (блокировка), BLOCKED → ACTIVE (массовая смена статуса
+ * администратором), ACTIVE → EXPIRED и BLOCKED → EXPIRED (истечение срока: ночная проверка
+ * переводит в EXPIRED любую непросроченную карту с истекшим сроком). EXPIRED — конечный статус.
+ * Переходы выполняются условными запросами UPDATE, которые проверяют текущий статус карты.
  * @since 1.0
  * @author Vsevolod Batyrov
  */
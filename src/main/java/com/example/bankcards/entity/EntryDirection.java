@@ -0,0 +1,11 @@
+package com.example.bankcards.entity;
+
+/**
+ * Перечисление, содержащее направление проводки в журнале переводов
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public enum EntryDirection {
+    DEBIT,
+    CREDIT
+}
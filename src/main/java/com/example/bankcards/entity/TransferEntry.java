@@ -0,0 +1,95 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Сущность, представляющая проводку в журнале переводов.
+ * Каждый перевод записывается парой проводок: списание со счета отправителя
+ * и зачисление на счет получателя. Проводки только добавляются и никогда не изменяются.
+ * Сумма и баланс счета после проводки хранятся в копейках.
+ *
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+@Entity
+@Table(name = "transfer_entries")
+public class TransferEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "transfer_id", nullable = false, updatable = false)
+    private UUID transferId;
+
+    @Column(name = "account_id", nullable = false, updatable = false)
+    private Long accountId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "direction", nullable = false, updatable = false)
+    private EntryDirection direction;
+
+    @Column(name = "amount", nullable = false, updatable = false)
+    private long amount;
+
+    @Column(name = "balance_after", nullable = false, updatable = false)
+    private long balanceAfter;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public TransferEntry() {
+    }
+
+    public TransferEntry(UUID transferId,
+                         Long accountId,
+                         EntryDirection direction,
+                         long amount,
+                         long balanceAfter,
+                         LocalDateTime createdAt) {
+        this.transferId = transferId;
+        this.accountId = accountId;
+        this.direction = direction;
+        this.amount = amount;
+        this.balanceAfter = balanceAfter;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public UUID getTransferId() {
+        return transferId;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public EntryDirection getDirection() {
+        return direction;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public long getBalanceAfter() {
+        return balanceAfter;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
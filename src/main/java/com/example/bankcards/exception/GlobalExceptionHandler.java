@@ -82,7 +82,7 @@ public class GlobalExceptionHandler {
         );
     }
 
-    @ExceptionHandler(UserNotFoundException.class)
+    @ExceptionHandler(AccountNotFoundException.class)
     public ResponseEntity<ErrorResponse> handleAccountNotFound(AccountNotFoundException ex) {
         return new ResponseEntity<>(
                 new ErrorResponse(ex.getMessage(), HttpStatus.BAD_REQUEST.value()),
@@ -90,13 +90,63 @@ public class GlobalExceptionHandler {
         );
     }
 
-    /**
-     * Обрабатывает все неперехваченные исключения.
-     *
-     * @param ex исключение Exception
-     * @return ResponseEntity с сообщением об ошибке и статусом INTERNAL_SERVER_ERROR
-     */
-    @ExceptionHandler(UserNotFoundException.class)
+    @ExceptionHandler(TransferLockTimeoutException.class)
+    public ResponseEntity<ErrorResponse> handleTransferLockTimeout(TransferLockTimeoutException ex) {
+        return new ResponseEntity<>(
+                new ErrorResponse(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE.value()),
+                HttpStatus.SERVICE_UNAVAILABLE
+        );
+    }
+
+    @ExceptionHandler(TransferConflictException.class)
+    public ResponseEntity<ErrorResponse> handleTransferConflict(TransferConflictException ex) {
+        return new ResponseEntity<>(
+                new ErrorResponse(ex.getMessage(), HttpStatus.CONFLICT.value()),
+                HttpStatus.CONFLICT
+        );
+    }
+
+    @ExceptionHandler(TransferQueueFullException.class)
+    public ResponseEntity<ErrorResponse> handleTransferQueueFull(TransferQueueFullException ex) {
+        return new ResponseEntity<>(
+                new ErrorResponse(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE.value()),
+                HttpStatus.SERVICE_UNAVAILABLE
+        );
+    }
+
+    @ExceptionHandler(TransferNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleTransferNotFound(TransferNotFoundException ex) {
+        return new ResponseEntity<>(
+                new ErrorResponse(ex.getMessage(), HttpStatus.NOT_FOUND.value()),
+                HttpStatus.NOT_FOUND
+        );
+    }
+
+    @ExceptionHandler(InvalidIdempotencyKeyException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidIdempotencyKey(InvalidIdempotencyKeyException ex) {
+        return new ResponseEntity<>(
+                new ErrorResponse(ex.getMessage(), HttpStatus.BAD_REQUEST.value()),
+                HttpStatus.BAD_REQUEST
+        );
+    }
+
+    @ExceptionHandler(IdempotencyKeyConflictException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyKeyConflict(IdempotencyKeyConflictException ex) {
+        return new ResponseEntity<>(
+                new ErrorResponse(ex.getMessage(), HttpStatus.UNPROCESSABLE_ENTITY.value()),
+                HttpStatus.UNPROCESSABLE_ENTITY
+        );
+    }
+
+    @ExceptionHandler(SameAccountTransferException.class)
+    public ResponseEntity<ErrorResponse> handleSameAccountTransfer(SameAccountTransferException ex) {
+        return new ResponseEntity<>(
+                new ErrorResponse(ex.getMessage(), HttpStatus.BAD_REQUEST.value()),
+                HttpStatus.BAD_REQUEST
+        );
+    }
+
+    @ExceptionHandler(NoActiveCardsException.class)
     public ResponseEntity<ErrorResponse> handleNoActiveCards(NoActiveCardsException ex) {
         return new ResponseEntity<>(
                 new ErrorResponse(ex.getMessage(), HttpStatus.BAD_REQUEST.value()),
@@ -104,6 +154,52 @@ public class GlobalExceptionHandler {
         );
     }
 
+    @ExceptionHandler(InvalidPageCursorException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidPageCursor(InvalidPageCursorException ex) {
+        return new ResponseEntity<>(
+                new ErrorResponse(ex.getMessage(), HttpStatus.BAD_REQUEST.value()),
+                HttpStatus.BAD_REQUEST
+        );
+    }
+
+    @ExceptionHandler(InvalidBulkIssueRequestException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidBulkIssueRequest(InvalidBulkIssueRequestException ex) {
+        return new ResponseEntity<>(
+                new ErrorResponse(ex.getMessage(), HttpStatus.BAD_REQUEST.value()),
+                HttpStatus.BAD_REQUEST
+        );
+    }
+
+    @ExceptionHandler(IllegalCardStatusTransitionException.class)
+    public ResponseEntity<ErrorResponse> handleIllegalCardStatusTransition(IllegalCardStatusTransitionException ex) {
+        return new ResponseEntity<>(
+                new ErrorResponse(ex.getMessage(), HttpStatus.CONFLICT.value()),
+                HttpStatus.CONFLICT
+        );
+    }
+
+    @ExceptionHandler(InvalidBulkStatusRequestException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidBulkStatusRequest(InvalidBulkStatusRequestException ex) {
+        return new ResponseEntity<>(
+                new ErrorResponse(ex.getMessage(), HttpStatus.BAD_REQUEST.value()),
+                HttpStatus.BAD_REQUEST
+        );
+    }
+
+    @ExceptionHandler(InvalidCardSearchRequestException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidCardSearchRequest(InvalidCardSearchRequestException ex) {
+        return new ResponseEntity<>(
+                new ErrorResponse(ex.getMessage(), HttpStatus.BAD_REQUEST.value()),
+                HttpStatus.BAD_REQUEST
+        );
+    }
+
+    /**
+     * Обрабатывает все неперехваченные исключения.
+     *
+     * @param ex исключение Exception
+     * @return ResponseEntity с сообщением об ошибке и статусом INTERNAL_SERVER_ERROR
+     */
     @ExceptionHandler(Exception.class)
     public ResponseEntity<?> handleGenericException(Exception ex) {
         Map<String, Object> body = new HashMap<>();
@@ -0,0 +1,14 @@
+package com.example.bankcards.exception;
+
+/**
+ * Исключение, выбрасываемое при повторном использовании ключа идемпотентности
+ * с другими данными запроса.
+ * Наследуется от {@link RuntimeException}, поэтому является unchecked исключением.
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public class IdempotencyKeyConflictException extends RuntimeException {
+    public IdempotencyKeyConflictException() {
+        super("Ключ идемпотентности уже использован для другого запроса.");
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.bankcards.exception;
+
+import com.example.bankcards.entity.CardStatus;
+
+/**
+ * Исключение, выбрасываемое, если текущий статус карты не допускает перехода в запрошенный статус,
+ * в том числе когда статус карты одновременно изменила другая операция.
+ * Наследуется от {@link RuntimeException}, поэтому является unchecked исключением.
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public class IllegalCardStatusTransitionException extends RuntimeException {
+    public IllegalCardStatusTransitionException(Long cardId, CardStatus status) {
+        super("Карту с id=" + cardId + " нельзя перевести в статус " + status);
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.bankcards.exception;
+
+/**
+ * Исключение, выбрасываемое, если в запросе массового выпуска карт не заданы ни счета, ни фильтр.
+ * Наследуется от {@link RuntimeException}, поэтому является unchecked исключением.
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public class InvalidBulkIssueRequestException extends RuntimeException {
+    public InvalidBulkIssueRequestException() {
+        super("Укажите счета или фильтр для выпуска карт.");
+    }
+}
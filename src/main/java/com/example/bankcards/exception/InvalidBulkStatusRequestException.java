@@ -0,0 +1,14 @@
+package com.example.bankcards.exception;
+
+/**
+ * Исключение, выбрасываемое, если в запросе массовой смены статуса карт не задан ни один фильтр
+ * или запрошен статус, который нельзя установить вручную.
+ * Наследуется от {@link RuntimeException}, поэтому является unchecked исключением.
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public class InvalidBulkStatusRequestException extends RuntimeException {
+    public InvalidBulkStatusRequestException() {
+        super("Укажите хотя бы один фильтр карт и статус ACTIVE или BLOCKED.");
+    }
+}
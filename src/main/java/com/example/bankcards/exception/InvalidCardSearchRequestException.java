@@ -0,0 +1,13 @@
+package com.example.bankcards.exception;
+
+/**
+ * Исключение, выбрасываемое, если последние цифры номера в поиске карт заданы не 4 цифрами.
+ * Наследуется от {@link RuntimeException}, поэтому является unchecked исключением.
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public class InvalidCardSearchRequestException extends RuntimeException {
+    public InvalidCardSearchRequestException() {
+        super("Последние цифры номера карты должны состоять из 4 цифр.");
+    }
+}
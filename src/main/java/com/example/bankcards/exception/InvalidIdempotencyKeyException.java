@@ -0,0 +1,13 @@
+package com.example.bankcards.exception;
+
+/**
+ * Исключение, выбрасываемое при некорректном ключе идемпотентности.
+ * Наследуется от {@link RuntimeException}, поэтому является unchecked исключением.
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public class InvalidIdempotencyKeyException extends RuntimeException {
+    public InvalidIdempotencyKeyException() {
+        super("Ключ идемпотентности должен быть непустой строкой длиной не более 64 символов.");
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.bankcards.exception;
+
+/**
+ * Исключение, выбрасываемое при некорректном курсоре страницы.
+ * Наследуется от {@link RuntimeException}, поэтому является unchecked исключением.
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public class InvalidPageCursorException extends RuntimeException {
+    public InvalidPageCursorException() {
+        super("Некорректный курсор страницы.");
+    }
+}
@@ -10,4 +10,8 @@ public class InvalidTransferAmountException extends RuntimeException {
     public InvalidTransferAmountException() {
         super("Некорректная сумма перевода. Сумма должна быть положительным числом.");
     }
+
+    public InvalidTransferAmountException(String message) {
+        super(message);
+    }
 }
\ No newline at end of file
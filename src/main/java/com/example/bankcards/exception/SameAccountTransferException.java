@@ -0,0 +1,13 @@
+package com.example.bankcards.exception;
+
+/**
+ * Исключение, выбрасываемое при попытке перевода средств на тот же счет.
+ * Наследуется от {@link RuntimeException}, поэтому является unchecked исключением.
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public class SameAccountTransferException extends RuntimeException {
+    public SameAccountTransferException() {
+        super("Счета отправителя и получателя должны различаться.");
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.bankcards.exception;
+
+/**
+ * Исключение, выбрасываемое, если перевод не удалось зафиксировать из-за
+ * одновременного изменения счетов другими транзакциями за отведенное число попыток.
+ * Наследуется от {@link RuntimeException}, поэтому является unchecked исключением.
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public class TransferConflictException extends RuntimeException {
+    public TransferConflictException() {
+        super("Счет одновременно изменен другой операцией. Повторите перевод позже.");
+    }
+}
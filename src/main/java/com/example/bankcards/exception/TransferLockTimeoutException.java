@@ -0,0 +1,13 @@
+package com.example.bankcards.exception;
+
+/**
+ * Исключение, выбрасываемое, если не удалось дождаться блокировки счетов для перевода.
+ * Наследуется от {@link RuntimeException}, поэтому является unchecked исключением.
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public class TransferLockTimeoutException extends RuntimeException {
+    public TransferLockTimeoutException() {
+        super("Счет занят другой операцией. Повторите перевод позже.");
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.bankcards.exception;
+
+import java.util.UUID;
+
+/**
+ * Исключение, выбрасываемое при невозможности найти перевод с заданным id.
+ * Наследуется от {@link RuntimeException}, поэтому является unchecked исключением.
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public class TransferNotFoundException extends RuntimeException {
+    public TransferNotFoundException(UUID transferId) {
+        super("Перевод с id=" + transferId + " не найден.");
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.bankcards.exception;
+
+/**
+ * Исключение, выбрасываемое, если очередь асинхронных переводов заполнена.
+ * Наследуется от {@link RuntimeException}, поэтому является unchecked исключением.
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public class TransferQueueFullException extends RuntimeException {
+    public TransferQueueFullException() {
+        super("Очередь переводов переполнена. Повторите перевод позже.");
+    }
+}
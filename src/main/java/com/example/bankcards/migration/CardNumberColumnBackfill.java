@@ -0,0 +1,102 @@
+package com.example.bankcards.migration;
+
+import com.example.bankcards.util.CardNumberUtils;
+import com.example.bankcards.util.EncryptionUtil;
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Миграция Liquibase, заполняющая открытую часть номера карты в существующих строках
+ * {@code bank_cards}. Номера хранятся зашифрованными, поэтому значение нельзя вычислить
+ * в SQL: строки читаются порциями по возрастанию id, номер расшифровывается,
+ * а результат записывается пакетным UPDATE.
+ * <p>
+ * Заполняемая колонка задается параметром {@code column} в changeSet;
+ * обрабатываются только строки, где она еще NULL, поэтому миграцию можно
+ * безопасно перезапустить после сбоя.
+ *
+ * @see CardNumberUtils
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public class CardNumberColumnBackfill implements CustomTaskChange {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private static final Map<String, UnaryOperator<String>> EXTRACTORS = Map.of(
+            "card_bin", CardNumberUtils::bin,
+            "card_last4", CardNumberUtils::last4);
+
+    private String column;
+
+    public void setColumn(String column) {
+        this.column = column;
+    }
+
+    @Override
+    public void execute(Database database) throws CustomChangeException {
+        UnaryOperator<String> extractor = EXTRACTORS.get(column);
+        Connection connection = ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+
+        String select = "SELECT id, card_number FROM bank_cards WHERE " + column + " IS NULL AND id > ?"
+                + " ORDER BY id FETCH FIRST " + CHUNK_SIZE + " ROWS ONLY";
+        String update = "UPDATE bank_cards SET " + column + " = ? WHERE id = ?";
+
+        try (PreparedStatement read = connection.prepareStatement(select);
+             PreparedStatement write = connection.prepareStatement(update)) {
+            long lastId = 0;
+            int rows;
+            do {
+                rows = 0;
+                read.setLong(1, lastId);
+                try (ResultSet resultSet = read.executeQuery()) {
+                    while (resultSet.next()) {
+                        lastId = resultSet.getLong(1);
+                        write.setString(1, extractor.apply(EncryptionUtil.decrypt(resultSet.getString(2))));
+                        write.setLong(2, lastId);
+                        write.addBatch();
+                        rows++;
+                    }
+                }
+                if (rows > 0) {
+                    write.executeBatch();
+                }
+            } while (rows == CHUNK_SIZE);
+        } catch (SQLException e) {
+            throw new CustomChangeException("Failed to backfill bank_cards." + column, e);
+        }
+    }
+
+    @Override
+    public String getConfirmationMessage() {
+        return "bank_cards." + column + " backfilled";
+    }
+
+    @Override
+    public void setUp() {
+    }
+
+    @Override
+    public void setFileOpener(ResourceAccessor resourceAccessor) {
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        ValidationErrors errors = new ValidationErrors();
+        if (column == null || !EXTRACTORS.containsKey(column)) {
+            errors.addError("Unsupported column: " + column);
+        }
+        return errors;
+    }
+}
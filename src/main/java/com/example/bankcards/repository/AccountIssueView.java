@@ -0,0 +1,14 @@
+package com.example.bankcards.repository;
+
+/**
+ * Проекция счета с полями, необходимыми для выпуска на него новой карты.
+ *
+ * @param id идентификатор счета
+ * @param userId идентификатор владельца счета
+ * @param balance баланс счета в копейках
+ * @param hasActiveCard есть ли у счета активная карта
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public record AccountIssueView(Long id, Long userId, long balance, boolean hasActiveCard) {
+}
@@ -1,8 +1,15 @@
 package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.Account;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -12,6 +19,89 @@ import java.util.Optional;
  * @since 1.1.0
  * @author Vsevolod Batyrov
  */
-public interface AccountRepository extends JpaRepository<Account, Long> {
+public interface AccountRepository extends JpaRepository<Account, Long>, AccountRepositoryCustom {
     Optional<Account> findByUserId(Long userId);
+
+    /**
+     * Загружает проекции счетов для выпуска карт вместе с признаком наличия активной карты.
+     *
+     * @param ids идентификаторы счетов
+     * @return проекции найденных счетов в порядке возрастания id
+     */
+    @Query("""
+            SELECT new com.example.bankcards.repository.AccountIssueView(a.id, a.user.id, a.balance,
+                CASE WHEN EXISTS (
+                    SELECT 1 FROM Card c
+                    WHERE c.account = a AND c.status = com.example.bankcards.entity.CardStatus.ACTIVE
+                ) THEN true ELSE false END)
+            FROM Account a
+            WHERE a.id IN :ids
+            ORDER BY a.id
+            """)
+    List<AccountIssueView> findIssueViewsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Загружает проекции счетов, у которых нет ни одной активной карты.
+     *
+     * @param limit максимальное количество счетов
+     * @return проекции счетов в порядке возрастания id
+     */
+    @Query("""
+            SELECT new com.example.bankcards.repository.AccountIssueView(a.id, a.user.id, a.balance, false)
+            FROM Account a
+            WHERE NOT EXISTS (
+                SELECT 1 FROM Card c
+                WHERE c.account = a AND c.status = com.example.bankcards.entity.CardStatus.ACTIVE
+            )
+            ORDER BY a.id
+            """)
+    List<AccountIssueView> findIssueViewsWithoutActiveCards(Limit limit);
+
+    /**
+     * Загружает счета с блокировкой строк ({@code SELECT ... FOR UPDATE}).
+     * Строки блокируются в порядке возрастания id, что исключает взаимные блокировки в БД.
+     *
+     * @param ids идентификаторы счетов
+     * @return счета, отсортированные по id
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.id IN :ids ORDER BY a.id")
+    List<Account> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Блокирует строки счетов ({@code SELECT ... FOR UPDATE}) без загрузки сущностей.
+     * Строки блокируются в порядке возрастания id, как и в {@link #findAllByIdForUpdate}.
+     *
+     * @param ids идентификаторы счетов
+     * @return id найденных счетов в порядке возрастания
+     */
+    @Query(value = "SELECT id FROM accounts WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> lockAllById(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Возвращает свободный остаток счета: баланс счета за вычетом балансов всех его карт,
+     * кроме просроченных. Заблокированные карты учитываются, так как их баланс остается за ними.
+     *
+     * @param id идентификатор счета
+     * @return свободный остаток в копейках, если счет найден
+     */
+    @Query("""
+            SELECT a.balance - COALESCE((
+                SELECT SUM(c.balance) FROM Card c
+                WHERE c.account = a AND c.status <> com.example.bankcards.entity.CardStatus.EXPIRED
+            ), 0)
+            FROM Account a
+            WHERE a.id = :id
+            """)
+    Optional<Long> findFreeBalanceById(@Param("id") Long id);
+
+    /**
+     * Загружает счета без блокировки строк. Используется стратегиями
+     * с оптимистичной блокировкой и изоляцией SERIALIZABLE, где конфликт
+     * обнаруживается при фиксации транзакции.
+     *
+     * @param ids идентификаторы счетов
+     * @return счета, отсортированные по id
+     */
+    List<Account> findByIdInOrderById(Collection<Long> ids);
 }
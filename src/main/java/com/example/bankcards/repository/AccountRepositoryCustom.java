@@ -0,0 +1,30 @@
+package com.example.bankcards.repository;
+
+/**
+ * Дополнительные операции со счетами, не выражаемые через JpaRepository.
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public interface AccountRepositoryCustom {
+
+    /**
+     * Переносит сумму между счетами одним пакетом JDBC из двух условных запросов UPDATE.
+     * Счет списания изменяется, только если он принадлежит пользователю
+     * и на нем достаточно средств, поэтому количество измененных строк
+     * одновременно подтверждает права и достаточность средств.
+     * Счета списания и зачисления должны различаться. Версии измененных строк
+     * увеличиваются, чтобы параллельные транзакции с оптимистичной блокировкой
+     * обнаружили изменение.
+     * <p>
+     * Строки изменяются в порядке возрастания id, как и при
+     * {@link AccountRepository#findAllByIdForUpdate}, поэтому встречные переводы
+     * не блокируют друг друга взаимно в БД. Выполняется в текущей транзакции.
+     *
+     * @param fromId идентификатор счета списания
+     * @param toId идентификатор счета зачисления
+     * @param userId идентификатор владельца счета списания
+     * @param amount сумма в копейках
+     * @return количество измененных строк (2 при успехе)
+     */
+    int transferBalance(Long fromId, Long toId, Long userId, long amount);
+}
@@ -0,0 +1,56 @@
+package com.example.bankcards.repository;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Реализация {@link AccountRepositoryCustom} на JdbcTemplate.
+ * <p>
+ * Один запрос UPDATE с условием {@code id = ? OR id = ?} блокирует строки в порядке
+ * обхода таблицы или индекса, а не в порядке id, и встречные переводы могут взаимно
+ * заблокироваться. Поэтому списание и зачисление отправляются отдельными запросами
+ * с изменением баланса со знаком, упорядоченными по id, но одним пакетом JDBC,
+ * чтобы перевод по-прежнему занимал одно обращение к БД.
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public class AccountRepositoryImpl implements AccountRepositoryCustom {
+
+    private static final String ADJUST_SQL = """
+            UPDATE accounts SET balance = balance + ?, version = version + 1
+            WHERE id = ? AND balance + ? >= 0 AND (? > 0 OR user_id = ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AccountRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public int transferBalance(Long fromId, Long toId, Long userId, long amount) {
+        long[] ids = fromId < toId ? new long[]{fromId, toId} : new long[]{toId, fromId};
+        long[] deltas = fromId < toId ? new long[]{-amount, amount} : new long[]{amount, -amount};
+
+        int[] updated = jdbcTemplate.batchUpdate(ADJUST_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setLong(1, deltas[i]);
+                ps.setLong(2, ids[i]);
+                ps.setLong(3, deltas[i]);
+                ps.setLong(4, deltas[i]);
+                ps.setLong(5, userId);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return ids.length;
+            }
+        });
+
+        return updated[0] + updated[1];
+    }
+}
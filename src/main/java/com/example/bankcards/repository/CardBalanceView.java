@@ -0,0 +1,18 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardStatus;
+
+/**
+ * Проекция карты с полями, необходимыми для распределения суммы перевода.
+ * Загружается без создания управляемых сущностей.
+ *
+ * @param id идентификатор карты
+ * @param accountId идентификатор счета карты
+ * @param ownerId идентификатор владельца счета карты
+ * @param status статус карты
+ * @param balance баланс карты в копейках
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public record CardBalanceView(Long id, Long accountId, Long ownerId, CardStatus status, long balance) {
+}
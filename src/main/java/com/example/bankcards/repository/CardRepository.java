@@ -2,11 +2,21 @@ package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Репозиторий для работы с банковскими картами.
@@ -15,11 +25,160 @@ import java.util.List;
  * @since 1.0
  * @author Vsevolod Batyrov
  */
-public interface CardRepository extends JpaRepository<Card, Long> {
+public interface CardRepository extends JpaRepository<Card, Long>, CardRepositoryCustom {
     List<Card> findByStatus(CardStatus status);
 
     @Query("SELECT c FROM Card c JOIN c.account a WHERE a.user.id = :userId")
     List<Card> findByUserId(@Param("userId") Long userId);
 
     List<Card> findByAccountId(@Param("accountId") Long accountId);
+
+    /**
+     * Загружает карты пользователя проекциями для CardDTO.
+     *
+     * @param userId идентификатор владельца
+     * @return проекции карт, отсортированные по id
+     */
+    @Query("""
+            SELECT new com.example.bankcards.repository.CardView(
+                c.id, c.encryptedCardNumber, c.cardLast4, a.user.id, c.expirationDate, c.balance, c.status)
+            FROM Card c JOIN c.account a
+            WHERE a.user.id = :userId
+            ORDER BY c.id
+            """)
+    List<CardView> findViewsByUserId(@Param("userId") Long userId);
+
+    /**
+     * Загружает карту проекцией для CardDTO.
+     *
+     * @param id идентификатор карты
+     * @return проекция карты или пустой Optional, если карта не найдена
+     */
+    @Query("""
+            SELECT new com.example.bankcards.repository.CardView(
+                c.id, c.encryptedCardNumber, c.cardLast4, a.user.id, c.expirationDate, c.balance, c.status)
+            FROM Card c JOIN c.account a
+            WHERE c.id = :id
+            """)
+    Optional<CardView> findViewById(@Param("id") Long id);
+
+    /**
+     * Возвращает идентификатор владельца карты одним запросом без загрузки карты.
+     *
+     * @param id идентификатор карты
+     * @return id владельца или пустой Optional, если карта не найдена
+     */
+    @Query("SELECT a.user.id FROM Card c JOIN c.account a WHERE c.id = :id")
+    Optional<Long> findOwnerIdById(@Param("id") Long id);
+
+    /**
+     * Проверяет, есть ли у пользователя карта в заданном статусе.
+     * Выполняется как выборка первой подходящей строки, карты не загружаются.
+     *
+     * @param userId идентификатор владельца
+     * @param status статус карты
+     * @return true, если такая карта есть
+     */
+    boolean existsByAccountUserIdAndStatus(Long userId, CardStatus status);
+
+    /**
+     * Считает карты пользователя и их суммарный баланс по статусам одним групповым запросом.
+     * Статусы без карт в результат не попадают.
+     *
+     * @param userId идентификатор владельца
+     * @return по одной строке на каждый статус, в котором у пользователя есть карты
+     */
+    @Query("""
+            SELECT new com.example.bankcards.repository.CardStatusTotals(c.status, COUNT(c), SUM(c.balance))
+            FROM Card c JOIN c.account a
+            WHERE a.user.id = :userId
+            GROUP BY c.status
+            """)
+    List<CardStatusTotals> sumByStatusForUser(@Param("userId") Long userId);
+
+    /**
+     * Читает все карты потоком проекций для CardDTO в порядке возрастания id.
+     * Строки читаются из курсора JDBC порциями по 1000, управляемые сущности не создаются.
+     * Поток должен читаться внутри транзакции и быть закрыт после использования.
+     *
+     * @return поток проекций карт
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("""
+            SELECT new com.example.bankcards.repository.CardView(
+                c.id, c.encryptedCardNumber, c.cardLast4, a.user.id, c.expirationDate, c.balance, c.status)
+            FROM Card c JOIN c.account a
+            ORDER BY c.id
+            """)
+    Stream<CardView> streamAll();
+
+    /**
+     * Загружает карты указанных счетов с блокировкой строк ({@code SELECT ... FOR UPDATE}).
+     * Строки блокируются в порядке возрастания id карты.
+     *
+     * @param accountIds идентификаторы счетов
+     * @return карты, отсортированные по id
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Card c WHERE c.account.id IN :accountIds ORDER BY c.id")
+    List<Card> findByAccountIdInForUpdate(@Param("accountIds") Collection<Long> accountIds);
+
+    /**
+     * Загружает карты указанных счетов без блокировки строк.
+     *
+     * @param accountIds идентификаторы счетов
+     * @return карты, отсортированные по id
+     */
+    List<Card> findByAccountIdInOrderById(Collection<Long> accountIds);
+
+    /**
+     * Загружает балансы карт указанных счетов без создания сущностей.
+     *
+     * @param accountIds идентификаторы счетов
+     * @return проекции карт, отсортированные по id
+     */
+    @Query("""
+            SELECT new com.example.bankcards.repository.CardBalanceView(c.id, a.id, a.user.id, c.status, c.balance)
+            FROM Card c JOIN c.account a
+            WHERE a.id IN :accountIds
+            ORDER BY c.id
+            """)
+    List<CardBalanceView> findBalancesByAccountIdIn(@Param("accountIds") Collection<Long> accountIds);
+
+    /**
+     * Переводит карту в новый статус одним запросом UPDATE, только если ее текущий статус
+     * равен ожидаемому. Версия измененной строки увеличивается.
+     *
+     * @param id идентификатор карты
+     * @param expected ожидаемый текущий статус
+     * @param status новый статус
+     * @return 1, если статус изменен; 0, если карты нет или ее статус отличается от ожидаемого
+     */
+    @Modifying
+    @Query("""
+            UPDATE Card c
+            SET c.status = :status, c.version = c.version + 1
+            WHERE c.id = :id
+              AND c.status = :expected
+            """)
+    int compareAndSetStatus(@Param("id") Long id,
+                            @Param("expected") CardStatus expected,
+                            @Param("status") CardStatus status);
+
+    /**
+     * Переводит в статус EXPIRED все карты со сроком действия раньше указанной даты одним
+     * запросом UPDATE, независимо от текущего статуса: заблокированная карта с истекшим сроком
+     * тоже становится EXPIRED. Версии измененных строк увеличиваются.
+     *
+     * @param date дата, с которой карты еще действуют
+     * @return количество карт, у которых истек срок
+     */
+    @Modifying
+    @Query("""
+            UPDATE Card c
+            SET c.status = com.example.bankcards.entity.CardStatus.EXPIRED, c.version = c.version + 1
+            WHERE c.status <> com.example.bankcards.entity.CardStatus.EXPIRED
+              AND c.expirationDate < :date
+            """)
+    int expireAllBefore(@Param("date") LocalDate date);
 }
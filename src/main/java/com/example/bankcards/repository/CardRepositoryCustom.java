@@ -0,0 +1,79 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardStatus;
+
+import java.util.List;
+
+/**
+ * Дополнительные операции с картами, не выражаемые через JpaRepository.
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public interface CardRepositoryCustom {
+
+    /**
+     * Списывает суммы с нескольких карт одним пакетом JDBC.
+     * С каждой карты списание выполняется, только если она активна и на ней достаточно средств.
+     * Строки изменяются в порядке возрастания id карты. Выполняется в текущей транзакции.
+     *
+     * @param cardIds идентификаторы карт
+     * @param amounts суммы списания в копейках по тем же индексам
+     * @param count количество используемых элементов массивов
+     * @return {@code true}, если списание выполнено со всех карт
+     */
+    boolean debitAll(long[] cardIds, long[] amounts, int count);
+
+    /**
+     * Списывает сумму с одной карты и зачисляет сумму на другую одним пакетом JDBC
+     * из двух условных запросов UPDATE. Изменяются только активные карты, карта списания —
+     * только если на ней достаточно средств. Версии измененных строк увеличиваются.
+     * Строки изменяются в порядке возрастания id карты. Выполняется в текущей транзакции.
+     *
+     * @param fromCardId идентификатор карты списания
+     * @param debit сумма списания в копейках
+     * @param toCardId идентификатор карты зачисления
+     * @param credit сумма зачисления в копейках
+     * @return количество измененных строк (2 при успехе)
+     */
+    int moveBalance(Long fromCardId, long debit, Long toCardId, long credit);
+
+    /**
+     * Вставляет новые карты одним пакетом JDBC в текущей транзакции.
+     *
+     * @param cards данные новых карт
+     * @return идентификаторы созданных карт в порядке {@code cards}
+     */
+    List<Long> insertAll(List<NewCardRow> cards);
+
+    /**
+     * Устанавливает статус всем картам, подходящим под фильтры, одним запросом UPDATE.
+     * В запрос попадают только заданные фильтры, как и в {@link #searchPage}. Карты, уже имеющие
+     * этот статус, и просроченные карты не изменяются. При активации также пропускаются карты,
+     * срок действия которых уже истек, даже если планировщик еще не перевел их в EXPIRED.
+     * Версии измененных строк увеличиваются. Выполняется в текущей транзакции.
+     *
+     * @param status новый статус
+     * @param userId идентификатор владельца (null — любой)
+     * @param accountId идентификатор счета (null — любой)
+     * @param binFrom нижняя граница диапазона BIN включительно (null — без ограничения)
+     * @param binTo верхняя граница диапазона BIN включительно (null — без ограничения)
+     * @return количество измененных карт
+     */
+    int updateStatusWhere(CardStatus status, Long userId, Long accountId, String binFrom, String binTo);
+
+    /**
+     * Загружает страницу карт с id больше заданного (keyset-пагинация) проекциями для CardDTO.
+     * В запрос попадают только заданные фильтры, поэтому для каждого набора фильтров
+     * БД строит свой план. Фильтры по последним 4 цифрам и статусу читаются по индексам
+     * {@code (card_last4, id)} и {@code (status, id)} сразу в порядке id, фильтр по владельцу —
+     * через индекс счетов по владельцу. Диапазон срока действия индексом не покрывается:
+     * диапазон и порядок по id в одном B-дереве несовместимы, поэтому строки читаются в порядке id
+     * и отбрасываются по дате, и узкий диапазон может просмотреть большую часть таблицы.
+     *
+     * @param filter фильтры поиска
+     * @param afterId id последней карты предыдущей страницы (0 для первой страницы)
+     * @param limit максимальное количество карт
+     * @return проекции карт, отсортированные по id
+     */
+    List<CardView> searchPage(CardSearchFilter filter, long afterId, int limit);
+}
@@ -0,0 +1,227 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardStatus;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Реализация {@link CardRepositoryCustom} на JdbcTemplate.
+ * Условные списания с нескольких карт отправляются одним пакетом JDBC
+ * вместо отдельного запроса на каждую карту. Строки в пакетах изменяются в порядке
+ * возрастания id, чтобы встречные переводы не блокировали друг друга взаимно в БД. Новые карты вставляются
+ * пакетом по той же причине, что и проводки в {@link TransferEntryRepositoryImpl}:
+ * id карт генерируются БД (IDENTITY), и Hibernate не объединяет такие вставки в пакеты.
+ * Условные запросы изменяют только активные карты: статус проверяется в том же UPDATE,
+ * поэтому блокировка или истечение карты, зафиксированные после чтения ее баланса,
+ * не пропускают списание или зачисление.
+ * Поиск карт и массовая смена статуса собирают SQL только из заданных фильтров: условия вида
+ * {@code (? IS NULL OR ...)} не позволяют БД выбрать индекс под конкретный набор фильтров.
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public class CardRepositoryImpl implements CardRepositoryCustom {
+
+    private static final String DEBIT_SQL =
+            "UPDATE bank_cards SET balance = balance - ?, version = version + 1"
+                    + " WHERE id = ? AND balance >= ? AND status = 'ACTIVE'";
+
+    private static final String ADJUST_SQL =
+            "UPDATE bank_cards SET balance = balance + ?, version = version + 1"
+                    + " WHERE id = ? AND balance + ? >= 0 AND status = 'ACTIVE'";
+
+    private static final String INSERT_SQL = """
+            INSERT INTO bank_cards (card_number, card_bin, card_last4, account_id, expiration_date, status, balance, version)
+            VALUES (?, ?, ?, ?, ?, ?, ?, 0)
+            """;
+
+    private static final String SEARCH_SQL = """
+            SELECT c.id, c.card_number, c.card_last4, a.user_id, c.expiration_date, c.balance, c.status
+            FROM bank_cards c JOIN accounts a ON a.id = c.account_id
+            WHERE c.id > ?
+            """;
+
+    private static final String UPDATE_STATUS_SQL = """
+            UPDATE bank_cards SET status = ?, version = version + 1
+            WHERE status <> ? AND status <> 'EXPIRED'
+            """;
+
+    private static final RowMapper<CardView> CARD_VIEW_MAPPER = (rs, rowNum) -> new CardView(
+            rs.getLong("id"),
+            rs.getString("card_number"),
+            rs.getString("card_last4"),
+            rs.getLong("user_id"),
+            rs.getDate("expiration_date").toLocalDate(),
+            rs.getLong("balance"),
+            CardStatus.valueOf(rs.getString("status")));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CardRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public boolean debitAll(long[] cardIds, long[] amounts, int count) {
+        if (count == 0) {
+            return true;
+        }
+
+        int[] order = IntStream.range(0, count)
+                .boxed()
+                .sorted(Comparator.comparingLong(i -> cardIds[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        int[] updated = jdbcTemplate.batchUpdate(DEBIT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setLong(1, amounts[order[i]]);
+                ps.setLong(2, cardIds[order[i]]);
+                ps.setLong(3, amounts[order[i]]);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return count;
+            }
+        });
+
+        for (int rows : updated) {
+            if (rows != 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int moveBalance(Long fromCardId, long debit, Long toCardId, long credit) {
+        long[] ids = fromCardId < toCardId ? new long[]{fromCardId, toCardId} : new long[]{toCardId, fromCardId};
+        long[] deltas = fromCardId < toCardId ? new long[]{-debit, credit} : new long[]{credit, -debit};
+
+        int[] updated = jdbcTemplate.batchUpdate(ADJUST_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setLong(1, deltas[i]);
+                ps.setLong(2, ids[i]);
+                ps.setLong(3, deltas[i]);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return ids.length;
+            }
+        });
+
+        return updated[0] + updated[1];
+    }
+
+    @Override
+    public List<Long> insertAll(List<NewCardRow> cards) {
+        if (cards.isEmpty()) {
+            return List.of();
+        }
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        NewCardRow card = cards.get(i);
+                        ps.setString(1, card.encryptedCardNumber());
+                        ps.setString(2, card.cardBin());
+                        ps.setString(3, card.cardLast4());
+                        ps.setLong(4, card.accountId());
+                        ps.setDate(5, Date.valueOf(card.expirationDate()));
+                        ps.setString(6, CardStatus.ACTIVE.name());
+                        ps.setLong(7, card.balance());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return cards.size();
+                    }
+                },
+                keyHolder);
+
+        List<Long> ids = new ArrayList<>(cards.size());
+        for (Map<String, Object> keys : keyHolder.getKeyList()) {
+            ids.add(((Number) keys.values().iterator().next()).longValue());
+        }
+        return ids;
+    }
+
+    @Override
+    public int updateStatusWhere(CardStatus status, Long userId, Long accountId, String binFrom, String binTo) {
+        StringBuilder sql = new StringBuilder(UPDATE_STATUS_SQL);
+        List<Object> args = new ArrayList<>();
+        args.add(status.name());
+        args.add(status.name());
+
+        if (status == CardStatus.ACTIVE) {
+            sql.append(" AND expiration_date >= CURRENT_DATE");
+        }
+        if (accountId != null) {
+            sql.append(" AND account_id = ?");
+            args.add(accountId);
+        }
+        if (userId != null) {
+            sql.append(" AND account_id IN (SELECT id FROM accounts WHERE user_id = ?)");
+            args.add(userId);
+        }
+        if (binFrom != null) {
+            sql.append(" AND card_bin >= ?");
+            args.add(binFrom);
+        }
+        if (binTo != null) {
+            sql.append(" AND card_bin <= ?");
+            args.add(binTo);
+        }
+
+        return jdbcTemplate.update(sql.toString(), args.toArray());
+    }
+
+    @Override
+    public List<CardView> searchPage(CardSearchFilter filter, long afterId, int limit) {
+        StringBuilder sql = new StringBuilder(SEARCH_SQL);
+        List<Object> args = new ArrayList<>();
+        args.add(afterId);
+
+        if (filter.last4() != null) {
+            sql.append(" AND c.card_last4 = ?");
+            args.add(filter.last4());
+        }
+        if (filter.status() != null) {
+            sql.append(" AND c.status = ?");
+            args.add(filter.status().name());
+        }
+        if (filter.ownerId() != null) {
+            sql.append(" AND a.user_id = ?");
+            args.add(filter.ownerId());
+        }
+        if (filter.expiresFrom() != null) {
+            sql.append(" AND c.expiration_date >= ?");
+            args.add(Date.valueOf(filter.expiresFrom()));
+        }
+        if (filter.expiresTo() != null) {
+            sql.append(" AND c.expiration_date <= ?");
+            args.add(Date.valueOf(filter.expiresTo()));
+        }
+        sql.append(" ORDER BY c.id FETCH FIRST ? ROWS ONLY");
+        args.add(limit);
+
+        return jdbcTemplate.query(sql.toString(), CARD_VIEW_MAPPER, args.toArray());
+    }
+}
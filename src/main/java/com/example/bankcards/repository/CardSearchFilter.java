@@ -0,0 +1,24 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardStatus;
+
+import java.time.LocalDate;
+
+/**
+ * Фильтры поиска карт администратором. Пустые (null) фильтры не применяются.
+ *
+ * @param last4 последние 4 цифры номера карты
+ * @param status статус карты
+ * @param ownerId идентификатор владельца счета карты
+ * @param expiresFrom минимальная дата окончания срока действия включительно
+ * @param expiresTo максимальная дата окончания срока действия включительно
+ * @see CardRepositoryCustom#searchPage(CardSearchFilter, long, int)
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public record CardSearchFilter(String last4,
+                               CardStatus status,
+                               Long ownerId,
+                               LocalDate expiresFrom,
+                               LocalDate expiresTo) {
+}
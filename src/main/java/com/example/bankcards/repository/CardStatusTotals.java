@@ -0,0 +1,16 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardStatus;
+
+/**
+ * Агрегат карт пользователя по одному статусу: количество и суммарный баланс.
+ * Считается группировкой на стороне БД.
+ *
+ * @param status статус карт
+ * @param count количество карт в статусе
+ * @param balance суммарный баланс карт в копейках
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public record CardStatusTotals(CardStatus status, long count, long balance) {
+}
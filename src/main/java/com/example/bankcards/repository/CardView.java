@@ -0,0 +1,28 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardStatus;
+
+import java.time.LocalDate;
+
+/**
+ * Проекция карты с полями, необходимыми для CardDTO.
+ * Загружается без создания управляемых сущностей счета, владельца и роли.
+ *
+ * @param id идентификатор карты
+ * @param encryptedCardNumber зашифрованный номер карты
+ * @param cardLast4 последние 4 цифры номера карты
+ * @param ownerId идентификатор владельца счета карты
+ * @param expirationDate дата окончания срока действия
+ * @param balance баланс карты в копейках
+ * @param status статус карты
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public record CardView(Long id,
+                       String encryptedCardNumber,
+                       String cardLast4,
+                       Long ownerId,
+                       LocalDate expirationDate,
+                       long balance,
+                       CardStatus status) {
+}
@@ -0,0 +1,69 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Репозиторий сохраненных результатов запросов с ключом идемпотентности.
+ * Наследует стандартные методы JpaRepository для сущности IdempotencyRecord с идентификатором Long.
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    /**
+     * Ищет результат запроса, сохраненный позже указанного момента.
+     * Более старые записи считаются истекшими, даже если еще не удалены из таблицы.
+     *
+     * @param userId         идентификатор пользователя
+     * @param idempotencyKey ключ идемпотентности
+     * @param cutoff         момент, после которого запись должна быть создана
+     * @return найденная запись или пустой Optional
+     */
+    Optional<IdempotencyRecord> findByUserIdAndIdempotencyKeyAndCreatedAtAfter(Long userId,
+                                                                               String idempotencyKey,
+                                                                               LocalDateTime cutoff);
+
+    /**
+     * Удаляет истекшую запись с указанным ключом, чтобы ключ можно было использовать повторно
+     * до очередной периодической очистки. Выполняется в текущей транзакции.
+     *
+     * @param userId         идентификатор пользователя
+     * @param idempotencyKey ключ идемпотентности
+     * @param cutoff         момент, до которого запись считается истекшей
+     * @return количество удаленных записей
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            DELETE FROM IdempotencyRecord r
+            WHERE r.userId = :userId AND r.idempotencyKey = :idempotencyKey AND r.createdAt <= :cutoff
+            """)
+    int deleteExpiredKey(@Param("userId") Long userId,
+                         @Param("idempotencyKey") String idempotencyKey,
+                         @Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * Удаляет запись с указанным ключом независимо от ее возраста.
+     *
+     * @param userId         идентификатор пользователя
+     * @param idempotencyKey ключ идемпотентности
+     * @return количество удаленных записей
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.userId = :userId AND r.idempotencyKey = :idempotencyKey")
+    int deleteByKey(@Param("userId") Long userId, @Param("idempotencyKey") String idempotencyKey);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :cutoff")
+    int deleteCreatedBefore(LocalDateTime cutoff);
+}
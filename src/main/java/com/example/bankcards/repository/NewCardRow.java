@@ -0,0 +1,19 @@
+package com.example.bankcards.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Данные новой карты для пакетной вставки. Карта создается в статусе ACTIVE.
+ *
+ * @param accountId идентификатор счета карты
+ * @param encryptedCardNumber зашифрованный номер карты
+ * @param cardBin BIN карты (первые 6 цифр номера)
+ * @param cardLast4 последние 4 цифры номера карты
+ * @param expirationDate дата окончания срока действия
+ * @param balance начальный баланс карты в копейках
+ * @see CardRepositoryCustom#insertAll(java.util.List)
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public record NewCardRow(Long accountId, String encryptedCardNumber, String cardBin, String cardLast4, LocalDate expirationDate, long balance) {
+}
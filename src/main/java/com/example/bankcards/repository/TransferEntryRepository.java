@@ -0,0 +1,26 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.TransferEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Репозиторий журнала переводов.
+ * Проводки только добавляются, изменение и удаление не предусмотрены.
+ * Наследует стандартные методы JpaRepository для сущности TransferEntry с идентификатором Long.
+ * <p>
+ * Журнал не заменяет баланс счета: {@code accounts.balance} остается источником истины
+ * для проверки достаточности средств. Списание проверяет и уменьшает баланс одним условным
+ * UPDATE, без чтения в приложении, а вычисление баланса суммой проводок потребовало бы
+ * блокировать счет на время чтения журнала. Поле {@code balance_after} берется из строки
+ * счета, уже измененной и заблокированной той же транзакцией, поэтому журнал сверяется
+ * с балансами: начальный баланс плюс сумма проводок равен текущему.
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public interface TransferEntryRepository extends JpaRepository<TransferEntry, Long>, TransferEntryRepositoryCustom {
+
+    List<TransferEntry> findByTransferIdOrderById(UUID transferId);
+}
@@ -0,0 +1,36 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.TransferEntry;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Дополнительные операции журнала переводов, не выражаемые через JpaRepository.
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public interface TransferEntryRepositoryCustom {
+
+    /**
+     * Добавляет проводки в журнал одним пакетом JDBC.
+     * Выполняется в текущей транзакции.
+     *
+     * @param entries проводки для добавления (не может быть null)
+     */
+    void appendAll(List<TransferEntry> entries);
+
+    /**
+     * Добавляет пару проводок перевода одним пакетом JDBC, беря баланс после проводки
+     * из текущего состояния счетов. Вызывается в той же транзакции после изменения
+     * балансов счетов.
+     *
+     * @param transferId идентификатор перевода
+     * @param fromAccountId идентификатор счета списания
+     * @param toAccountId идентификатор счета зачисления
+     * @param amount сумма перевода в копейках
+     * @param createdAt время перевода
+     */
+    void appendTransfer(UUID transferId, Long fromAccountId, Long toAccountId, long amount, LocalDateTime createdAt);
+}
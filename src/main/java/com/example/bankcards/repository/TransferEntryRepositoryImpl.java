@@ -0,0 +1,65 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.EntryDirection;
+import com.example.bankcards.entity.TransferEntry;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Реализация {@link TransferEntryRepositoryCustom} на JdbcTemplate.
+ * <p>
+ * Идентификаторы проводок генерируются БД (IDENTITY), из-за чего Hibernate
+ * не может объединять их вставку в пакеты. Поэтому проводки вставляются
+ * напрямую через {@link JdbcTemplate#batchUpdate}.
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public class TransferEntryRepositoryImpl implements TransferEntryRepositoryCustom {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO transfer_entries (transfer_id, account_id, direction, amount, balance_after, created_at)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String INSERT_WITH_BALANCE_SQL = """
+            INSERT INTO transfer_entries (transfer_id, account_id, direction, amount, balance_after, created_at)
+            SELECT ?, a.id, ?, ?, a.balance, ? FROM accounts a WHERE a.id = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TransferEntryRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void appendAll(List<TransferEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setObject(1, entry.getTransferId());
+            ps.setLong(2, entry.getAccountId());
+            ps.setString(3, entry.getDirection().name());
+            ps.setLong(4, entry.getAmount());
+            ps.setLong(5, entry.getBalanceAfter());
+            ps.setTimestamp(6, Timestamp.valueOf(entry.getCreatedAt()));
+        });
+    }
+
+    @Override
+    public void appendTransfer(UUID transferId, Long fromAccountId, Long toAccountId, long amount, LocalDateTime createdAt) {
+        Timestamp timestamp = Timestamp.valueOf(createdAt);
+        List<Object[]> rows = List.of(
+                new Object[]{transferId, EntryDirection.DEBIT.name(), amount, timestamp, fromAccountId},
+                new Object[]{transferId, EntryDirection.CREDIT.name(), amount, timestamp, toAccountId}
+        );
+
+        jdbcTemplate.batchUpdate(INSERT_WITH_BALANCE_SQL, rows);
+    }
+}
@@ -1,8 +1,11 @@
 package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -12,6 +15,30 @@ import java.util.Optional;
  * @author Vsevolod Batyrov
  */
 public interface UserRepository extends JpaRepository<User, Long> {
+
+    /**
+     * Ищет пользователя по логину вместе с ролью: роль нужна для authorities
+     * и JWT, а связь {@code role} ленивая.
+     */
+    @EntityGraph(attributePaths = "role")
     Optional<User> findByUsername(String username);
+
+    /**
+     * Ищет пользователя по идентификатору вместе с ролью одним запросом.
+     *
+     * @since 1.2.0
+     */
+    @EntityGraph(attributePaths = "role")
+    Optional<User> findWithRoleById(Long id);
+
+    /**
+     * Возвращает всех пользователей вместе с ролями одним запросом.
+     *
+     * @since 1.2.0
+     */
+    @EntityGraph(attributePaths = "role")
+    @Query("SELECT u FROM User u ORDER BY u.id")
+    List<User> findAllWithRole();
+
     boolean existsByUsername(String username);
 }
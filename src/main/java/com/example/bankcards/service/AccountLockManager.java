@@ -0,0 +1,181 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.exception.TransferLockTimeoutException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Менеджер блокировок счетов внутри JVM.
+ * <p>
+ * Счета распределяются по фиксированному набору полос (stripes) по хешу id.
+ * Переводы, затрагивающие разные счета, как правило попадают в разные полосы
+ * и выполняются параллельно, а переводы по одному и тому же счету сериализуются.
+ * Полосы всегда захватываются в порядке возрастания индекса, поэтому
+ * взаимные блокировки между переводами невозможны.
+ * <p>
+ * Публикует метрики:
+ * <ul>
+ *   <li>{@code transfer.lock.wait} — время ожидания захвата полос, включая неудачные попытки
+ *       (тег {@code outcome}: {@code acquired} или {@code timeout})</li>
+ *   <li>{@code transfer.lock.contended} — количество захватов, которым пришлось ждать</li>
+ *   <li>{@code transfer.lock.timeouts} — количество превышений времени ожидания</li>
+ * </ul>
+ *
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+@Component
+public class AccountLockManager {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    private final long timeoutMs;
+
+    private final Timer acquiredWaitTimer;
+    private final Timer timedOutWaitTimer;
+    private final Counter contendedCounter;
+    private final Counter timeoutCounter;
+
+    /**
+     * Конструктор с внедрением настроек и реестра метрик.
+     *
+     * @param stripeCount   желаемое количество полос (округляется вверх до степени двойки)
+     * @param timeoutMs     максимальное время ожидания захвата всех полос в миллисекундах
+     * @param meterRegistry реестр метрик
+     */
+    public AccountLockManager(@Value("${transfer.locks.stripes:1024}") int stripeCount,
+                              @Value("${transfer.locks.timeout-ms:5000}") long timeoutMs,
+                              MeterRegistry meterRegistry) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Количество полос должно быть положительным");
+        }
+
+        int size = Integer.highestOneBit(stripeCount);
+        if (size < stripeCount) {
+            size <<= 1;
+        }
+
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+        this.timeoutMs = timeoutMs;
+
+        this.acquiredWaitTimer = Timer.builder("transfer.lock.wait")
+                .tag("outcome", "acquired")
+                .description("Время ожидания блокировок счетов")
+                .register(meterRegistry);
+        this.timedOutWaitTimer = Timer.builder("transfer.lock.wait")
+                .tag("outcome", "timeout")
+                .description("Время ожидания блокировок счетов")
+                .register(meterRegistry);
+        this.contendedCounter = Counter.builder("transfer.lock.contended")
+                .description("Количество захватов блокировок счетов с ожиданием")
+                .register(meterRegistry);
+        this.timeoutCounter = Counter.builder("transfer.lock.timeouts")
+                .description("Количество превышений времени ожидания блокировок счетов")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Захватывает блокировки всех указанных счетов.
+     * Полосы захватываются в порядке возрастания индекса, повторы исключаются.
+     *
+     * @param accountIds идентификаторы счетов (не может быть null)
+     * @return дескриптор, освобождающий блокировки при закрытии
+     * @throws TransferLockTimeoutException если блокировки не удалось получить за отведенное время
+     */
+    public LockHandle lock(Collection<Long> accountIds) {
+        int[] indexes = accountIds.stream()
+                .mapToInt(this::stripeIndex)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        boolean contended = false;
+        int acquired = 0;
+
+        try {
+            for (int index : indexes) {
+                ReentrantLock stripe = stripes[index];
+                if (!stripe.tryLock()) {
+                    contended = true;
+                    long remaining = deadline - System.nanoTime();
+                    if (!stripe.tryLock(remaining, TimeUnit.NANOSECONDS)) {
+                        timeoutCounter.increment();
+                        throw new TransferLockTimeoutException();
+                    }
+                }
+                acquired++;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TransferLockTimeoutException();
+        } finally {
+            boolean success = acquired == indexes.length;
+            if (!success) {
+                unlock(indexes, acquired);
+            }
+            (success ? acquiredWaitTimer : timedOutWaitTimer)
+                    .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+
+        if (contended) {
+            contendedCounter.increment();
+        }
+
+        return new LockHandle(indexes);
+    }
+
+    /**
+     * Вычисляет индекс полосы для счета.
+     *
+     * @param accountId идентификатор счета (не может быть null)
+     * @return индекс полосы
+     */
+    int stripeIndex(Long accountId) {
+        int hash = Long.hashCode(accountId);
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * Освобождает первые {@code count} захваченных полос в обратном порядке.
+     */
+    private void unlock(int[] indexes, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            stripes[indexes[i]].unlock();
+        }
+    }
+
+    /**
+     * Дескриптор захваченных блокировок.
+     * Должен закрываться в том же потоке, в котором был получен.
+     */
+    public final class LockHandle implements AutoCloseable {
+
+        private final int[] indexes;
+        private boolean released;
+
+        private LockHandle(int[] indexes) {
+            this.indexes = indexes;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                unlock(indexes, indexes.length);
+            }
+        }
+    }
+}
@@ -7,7 +7,11 @@ import com.example.bankcards.exception.AccountNotFoundException;
 import com.example.bankcards.exception.UserNotFoundException;
 import com.example.bankcards.repository.AccountRepository;
 import com.example.bankcards.repository.UserRepository;
+import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+
+import static com.example.bankcards.util.MoneyUtils.fromMinorUnits;
 import static com.example.bankcards.util.SecurityUtils.getCurrentUserId;
 
 /**
@@ -24,6 +28,7 @@ import static com.example.bankcards.util.SecurityUtils.getCurrentUserId;
  * @since 1.1.0
  * @author Vsevolod Batyrov
  */
+@Service
 public class AccountService {
 
     private final AccountRepository accountRepository;
@@ -48,12 +53,12 @@ public class AccountService {
      */
     public AccountDTO createAccount() {
         Long userId = getCurrentUserId();
-        User user = userRepository.findByUserId(userId)
+        User user = userRepository.findById(userId)
                 .orElseThrow(() -> new UserNotFoundException(userId));
 
         Account account = new Account();
         account.setUser(user);
-        account.setBalance(0d);
+        account.setBalance(0L);
 
         accountRepository.save(account);
 
@@ -66,15 +71,15 @@ public class AccountService {
      * @return DTO созданной карты
      * @throws UserNotFoundException если пользователь не найден
      */
-    public Double checkAccount() {
+    public BigDecimal checkAccount() {
         Long userId = getCurrentUserId();
-        User user = userRepository.findByUserId(userId)
+        User user = userRepository.findById(userId)
                 .orElseThrow(() -> new UserNotFoundException(userId));
 
         Account account = accountRepository.findByUserId(userId)
                 .orElseThrow(() -> new AccountNotFoundException(userId));
 
-        return account.getBalance();
+        return fromMinorUnits(account.getBalance());
 
     }
 
@@ -105,7 +110,7 @@ public class AccountService {
         return new AccountDTO(
                 account.getId(),
                 account.getUser().getId(),
-                account.getBalance()
+                fromMinorUnits(account.getBalance())
         );
     }
 
@@ -0,0 +1,413 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BatchTransferItemResultDTO;
+import com.example.bankcards.dto.BatchTransferResponseDTO;
+import com.example.bankcards.dto.TransferRequestDTO;
+import com.example.bankcards.dto.TransferResponseDTO;
+import com.example.bankcards.dto.TransferStatusDTO;
+import com.example.bankcards.exception.IdempotencyKeyConflictException;
+import com.example.bankcards.exception.InvalidIdempotencyKeyException;
+import com.example.bankcards.exception.InvalidTransferAmountException;
+import com.example.bankcards.exception.TransferConflictException;
+import com.example.bankcards.exception.TransferLockTimeoutException;
+import com.example.bankcards.exception.TransferNotFoundException;
+import com.example.bankcards.exception.TransferQueueFullException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.bankcards.util.SecurityUtils.getCurrentUserId;
+
+/**
+ * Сервис асинхронных переводов.
+ * <p>
+ * Перевод проверяется, помещается в ограниченную очередь и сразу подтверждается
+ * идентификатором. Рабочие потоки забирают переводы из очереди пакетами
+ * (до {@code transfer.async.batch-size} штук) и выполняют каждый пакет одной
+ * транзакцией через {@link TransferService#transferPending(List)}. Если пакет
+ * целиком не удалось выполнить (например, из-за таймаута блокировок),
+ * его переводы выполняются по одному.
+ * <p>
+ * Запрос с ключом идемпотентности регистрируется в {@link IdempotencyStore} до постановки
+ * в очередь, поэтому повтор с тем же ключом не ставит второй перевод, а возвращает
+ * текущий статус исходного.
+ * <p>
+ * Статусы принятых переводов хранятся в памяти. Количество ожидающих переводов ограничено
+ * очередью. Итоговые статусы хранятся в кэше не дольше {@code transfer.async.status-ttl-ms}
+ * после завершения и не больше {@code transfer.async.status-max-size} штук, поэтому
+ * переводы, статус которых никто не запрашивает, не накапливаются в памяти. Статус
+ * успешного перевода после вытеснения восстанавливается из журнала проводок, статус
+ * неуспешного — нет: по истечении срока такой перевод считается не найденным.
+ * <p>
+ * При остановке приложения рабочие потоки дожидаются не дольше
+ * {@code transfer.async.shutdown-timeout-ms}. Переводы, оставшиеся в очереди, получают статус
+ * FAILED, а их ключи идемпотентности освобождаются, чтобы повтор с тем же ключом поставил
+ * перевод заново. Если приложение завершилось аварийно и ключ остался зарегистрированным,
+ * повтор с ним возвращает FAILED: перевода нет ни в памяти, ни в журнале проводок, значит,
+ * он не выполнялся.
+ * <p>
+ * Публикует метрики:
+ * <ul>
+ *   <li>{@code transfer.async.queue.size} — количество переводов в очереди</li>
+ *   <li>{@code transfer.async.rejected} — количество переводов, отклоненных из-за переполнения очереди</li>
+ *   <li>{@code transfer.async.batch.size} — размер выполняемых пакетов</li>
+ * </ul>
+ *
+ * @see TransferService
+ * @see PendingTransfer
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+@Service
+public class AsyncTransferService {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncTransferService.class);
+
+    private static final long POLL_TIMEOUT_MS = 100;
+    private static final String INTERNAL_ERROR = "Не удалось выполнить перевод";
+    private static final String NOT_EXECUTED = "Перевод не был выполнен";
+
+    private final TransferService transferService;
+    private final IdempotencyStore idempotencyStore;
+    private final BlockingQueue<PendingTransfer> queue;
+    private final int workerCount;
+    private final int batchSize;
+    private final long shutdownTimeoutMs;
+
+    private final Map<UUID, TrackedTransfer> pending = new ConcurrentHashMap<>();
+    private final Cache<UUID, TrackedTransfer> completed;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    private final Counter rejectedCounter;
+    private final DistributionSummary batchSizeSummary;
+
+    /**
+     * Конструктор с внедрением зависимостей и настроек.
+     *
+     * @param transferService   сервис выполнения переводов
+     * @param idempotencyStore  хранилище ключей идемпотентности
+     * @param queueCapacity     максимальное количество переводов в очереди
+     * @param workerCount       количество рабочих потоков
+     * @param batchSize         максимальное количество переводов в одном пакете
+     * @param statusTtlMs       время хранения статуса завершенного перевода в миллисекундах
+     * @param statusMaxSize     максимальное количество хранимых статусов завершенных переводов
+     * @param shutdownTimeoutMs максимальное время ожидания рабочих потоков при остановке в миллисекундах
+     * @param meterRegistry     реестр метрик
+     */
+    public AsyncTransferService(TransferService transferService,
+                                IdempotencyStore idempotencyStore,
+                                @Value("${transfer.async.queue-capacity:10000}") int queueCapacity,
+                                @Value("${transfer.async.workers:4}") int workerCount,
+                                @Value("${transfer.async.batch-size:100}") int batchSize,
+                                @Value("${transfer.async.status-ttl-ms:600000}") long statusTtlMs,
+                                @Value("${transfer.async.status-max-size:100000}") long statusMaxSize,
+                                @Value("${transfer.async.shutdown-timeout-ms:30000}") long shutdownTimeoutMs,
+                                MeterRegistry meterRegistry) {
+        if (workerCount <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Количество потоков и размер пакета должны быть положительными");
+        }
+
+        this.transferService = transferService;
+        this.idempotencyStore = idempotencyStore;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.workerCount = workerCount;
+        this.batchSize = batchSize;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(statusMaxSize)
+                .expireAfterWrite(Duration.ofMillis(statusTtlMs))
+                .build();
+
+        Gauge.builder("transfer.async.queue.size", queue, BlockingQueue::size)
+                .description("Количество переводов в очереди")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("transfer.async.rejected")
+                .description("Количество переводов, отклоненных из-за переполнения очереди")
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("transfer.async.batch.size")
+                .description("Размер пакетов асинхронных переводов")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Запускает рабочие потоки.
+     */
+    @PostConstruct
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::drainLoop, "transfer-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    /**
+     * Останавливает рабочие потоки.
+     * Переводы, уже принятые в очередь, выполняются до завершения потоков, но ожидание
+     * ограничено {@code transfer.async.shutdown-timeout-ms}. Переводы, которые так и не
+     * были взяты из очереди, получают статус FAILED, а их ключи идемпотентности освобождаются.
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(shutdownTimeoutMs);
+        for (Thread worker : workers) {
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMs <= 0) {
+                break;
+            }
+            try {
+                worker.join(remainingMs);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        long alive = workers.stream().filter(Thread::isAlive).count();
+        if (alive > 0) {
+            log.warn("Рабочие потоки переводов не завершились за {} мс: активных потоков {}, переводов в очереди {}",
+                    shutdownTimeoutMs, alive, queue.size());
+        }
+        workers.clear();
+
+        List<PendingTransfer> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        if (!abandoned.isEmpty()) {
+            log.warn("Переводы не выполнены до остановки и отмечены как FAILED: {}", abandoned.size());
+        }
+        for (PendingTransfer transfer : abandoned) {
+            abandon(transfer);
+        }
+    }
+
+    /**
+     * Отмечает перевод, не взятый из очереди, как невыполненный и освобождает его ключ идемпотентности.
+     */
+    private void abandon(PendingTransfer transfer) {
+        TrackedTransfer tracked = pending.get(transfer.transferId());
+        if (tracked != null && tracked.idempotencyKey() != null) {
+            try {
+                idempotencyStore.forget(tracked.userId(), tracked.idempotencyKey());
+            } catch (RuntimeException ex) {
+                log.warn("Не удалось освободить ключ идемпотентности перевода {}", transfer.transferId(), ex);
+            }
+        }
+        track(transfer, new TransferStatusDTO(transfer.transferId(), "FAILED", null, NOT_EXECUTED));
+    }
+
+    /**
+     * Принимает перевод к асинхронному выполнению.
+     *
+     * @param dto данные перевода (не может быть null)
+     * @return {@link TransferStatusDTO} со статусом PENDING и идентификатором перевода
+     * @throws InvalidTransferAmountException если сумма перевода некорректна
+     * @throws TransferQueueFullException если очередь переводов заполнена
+     */
+    public TransferStatusDTO submit(TransferRequestDTO dto) {
+        return submit(dto, null);
+    }
+
+    /**
+     * Принимает перевод к асинхронному выполнению с защитой от повторной постановки.
+     * <p>
+     * Если перевод с таким ключом уже принимался, новый перевод не ставится в очередь,
+     * а возвращается текущий статус исходного (как при запросе {@link #getStatus(UUID)}).
+     * Ключ регистрируется до постановки в очередь; если очередь заполнена, регистрация
+     * отменяется, и повтор с тем же ключом снова пытается поставить перевод.
+     *
+     * @param dto данные перевода (не может быть null)
+     * @param idempotencyKey ключ идемпотентности клиента (null — без защиты от повторов)
+     * @return {@link TransferStatusDTO} со статусом принятого перевода
+     * @throws InvalidTransferAmountException если сумма перевода некорректна
+     * @throws InvalidIdempotencyKeyException если ключ пустой или длиннее 64 символов
+     * @throws IdempotencyKeyConflictException если ключ уже использован с другими данными перевода
+     * @throws TransferQueueFullException если очередь переводов заполнена
+     */
+    public TransferStatusDTO submit(TransferRequestDTO dto, String idempotencyKey) {
+        long amount = TransferService.toMinorAmount(dto);
+
+        Long currentUserId = getCurrentUserId();
+        UUID transferId = UUID.randomUUID();
+        TransferStatusDTO accepted = new TransferStatusDTO(transferId, "PENDING", null, null);
+
+        String fingerprint = null;
+        if (idempotencyKey != null) {
+            TransferService.checkIdempotencyKey(idempotencyKey);
+            fingerprint = "async:" + dto.fromAccountId() + ":" + dto.toAccountId() + ":" + amount;
+
+            Optional<TransferStatusDTO> replayed = replay(currentUserId, idempotencyKey, fingerprint);
+            if (replayed.isPresent()) {
+                return replayed.get();
+            }
+        }
+
+        // Статус появляется до регистрации ключа: повтор, увидевший ключ, всегда найдет и статус
+        pending.put(transferId, new TrackedTransfer(currentUserId, accepted, idempotencyKey));
+
+        if (idempotencyKey != null) {
+            TransferResponseDTO registration = new TransferResponseDTO(transferId, dto.fromAccountId(),
+                    dto.toAccountId(), dto.amount(), LocalDateTime.now(), "PENDING");
+            try {
+                idempotencyStore.save(currentUserId, idempotencyKey, fingerprint, registration);
+            } catch (DataIntegrityViolationException ex) {
+                pending.remove(transferId);
+                return replay(currentUserId, idempotencyKey, fingerprint).orElseThrow(() -> ex);
+            }
+            idempotencyStore.remember(currentUserId, idempotencyKey, fingerprint, registration);
+        }
+
+        if (!queue.offer(new PendingTransfer(transferId, currentUserId, dto))) {
+            pending.remove(transferId);
+            if (idempotencyKey != null) {
+                idempotencyStore.forget(currentUserId, idempotencyKey);
+            }
+            rejectedCounter.increment();
+            throw new TransferQueueFullException();
+        }
+
+        return accepted;
+    }
+
+    /**
+     * Возвращает статус перевода текущего пользователя.
+     * Если статус уже удален из памяти, перевод ищется в журнале проводок.
+     *
+     * @param transferId идентификатор перевода (не может быть null)
+     * @return {@link TransferStatusDTO} с текущим статусом перевода
+     * @throws TransferNotFoundException если перевод не найден или принадлежит другому пользователю
+     */
+    public TransferStatusDTO getStatus(UUID transferId) {
+        // Рабочий поток сначала сохраняет итоговый статус, затем удаляет ожидающий,
+        // поэтому при чтении в обратном порядке статус не теряется
+        TrackedTransfer tracked = pending.get(transferId);
+        if (tracked == null) {
+            tracked = completed.getIfPresent(transferId);
+        }
+        if (tracked == null) {
+            return new TransferStatusDTO(transferId, "SUCCESS", transferService.findTransfer(transferId), null);
+        }
+
+        if (!tracked.userId().equals(getCurrentUserId())) {
+            throw new TransferNotFoundException(transferId);
+        }
+
+        return tracked.status();
+    }
+
+    /**
+     * Возвращает текущий статус перевода, ранее принятого с тем же ключом идемпотентности.
+     * Перевод, которого нет ни в памяти, ни в журнале проводок, не выполнялся: например,
+     * приложение завершилось, пока он ждал в очереди. Для него возвращается статус FAILED.
+     */
+    private Optional<TransferStatusDTO> replay(Long userId, String idempotencyKey, String fingerprint) {
+        return idempotencyStore.find(userId, idempotencyKey, fingerprint)
+                .map(registration -> {
+                    try {
+                        return getStatus(registration.transferId());
+                    } catch (TransferNotFoundException ex) {
+                        return new TransferStatusDTO(registration.transferId(), "FAILED", null, NOT_EXECUTED);
+                    }
+                });
+    }
+
+    /**
+     * Цикл рабочего потока: забирает переводы из очереди пакетами, пока сервис запущен
+     * или в очереди остаются переводы.
+     */
+    private void drainLoop() {
+        List<PendingTransfer> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            PendingTransfer first;
+            try {
+                first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (first == null) {
+                continue;
+            }
+
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+            batchSizeSummary.record(batch.size());
+
+            processBatch(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Выполняет пакет переводов и сохраняет их итоговые статусы.
+     */
+    private void processBatch(List<PendingTransfer> batch) {
+        try {
+            complete(batch, transferService.transferPending(batch));
+        } catch (RuntimeException ex) {
+            for (PendingTransfer transfer : batch) {
+                try {
+                    complete(List.of(transfer), transferService.transferPending(List.of(transfer)));
+                } catch (TransferLockTimeoutException | TransferConflictException itemEx) {
+                    track(transfer, new TransferStatusDTO(transfer.transferId(), "FAILED", null, itemEx.getMessage()));
+                } catch (RuntimeException itemEx) {
+                    log.error("Не удалось выполнить асинхронный перевод {}", transfer.transferId(), itemEx);
+                    track(transfer, new TransferStatusDTO(transfer.transferId(), "FAILED", null, INTERNAL_ERROR));
+                }
+            }
+        }
+    }
+
+    private void complete(List<PendingTransfer> batch, BatchTransferResponseDTO response) {
+        for (BatchTransferItemResultDTO result : response.results()) {
+            PendingTransfer transfer = batch.get(result.index());
+            track(transfer, new TransferStatusDTO(
+                    transfer.transferId(), result.status(), result.transfer(), result.error()));
+        }
+    }
+
+    private void track(PendingTransfer transfer, TransferStatusDTO status) {
+        completed.put(transfer.transferId(), new TrackedTransfer(transfer.userId(), status, null));
+        pending.remove(transfer.transferId());
+    }
+
+    /**
+     * Статус перевода в памяти.
+     *
+     * @param userId идентификатор пользователя, инициировавшего перевод
+     * @param status текущий статус перевода
+     * @param idempotencyKey ключ идемпотентности ожидающего перевода (null — без ключа или перевод завершен)
+     */
+    private record TrackedTransfer(Long userId, TransferStatusDTO status, String idempotencyKey) {
+    }
+}
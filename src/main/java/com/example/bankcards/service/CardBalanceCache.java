@@ -0,0 +1,152 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Ограниченный кэш балансов карт в памяти: по id карты хранит баланс и id владельца,
+ * которых достаточно для ответа на запрос баланса карты.
+ * <p>
+ * При промахе запись загружается проекцией карты через {@link Cache#get}, поэтому
+ * одновременные запросы одной карты читают БД один раз. Сервисы, изменяющие карту,
+ * вызывают {@link #evictAfterCompletion(Collection)} (массовые операции —
+ * {@link #evictAllAfterCompletion()}): записи удаляются сразу после
+ * завершения транзакции, до возврата ответа клиенту. Удаление ключа дожидается
+ * загрузки этого же ключа, начатой параллельно, поэтому значение, прочитанное до
+ * фиксации, не остается в кэше.
+ * <p>
+ * Удаление записей локально для экземпляра приложения: баланс, измененный другим
+ * экземпляром или в обход сервисов, в кэше не обновляется. Поэтому каждая запись живет
+ * не дольше {@code cards.balance-cache.ttl-ms}, а сам кэш включается настройкой
+ * {@code cards.balance-cache.enabled} только при развертывании в одном экземпляре
+ * и по умолчанию выключен: тогда баланс всегда читается из БД.
+ * <p>
+ * Размер кэша задается свойством {@code cards.balance-cache.max-size}, метрики
+ * попаданий, промахов и вытеснений публикуются под именем {@code card.balance}.
+ *
+ * @see CardService#getCardBalance(Long)
+ * @see TransferService
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+@Component
+public class CardBalanceCache {
+
+    private final CardRepository cardRepository;
+    private final boolean enabled;
+    private final Cache<Long, CachedBalance> cache;
+
+    /**
+     * Конструктор с внедрением зависимостей и настроек.
+     *
+     * @param cardRepository репозиторий карт
+     * @param enabled        кэшировать ли балансы (только для развертывания в одном экземпляре)
+     * @param maxSize        максимальное количество карт в кэше
+     * @param ttlMs          максимальное время жизни записи в миллисекундах
+     * @param meterRegistry  реестр метрик
+     */
+    public CardBalanceCache(CardRepository cardRepository,
+                            @Value("${cards.balance-cache.enabled:false}") boolean enabled,
+                            @Value("${cards.balance-cache.max-size:100000}") long maxSize,
+                            @Value("${cards.balance-cache.ttl-ms:5000}") long ttlMs,
+                            MeterRegistry meterRegistry) {
+        this.cardRepository = cardRepository;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "card.balance");
+    }
+
+    /**
+     * Возвращает баланс и владельца карты из кэша, при промахе загружает их из БД.
+     * Отсутствующие карты не кэшируются. Если кэш выключен, карта всегда читается из БД.
+     *
+     * @param cardId идентификатор карты
+     * @return баланс и владелец карты или пустой Optional, если карта не найдена
+     */
+    public Optional<CachedBalance> find(Long cardId) {
+        if (!enabled) {
+            return Optional.ofNullable(load(cardId));
+        }
+        return Optional.ofNullable(cache.get(cardId, this::load));
+    }
+
+    /**
+     * Удаляет записи карт после завершения текущей транзакции, как при фиксации, так и при откате.
+     * Вне транзакции записи удаляются сразу.
+     *
+     * @param cardIds идентификаторы измененных карт
+     */
+    public void evictAfterCompletion(Collection<Long> cardIds) {
+        if (!enabled || cardIds.isEmpty()) {
+            return;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.invalidateAll(cardIds);
+            return;
+        }
+
+        List<Long> ids = List.copyOf(cardIds);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                cache.invalidateAll(ids);
+            }
+        });
+    }
+
+    /**
+     * Очищает кэш целиком после завершения текущей транзакции, как при фиксации, так и при откате.
+     * Используется массовыми операциями, после которых id измененных карт неизвестны.
+     * Вне транзакции кэш очищается сразу.
+     */
+    public void evictAllAfterCompletion() {
+        if (!enabled) {
+            return;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.invalidateAll();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                cache.invalidateAll();
+            }
+        });
+    }
+
+    private CachedBalance load(Long cardId) {
+        return cardRepository.findViewById(cardId)
+                .map(card -> new CachedBalance(card.ownerId(), card.balance()))
+                .orElse(null);
+    }
+
+    /**
+     * Баланс карты и ее владелец.
+     *
+     * @param ownerId идентификатор владельца карты
+     * @param balance баланс карты в копейках
+     */
+    public record CachedBalance(Long ownerId, long balance) {
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.bankcards.service;
+
+/**
+ * Стратегия распределения суммы списания по картам счета.
+ * <p>
+ * Распределение вычисляется целиком в памяти над балансами карт,
+ * после чего применяется к картам одним пакетом изменений.
+ * Реализация выбирается настройкой {@code transfer.card-allocation}.
+ *
+ * @see SequentialCardDebitAllocator
+ * @see FewestCardsDebitAllocator
+ * @see LargestBalanceFirstDebitAllocator
+ * @see SpreadEvenlyDebitAllocator
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public interface CardDebitAllocator {
+
+    /**
+     * Распределяет сумму списания по картам.
+     * <p>
+     * Сумма списаний равна {@code amount}, если его покрывает общий баланс карт,
+     * иначе — общему балансу карт. Списание с карты не превышает ее баланс.
+     *
+     * @param balances балансы активных карт с положительным балансом в копейках,
+     *                 в порядке возрастания id карты (массив не изменяется)
+     * @param amount   сумма списания в копейках
+     * @return суммы списания в копейках по тем же индексам, что и {@code balances}
+     */
+    long[] allocate(long[] balances, long amount);
+}
@@ -1,13 +1,11 @@
 package com.example.bankcards.service;
 
-import com.example.bankcards.entity.Card;
-import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.repository.CardRepository;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.util.List;
 
 /**
  * Сервис для проверки и обработки просроченных банковских карт.
@@ -19,30 +17,29 @@ import java.util.List;
 public class CardExpirationChecker {
 
     private final CardRepository cardRepository;
+    private final CardSetVersions cardSetVersions;
 
     /**
-     * Конструктор с внедрением зависимости CardRepository.
+     * Конструктор с внедрением зависимостей CardRepository и CardSetVersions.
      *
      * @param cardRepository репозиторий для работы с картами
+     * @param cardSetVersions версии наборов карт пользователей для ETag
      */
-    public CardExpirationChecker(CardRepository cardRepository) {
+    public CardExpirationChecker(CardRepository cardRepository, CardSetVersions cardSetVersions) {
         this.cardRepository = cardRepository;
+        this.cardSetVersions = cardSetVersions;
     }
 
     /**
-     * Проверяет и помечает просроченные карты как EXPIRED.
-     * Запускается ежедневно в полночь по cron-расписанию.
+     * Помечает все карты с истекшим сроком, включая заблокированные, как EXPIRED одним условным запросом UPDATE.
+     * Запускается ежедневно в полночь по cron-расписанию. Если хотя бы одна карта
+     * истекла, ETag списков карт всех пользователей меняется.
      */
     @Scheduled(cron = "0 0 0 * * ?")
+    @Transactional
     public void checkAndExpireCards() {
-        List<Card> activeCards = cardRepository.findByStatus(CardStatus.ACTIVE);
-        LocalDate today = LocalDate.now();
-
-        for (Card card : activeCards) {
-            if (card.getExpirationDate() != null && card.getExpirationDate().isBefore(today)) {
-                card.setStatus(CardStatus.EXPIRED);
-                cardRepository.save(card);
-            }
+        if (cardRepository.expireAllBefore(LocalDate.now()) > 0) {
+            cardSetVersions.bumpAllAfterCommit();
         }
     }
 }
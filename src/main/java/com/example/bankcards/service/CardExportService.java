@@ -0,0 +1,99 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardDTO;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardView;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Сервис выгрузки всех карт в формате NDJSON (одна карта в формате JSON на строку).
+ * <p>
+ * Карты читаются проекциями {@link CardView} потоком {@link CardRepository#streamAll()}
+ * из курсора JDBC и сразу записываются в выходной поток. Управляемые сущности
+ * не создаются, а вывод сбрасывается каждые {@code cards.export.chunk-size} карт,
+ * поэтому расход памяти не зависит от количества карт в таблице.
+ *
+ * @see CardRepository#streamAll()
+ * @see CardService
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+@Service
+public class CardExportService {
+
+    private final CardRepository cardRepository;
+    private final CardService cardService;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+    private final int chunkSize;
+
+    /**
+     * Конструктор с внедрением зависимостей и настроек.
+     *
+     * @param cardRepository репозиторий карт
+     * @param cardService    сервис карт, преобразующий карты в CardDTO
+     * @param objectMapper   сериализатор карт
+     * @param chunkSize      количество карт, после которого сбрасывается вывод
+     */
+    public CardExportService(CardRepository cardRepository,
+                             CardService cardService,
+                             ObjectMapper objectMapper,
+                             @Value("${cards.export.chunk-size:1000}") int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Размер порции должен быть положительным");
+        }
+
+        this.cardRepository = cardRepository;
+        this.cardService = cardService;
+        this.objectMapper = objectMapper;
+        this.writer = objectMapper.writerFor(CardDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Записывает все карты в выходной поток в порядке возрастания id.
+     * Номера карт маскируются по тем же правилам, что и в {@link CardService#toDTOs(java.util.List)}.
+     *
+     * @param out выходной поток (не закрывается)
+     * @return количество выгруженных карт
+     * @throws UncheckedIOException если запись в выходной поток не удалась
+     */
+    @Transactional(readOnly = true)
+    public long exportAll(OutputStream out) {
+        boolean maskNumbers = cardService.shouldMaskNumbers();
+        long exported = 0;
+
+        try (Stream<CardView> cards = cardRepository.streamAll();
+             JsonGenerator generator = objectMapper.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            Iterator<CardView> iterator = cards.iterator();
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, cardService.toDTO(iterator.next(), maskNumbers));
+                generator.writeRaw('\n');
+
+                if (++exported % chunkSize == 0) {
+                    generator.flush();
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        return exported;
+    }
+}
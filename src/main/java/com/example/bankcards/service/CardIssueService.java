@@ -0,0 +1,182 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BulkCardIssueItemDTO;
+import com.example.bankcards.dto.BulkCardIssueRequestDTO;
+import com.example.bankcards.dto.BulkCardIssueResponseDTO;
+import com.example.bankcards.dto.CardDTO;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.exception.InvalidBulkIssueRequestException;
+import com.example.bankcards.repository.AccountIssueView;
+import com.example.bankcards.repository.AccountRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardView;
+import com.example.bankcards.repository.NewCardRow;
+import com.example.bankcards.util.CardNumberUtils;
+import com.example.bankcards.util.EncryptionUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.example.bankcards.util.CardNumberGenerator.generateCardNumber;
+
+/**
+ * Сервис массового выпуска карт администратором.
+ * <p>
+ * Счета выбираются списком id или фильтром (счета без активных карт), блокируются
+ * ({@code SELECT ... FOR UPDATE} в порядке возрастания id) и читаются одним запросом
+ * проекций {@link AccountIssueView}. Блокировка нужна, чтобы решение о начальном балансе
+ * карты принималось по актуальному набору карт: параллельный выпуск для того же счета
+ * ждет фиксации и видит уже выпущенную активную карту. Номера карт генерируются
+ * и шифруются параллельно на всех ядрах, а карты вставляются одним пакетом JDBC
+ * ({@link CardRepository#insertAll(List)}) в одной транзакции.
+ * <p>
+ * Начальный баланс карты определяется так же, как при выпуске карты пользователем
+ * ({@link CardService#createCard()}): если на счете нет активных карт, карта получает
+ * весь баланс счета, иначе — 0. При выборе фильтром обрабатывается не больше
+ * {@code cards.bulk-issue.filter-limit} счетов; повторный запрос продолжит с оставшихся,
+ * так как счета с выпущенными картами фильтру уже не соответствуют.
+ *
+ * @see CardService
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+@Service
+public class CardIssueService {
+
+    private final AccountRepository accountRepository;
+    private final CardRepository cardRepository;
+    private final CardService cardService;
+    private final CardSetVersions cardSetVersions;
+    private final int filterLimit;
+
+    /**
+     * Конструктор с внедрением зависимостей и настроек.
+     *
+     * @param accountRepository репозиторий счетов
+     * @param cardRepository    репозиторий карт
+     * @param cardService       сервис карт, преобразующий карты в CardDTO
+     * @param cardSetVersions   версии наборов карт пользователей для ETag
+     * @param filterLimit       максимальное количество счетов, выбираемых фильтром за запрос
+     */
+    public CardIssueService(AccountRepository accountRepository,
+                            CardRepository cardRepository,
+                            CardService cardService,
+                            CardSetVersions cardSetVersions,
+                            @Value("${cards.bulk-issue.filter-limit:1000}") int filterLimit) {
+        if (filterLimit <= 0) {
+            throw new IllegalArgumentException("Лимит фильтра должен быть положительным");
+        }
+
+        this.accountRepository = accountRepository;
+        this.cardRepository = cardRepository;
+        this.cardService = cardService;
+        this.cardSetVersions = cardSetVersions;
+        this.filterLimit = filterLimit;
+    }
+
+    /**
+     * Выпускает по одной карте на каждый выбранный счет.
+     *
+     * @param request счета или фильтр для выпуска карт
+     * @return результаты по счетам в порядке запроса
+     * @throws InvalidBulkIssueRequestException если не заданы ни счета, ни фильтр
+     */
+    @Transactional
+    public BulkCardIssueResponseDTO issueCards(BulkCardIssueRequestDTO request) {
+        boolean withoutActiveCardsOnly = Boolean.TRUE.equals(request.withoutActiveCardsOnly());
+
+        List<Long> accountIds;
+        if (request.accountIds() == null || request.accountIds().isEmpty()) {
+            if (!withoutActiveCardsOnly) {
+                throw new InvalidBulkIssueRequestException();
+            }
+            accountIds = accountRepository.findIssueViewsWithoutActiveCards(Limit.of(filterLimit)).stream()
+                    .map(AccountIssueView::id)
+                    .toList();
+        } else {
+            accountIds = List.copyOf(new LinkedHashSet<>(request.accountIds()));
+        }
+
+        Map<Long, AccountIssueView> accounts = Map.of();
+        if (!accountIds.isEmpty() && !accountRepository.lockAllById(accountIds).isEmpty()) {
+            accounts = accountRepository.findIssueViewsByIdIn(accountIds).stream()
+                    .collect(Collectors.toMap(AccountIssueView::id, Function.identity()));
+        }
+
+        List<AccountIssueView> targets = new ArrayList<>(accountIds.size());
+        for (Long accountId : accountIds) {
+            AccountIssueView account = accounts.get(accountId);
+            if (account != null && !(withoutActiveCardsOnly && account.hasActiveCard())) {
+                targets.add(account);
+            }
+        }
+
+        String[] cardNumbers = new String[targets.size()];
+        String[] cardBins = new String[targets.size()];
+        String[] cardLast4s = new String[targets.size()];
+        IntStream.range(0, cardNumbers.length)
+                .parallel()
+                .forEach(i -> {
+                    String cardNumber = generateCardNumber();
+                    cardNumbers[i] = EncryptionUtil.encrypt(cardNumber);
+                    cardBins[i] = CardNumberUtils.bin(cardNumber);
+                    cardLast4s[i] = CardNumberUtils.last4(cardNumber);
+                });
+
+        LocalDate expirationDate = LocalDate.now().plusYears(3);
+        List<NewCardRow> rows = new ArrayList<>(targets.size());
+        for (int i = 0; i < targets.size(); i++) {
+            AccountIssueView account = targets.get(i);
+            rows.add(new NewCardRow(account.id(), cardNumbers[i], cardBins[i], cardLast4s[i], expirationDate,
+                    account.hasActiveCard() ? 0L : account.balance()));
+        }
+        List<Long> cardIds = cardRepository.insertAll(rows);
+        cardSetVersions.bumpAfterCommit(targets.stream().map(AccountIssueView::userId).collect(Collectors.toSet()));
+
+        List<CardView> views = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            NewCardRow row = rows.get(i);
+            views.add(new CardView(cardIds.get(i), row.encryptedCardNumber(), row.cardLast4(), targets.get(i).userId(),
+                    row.expirationDate(), row.balance(), CardStatus.ACTIVE));
+        }
+
+        boolean maskNumbers = cardService.shouldMaskNumbers();
+        List<CardDTO> cards = views.parallelStream()
+                .map(view -> cardService.toDTO(view, maskNumbers))
+                .toList();
+
+        Map<Long, CardDTO> cardsByAccount = new HashMap<>(cards.size());
+        for (int i = 0; i < cards.size(); i++) {
+            cardsByAccount.put(targets.get(i).id(), cards.get(i));
+        }
+
+        List<BulkCardIssueItemDTO> results = new ArrayList<>(accountIds.size());
+        int skipped = 0;
+        int failed = 0;
+        for (Long accountId : accountIds) {
+            CardDTO card = cardsByAccount.get(accountId);
+            if (card != null) {
+                results.add(new BulkCardIssueItemDTO(accountId, "ISSUED", card, null));
+            } else if (accounts.containsKey(accountId)) {
+                results.add(new BulkCardIssueItemDTO(accountId, "SKIPPED", null, "У счета уже есть активная карта."));
+                skipped++;
+            } else {
+                results.add(new BulkCardIssueItemDTO(accountId, "FAILED", null, "Счет не найден."));
+                failed++;
+            }
+        }
+
+        return new BulkCardIssueResponseDTO(cards.size(), skipped, failed, results);
+    }
+}
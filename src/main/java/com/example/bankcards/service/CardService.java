@@ -1,27 +1,46 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.BulkCardStatusRequestDTO;
+import com.example.bankcards.dto.BulkCardStatusResponseDTO;
 import com.example.bankcards.dto.CardDTO;
+import com.example.bankcards.dto.CardPageDTO;
+import com.example.bankcards.dto.CardSummaryDTO;
 import com.example.bankcards.entity.Account;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
-import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.AccessDeniedException;
 import com.example.bankcards.exception.AccountNotFoundException;
 import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.exception.IllegalCardStatusTransitionException;
+import com.example.bankcards.exception.InvalidBulkStatusRequestException;
+import com.example.bankcards.exception.InvalidCardSearchRequestException;
+import com.example.bankcards.exception.InvalidPageCursorException;
 import com.example.bankcards.repository.AccountRepository;
 import com.example.bankcards.repository.CardRepository;
-import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.repository.CardSearchFilter;
+import com.example.bankcards.repository.CardStatusTotals;
+import com.example.bankcards.repository.CardView;
 import com.example.bankcards.util.EncryptionUtil;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Optional;
 
 import static com.example.bankcards.util.CardNumberGenerator.generateCardNumber;
+import static com.example.bankcards.util.MoneyUtils.fromMinorUnits;
 import static com.example.bankcards.util.SecurityUtils.getCurrentUserId;
+import static com.example.bankcards.util.SecurityUtils.hasCurrentUserRole;
 
 /**
  * Сервис для работы с банковскими картами.
@@ -30,7 +49,7 @@ import static com.example.bankcards.util.SecurityUtils.getCurrentUserId;
  * <ul>
  *   <li>Создание новых карт</li>
  *   <li>Поиск карт пользователя</li>
- *   <li>Блокировка карты</li>
+ *   <li>Блокировка карты и массовая смена статуса карт</li>
  *   <li>Маскировка номера карты</li>
  * </ul>
  *
@@ -43,45 +62,68 @@ import static com.example.bankcards.util.SecurityUtils.getCurrentUserId;
 public class CardService {
 
     private final CardRepository cardRepository;
-    private final UserRepository userRepository;
     private final AccountRepository accountRepository;
+    private final CardBalanceCache balanceCache;
+    private final CardSetVersions cardSetVersions;
+    private final int defaultPageSize;
+    private final int maxPageSize;
 
+    /**
+     * @param cardRepository    репозиторий карт
+     * @param accountRepository репозиторий счетов
+     * @param balanceCache      кэш балансов карт
+     * @param cardSetVersions   версии наборов карт пользователей для ETag
+     * @param defaultPageSize   размер страницы списка карт администратора по умолчанию
+     * @param maxPageSize       максимальный размер страницы списка карт администратора
+     */
     public CardService(CardRepository cardRepository,
-                       UserRepository userRepository,
-                       AccountRepository accountRepository) {
+                       AccountRepository accountRepository,
+                       CardBalanceCache balanceCache,
+                       CardSetVersions cardSetVersions,
+                       @Value("${cards.admin-page.default-size:50}") int defaultPageSize,
+                       @Value("${cards.admin-page.max-size:500}") int maxPageSize) {
+        if (defaultPageSize <= 0 || maxPageSize < defaultPageSize) {
+            throw new IllegalArgumentException("Размеры страницы должны удовлетворять условию 0 < default-size <= max-size");
+        }
+
         this.cardRepository = cardRepository;
-        this.userRepository = userRepository;
         this.accountRepository = accountRepository;
+        this.balanceCache = balanceCache;
+        this.cardSetVersions = cardSetVersions;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
     }
 
     /**
      * Создает новую банковскую карту для текущего пользователя.
-     * Если у пользователя нет действующих карт, то весь баланс счета появится на ней.
-     * В противном случае баланс будет равен 0.
+     * На карту переносится свободный остаток счета — часть баланса, не лежащая
+     * на активных и заблокированных картах. Строка счета блокируется до конца транзакции,
+     * как и при массовом выпуске в {@link CardIssueService}, поэтому параллельно созданные
+     * карты не получают один и тот же остаток.
      *
      * @return DTO созданной карты
      * @throws EntityNotFoundException если пользователь не найден
      * @throws AccountNotFoundException если у пользователя нет счета
      */
+    @Transactional
     public CardDTO createCard() {
         Long userId = getCurrentUserId();
         Account account = accountRepository.findByUserId(userId)
                 .orElseThrow(() -> new AccountNotFoundException(userId));
+        accountRepository.lockAllById(List.of(account.getId()));
+        long freeBalance = accountRepository.findFreeBalanceById(account.getId())
+                .orElseThrow(() -> new AccountNotFoundException(userId));
 
         Card card = new Card();
         card.setAccount(account);
-        card.setEncryptedCardNumber(EncryptionUtil.encrypt(generateCardNumber()));
+        card.setCardNumber(generateCardNumber());
         card.setExpirationDate(LocalDate.now().plusYears(3));
 
-        if(hasUserActiveCards(userId)){
-            card.setBalance(0d);
-        }else{
-            card.setBalance(account.getBalance());
-        }
-
+        card.setBalance(Math.max(freeBalance, 0L));
         card.setStatus(CardStatus.ACTIVE);
 
         cardRepository.save(card);
+        cardSetVersions.bumpAfterCommit(List.of(userId));
 
         return toDTO(card);
     }
@@ -94,27 +136,80 @@ public class CardService {
     public List<CardDTO> getCardsForCurrentUser() {
         Long userId = getCurrentUserId();
 
-        List<Card> cards = cardRepository.findByUserId(userId);
+        List<CardView> cards = cardRepository.findViewsByUserId(userId);
 
         if (cards.isEmpty()) {
             return Collections.emptyList();
         }
 
-        return cards.stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return toDTOs(cards);
     }
 
     /**
-     * Блокирует карту по id.
+     * Возвращает ETag списка карт текущего пользователя без обращения к БД.
+     * ETag меняется после каждого выпуска, блокировки, истечения срока карты
+     * пользователя и перевода с участием его счета.
+     *
+     * @return ETag списка карт или пустой Optional, если выдача ETag выключена
+     * @see CardSetVersions
+     */
+    public Optional<String> getCardsETagForCurrentUser() {
+        if (!cardSetVersions.isEnabled()) {
+            return Optional.empty();
+        }
+        return Optional.of(cardSetVersions.etagFor(getCurrentUserId()));
+    }
+
+    /**
+     * Блокирует активную карту по id одним условным запросом UPDATE без загрузки карты.
+     * Если карта уже заблокирована, просрочена или ее статус одновременно изменила другая
+     * операция, запрос не меняет строк; только тогда отдельно проверяется, существует ли карта.
+     * Владелец карты читается узким запросом после успешной блокировки и только при
+     * включенных версиях списков карт.
      *
      * @param cardId id карты
+     * @throws CardNotFoundException если карта не найдена
+     * @throws IllegalCardStatusTransitionException если карта не активна
      */
+    @Transactional
     public void blockCard(Long cardId) {
-        Card card = cardRepository.findById(cardId)
-                .orElseThrow(() -> new CardNotFoundException(cardId));
-        card.setStatus(CardStatus.BLOCKED);
-        cardRepository.save(card);
+        if (cardRepository.compareAndSetStatus(cardId, CardStatus.ACTIVE, CardStatus.BLOCKED) == 0) {
+            if (!cardRepository.existsById(cardId)) {
+                throw new CardNotFoundException(cardId);
+            }
+            throw new IllegalCardStatusTransitionException(cardId, CardStatus.BLOCKED);
+        }
+
+        balanceCache.evictAfterCompletion(List.of(cardId));
+        if (cardSetVersions.isEnabled()) {
+            cardRepository.findOwnerIdById(cardId)
+                    .ifPresent(ownerId -> cardSetVersions.bumpAfterCommit(List.of(ownerId)));
+        }
+    }
+
+    /**
+     * Меняет статус всех карт, подходящих под фильтры запроса, одним запросом UPDATE
+     * без загрузки карт. Просроченные карты не изменяются, в том числе карты с истекшим
+     * сроком, которые еще не переведены в EXPIRED. Кэш балансов очищается
+     * целиком после завершения транзакции.
+     *
+     * @param request новый статус и фильтры карт
+     * @return установленный статус и количество измененных карт
+     * @throws InvalidBulkStatusRequestException если не задан ни один фильтр или статус не ACTIVE/BLOCKED
+     */
+    @Transactional
+    public BulkCardStatusResponseDTO updateStatuses(BulkCardStatusRequestDTO request) {
+        boolean hasFilter = request.userId() != null || request.accountId() != null
+                || request.binFrom() != null || request.binTo() != null;
+        if (!hasFilter || request.status() == CardStatus.EXPIRED) {
+            throw new InvalidBulkStatusRequestException();
+        }
+
+        int updated = cardRepository.updateStatusWhere(request.status(), request.userId(), request.accountId(),
+                request.binFrom(), request.binTo());
+        balanceCache.evictAllAfterCompletion();
+        cardSetVersions.bumpAllAfterCommit();
+        return new BulkCardStatusResponseDTO(request.status(), updated);
     }
 
     /**
@@ -126,63 +221,213 @@ public class CardService {
      * @see #maskCardNumber(String)
      */
     public CardDTO toDTO(Card card) {
-        String decryptedNumber = EncryptionUtil.decrypt(card.getEncryptedCardNumber());
-        User currentUser = userRepository.findById(getCurrentUserId())
-                .orElseThrow(() -> new EntityNotFoundException("Пользователь не найден"));
-
-        String displayNumber = currentUser.getRole().toString().equals("ROLE_USER")
-                ? decryptedNumber
-                : maskCardNumber(decryptedNumber);
-
-        return new CardDTO(
+        CardView view = new CardView(
                 card.getId(),
-                displayNumber,
+                card.getEncryptedCardNumber(),
+                card.getCardLast4(),
                 card.getAccount().getUser().getId(),
                 card.getExpirationDate(),
                 card.getBalance(),
                 card.getStatus()
         );
+        return toDTO(view, shouldMaskNumbers());
+    }
+
+    /**
+     * Конвертирует проекции карт в CardDTO.
+     * Роль текущего пользователя определяется один раз на весь список.
+     *
+     * @param cards проекции карт для конвертации (не может быть null)
+     * @return список CardDTO в порядке исходного списка
+     * @see #toDTO(Card)
+     */
+    public List<CardDTO> toDTOs(List<CardView> cards) {
+        boolean maskNumbers = shouldMaskNumbers();
+
+        List<CardDTO> result = new ArrayList<>(cards.size());
+        for (CardView card : cards) {
+            result.add(toDTO(card, maskNumbers));
+        }
+        return result;
+    }
+
+    /**
+     * Определяет по роли текущего пользователя, нужно ли маскировать номера карт.
+     * Владелец видит номер полностью, остальные роли — маскированным.
+     *
+     * @return true если номера нужно маскировать
+     */
+    boolean shouldMaskNumbers() {
+        return !hasCurrentUserRole("ROLE_USER");
+    }
+
+    /**
+     * Конвертирует проекцию карты в CardDTO с заранее определенным режимом маскировки номера.
+     * Маскированный номер строится по открытым последним 4 цифрам, номер расшифровывается
+     * только для показа владельцу.
+     *
+     * @param card проекция карты для конвертации (не может быть null)
+     * @param maskNumber true если номер нужно маскировать
+     * @return новый экземпляр CardDTO
+     */
+    CardDTO toDTO(CardView card, boolean maskNumber) {
+        String displayNumber = maskNumber
+                ? maskCardNumber(card.cardLast4())
+                : EncryptionUtil.decrypt(card.encryptedCardNumber());
+
+        return new CardDTO(
+                card.id(),
+                displayNumber,
+                card.ownerId(),
+                card.expirationDate(),
+                fromMinorUnits(card.balance()),
+                card.status()
+        );
     }
 
     /**
      * Маскирует номер карты, оставляя видимыми только последние 4 цифры.
      *
-     * @param fullNumber полный номер карты (16 цифр, не может быть null или пустым)
+     * @param last4 последние 4 цифры номера карты (не может быть null)
      * @return маскированная строка номера карты
      */
-    private String maskCardNumber(String fullNumber) {
-        int length = fullNumber.length();
-        String last4 = fullNumber.substring(length - 4);
+    private String maskCardNumber(String last4) {
         return "**** **** **** " + last4;
     }
 
     /**
      * Выводит баланс карты, если она принадлежит текущему пользователю.
+     * Баланс читается из {@link CardBalanceCache}, БД запрашивается только при промахе.
      *
      * @param cardId id нужной карты
      * @return баланс карты
      */
-    public Double getCardBalance(Long cardId) {
-        Card card = cardRepository.findById(cardId)
+    public BigDecimal getCardBalance(Long cardId) {
+        CardBalanceCache.CachedBalance card = balanceCache.find(cardId)
                 .orElseThrow(() -> new CardNotFoundException(cardId));
 
         Long currentUserId = getCurrentUserId();
-        if (!card.getAccount().getUser().getId().equals(currentUserId)) {
+        if (!card.ownerId().equals(currentUserId)) {
             throw new AccessDeniedException(cardId);
         }
 
-        return card.getBalance();
+        return fromMinorUnits(card.balance());
+    }
+
+    /**
+     * Возвращает страницу карт всех пользователей для администратора (в маскированном виде).
+     * <p>
+     * Страницы строятся по id карты (keyset-пагинация): каждая следующая страница
+     * читается запросом {@code id > последний id} по индексу, поэтому время ответа
+     * и расход памяти не зависят ни от номера страницы, ни от размера таблицы.
+     * Запрос собирается только из заданных фильтров ({@link CardRepository#searchPage}),
+     * поэтому фильтр по статусу читает индекс {@code (status, id)}, а не весь первичный ключ.
+     * Размер страницы ограничивается настройкой {@code cards.admin-page.max-size}.
+     *
+     * @param cursor курсор из предыдущей страницы (null — первая страница)
+     * @param limit размер страницы (null — {@code cards.admin-page.default-size})
+     * @param status статус карты (null — любой)
+     * @param expiresFrom минимальная дата окончания срока действия включительно (null — без ограничения)
+     * @param expiresTo максимальная дата окончания срока действия включительно (null — без ограничения)
+     * @return страница карт и курсор следующей страницы
+     * @throws InvalidPageCursorException если курсор некорректен
+     */
+    public CardPageDTO getAllCardsForAdmin(String cursor,
+                                           Integer limit,
+                                           CardStatus status,
+                                           LocalDate expiresFrom,
+                                           LocalDate expiresTo) {
+        int pageSize = limit == null ? defaultPageSize : Math.clamp(limit, 1, maxPageSize);
+
+        List<CardView> cards = cardRepository.searchPage(
+                new CardSearchFilter(null, status, null, expiresFrom, expiresTo),
+                decodeCursor(cursor), pageSize + 1);
+
+        return toPage(cards, pageSize);
+    }
+
+    /**
+     * Ищет карты всех пользователей для администратора (в маскированном виде) по последним
+     * 4 цифрам номера, статусу, владельцу и сроку действия.
+     * <p>
+     * Страницы строятся по id карты так же, как в {@link #getAllCardsForAdmin}. Запрос
+     * собирается только из заданных фильтров. Поиск по последним 4 цифрам, статусу и владельцу
+     * идет по индексам; фильтр по сроку действия только отсекает строки, прочитанные в порядке id
+     * (см. {@link CardRepository#searchPage}).
+     *
+     * @param cursor курсор из предыдущей страницы (null — первая страница)
+     * @param limit размер страницы (null — {@code cards.admin-page.default-size})
+     * @param last4 последние 4 цифры номера карты (null — любые)
+     * @param status статус карты (null — любой)
+     * @param ownerId идентификатор владельца (null — любой)
+     * @param expiresFrom минимальная дата окончания срока действия включительно (null — без ограничения)
+     * @param expiresTo максимальная дата окончания срока действия включительно (null — без ограничения)
+     * @return страница карт и курсор следующей страницы
+     * @throws InvalidPageCursorException если курсор некорректен
+     * @throws InvalidCardSearchRequestException если last4 не состоит из 4 цифр
+     */
+    public CardPageDTO searchCardsForAdmin(String cursor,
+                                           Integer limit,
+                                           String last4,
+                                           CardStatus status,
+                                           Long ownerId,
+                                           LocalDate expiresFrom,
+                                           LocalDate expiresTo) {
+        if (last4 != null && !last4.matches("\\d{4}")) {
+            throw new InvalidCardSearchRequestException();
+        }
+        int pageSize = limit == null ? defaultPageSize : Math.clamp(limit, 1, maxPageSize);
+
+        List<CardView> cards = cardRepository.searchPage(
+                new CardSearchFilter(last4, status, ownerId, expiresFrom, expiresTo),
+                decodeCursor(cursor), pageSize + 1);
+
+        return toPage(cards, pageSize);
+    }
+
+    /**
+     * Собирает страницу из карт, прочитанных с запасом в одну карту: если она есть,
+     * страница не последняя и курсор указывает на последнюю карту страницы.
+     */
+    private CardPageDTO toPage(List<CardView> cards, int pageSize) {
+        String nextCursor = null;
+        if (cards.size() > pageSize) {
+            cards = cards.subList(0, pageSize);
+            nextCursor = encodeCursor(cards.getLast().id());
+        }
+
+        return new CardPageDTO(toDTOs(cards), nextCursor);
     }
 
     /**
-     * Возвращает все карты в системе для администратора (в маскированном виде)
+     * Кодирует id последней карты страницы в непрозрачный курсор.
+     */
+    static String encodeCursor(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(lastId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Извлекает id последней карты предыдущей страницы из курсора.
      *
-     * @return список карт
+     * @param cursor курсор (null — первая страница)
+     * @return id, после которого начинается страница
+     * @throws InvalidPageCursorException если курсор некорректен
      */
-    public List<CardDTO> getAllCardsForAdmin() {
-        return cardRepository.findAll().stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+    static long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0L;
+        }
+
+        try {
+            long lastId = Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII));
+            if (lastId < 0) {
+                throw new InvalidPageCursorException();
+            }
+            return lastId;
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidPageCursorException();
+        }
     }
 
     /**
@@ -197,9 +442,33 @@ public class CardService {
             throw new IllegalArgumentException("User ID cannot be null");
         }
 
-        return cardRepository.findByUserId(userId)
-                .stream()
-                .anyMatch(card -> card.getStatus() == CardStatus.ACTIVE);
+        return cardRepository.existsByAccountUserIdAndStatus(userId, CardStatus.ACTIVE);
+    }
+
+    /**
+     * Возвращает сводку по картам текущего пользователя: количество карт
+     * по каждому статусу и суммарный баланс.
+     * Считается одним групповым запросом, карты не загружаются.
+     *
+     * @return сводка по картам текущего пользователя
+     */
+    public CardSummaryDTO getCardSummaryForCurrentUser() {
+        Long userId = getCurrentUserId();
+
+        Map<CardStatus, Long> countsByStatus = new EnumMap<>(CardStatus.class);
+        for (CardStatus status : CardStatus.values()) {
+            countsByStatus.put(status, 0L);
+        }
+
+        long totalCards = 0;
+        long totalBalance = 0;
+        for (CardStatusTotals totals : cardRepository.sumByStatusForUser(userId)) {
+            countsByStatus.put(totals.status(), totals.count());
+            totalCards += totals.count();
+            totalBalance += totals.balance();
+        }
+
+        return new CardSummaryDTO(countsByStatus, totalCards, fromMinorUnits(totalBalance));
     }
 
 }
\ No newline at end of file
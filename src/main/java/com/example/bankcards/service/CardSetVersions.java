@@ -0,0 +1,120 @@
+package com.example.bankcards.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Версии наборов карт пользователей в памяти, по которым строится ETag списка карт.
+ * <p>
+ * Сервисы, изменяющие карты (выпуск, блокировка, истечение срока, перевод), увеличивают
+ * версию владельцев измененных карт после фиксации транзакции, поэтому ETag, выданный
+ * вместе с новыми данными, не может оказаться у старых. Вычисление ETag не обращается к БД.
+ * <p>
+ * Версии хранятся в фиксированном массиве счетчиков ({@code cards.etag.stripes}), счетчик
+ * выбирается по id пользователя: память не растет с числом пользователей, а совпадение
+ * счетчика у двух пользователей приводит лишь к лишней полной выдаче списка. Массовые
+ * операции, после которых владельцы неизвестны, увеличивают общее поколение. В ETag входит
+ * случайная метка запуска, поэтому после перезапуска старые ETag не совпадают с новыми.
+ * <p>
+ * Счетчики локальны для экземпляра приложения: изменение, выполненное другим экземпляром,
+ * их не увеличивает, и клиент получит 304 со старым списком. Поэтому ETag включается
+ * настройкой {@code cards.etag.enabled} только при развертывании в одном экземпляре
+ * и по умолчанию выключен.
+ *
+ * @see CardService#getCardsETagForCurrentUser()
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+@Component
+public class CardSetVersions {
+
+    private final boolean enabled;
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLongArray versions;
+
+    /**
+     * Конструктор с внедрением настроек.
+     *
+     * @param enabled выдавать ли ETag списка карт (только для развертывания в одном экземпляре)
+     * @param stripes количество счетчиков версий
+     */
+    public CardSetVersions(@Value("${cards.etag.enabled:false}") boolean enabled,
+                           @Value("${cards.etag.stripes:65536}") int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Количество полос должно быть положительным");
+        }
+
+        this.enabled = enabled;
+        this.versions = new AtomicLongArray(stripes);
+    }
+
+    /**
+     * Проверяет, включена ли выдача ETag списка карт.
+     *
+     * @return {@code true}, если задано {@code cards.etag.enabled}
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Возвращает ETag текущей версии набора карт пользователя.
+     *
+     * @param userId идентификатор пользователя
+     * @return ETag в кавычках
+     */
+    public String etagFor(Long userId) {
+        return "\"" + userId + "-" + epoch + "-" + generation.get() + "-" + versions.get(stripe(userId)) + "\"";
+    }
+
+    /**
+     * Увеличивает версии наборов карт пользователей после фиксации текущей транзакции.
+     * При откате версии не меняются. Вне транзакции версии увеличиваются сразу.
+     *
+     * @param userIds идентификаторы владельцев измененных карт
+     */
+    public void bumpAfterCommit(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+
+        List<Long> ids = List.copyOf(userIds);
+        afterCommit(() -> ids.forEach(userId -> versions.incrementAndGet(stripe(userId))));
+    }
+
+    /**
+     * Увеличивает версии наборов карт всех пользователей после фиксации текущей транзакции.
+     * Используется массовыми операциями, после которых владельцы измененных карт неизвестны.
+     * Вне транзакции версии увеличиваются сразу.
+     */
+    public void bumpAllAfterCommit() {
+        afterCommit(generation::incrementAndGet);
+    }
+
+    private int stripe(Long userId) {
+        return (int) Math.floorMod(userId, (long) versions.length());
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
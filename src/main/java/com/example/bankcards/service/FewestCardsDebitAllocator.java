@@ -0,0 +1,40 @@
+package com.example.bankcards.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Списывает сумму с наименьшего количества карт
+ * ({@code transfer.card-allocation=fewest-cards}).
+ * <p>
+ * Если сумму покрывает одна карта, используется карта с наименьшим достаточным
+ * балансом, чтобы крупные балансы оставались нетронутыми. Иначе карты используются
+ * в порядке убывания баланса, что дает минимальное количество затронутых карт.
+ *
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+@Component
+@ConditionalOnProperty(name = "transfer.card-allocation", havingValue = "fewest-cards")
+public class FewestCardsDebitAllocator implements CardDebitAllocator {
+
+    @Override
+    public long[] allocate(long[] balances, long amount) {
+        long[] debits = new long[balances.length];
+
+        int best = -1;
+        for (int i = 0; i < balances.length; i++) {
+            if (balances[i] >= amount && (best < 0 || balances[i] < balances[best])) {
+                best = i;
+            }
+        }
+
+        if (best >= 0) {
+            debits[best] = amount;
+        } else {
+            LargestBalanceFirstDebitAllocator.drainLargestFirst(balances, debits, amount);
+        }
+
+        return debits;
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferResponseDTO;
+import com.example.bankcards.entity.IdempotencyRecord;
+import com.example.bankcards.exception.IdempotencyKeyConflictException;
+import com.example.bankcards.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Двухуровневое хранилище результатов переводов с ключом идемпотентности.
+ * <p>
+ * Первый уровень — ограниченный кэш в памяти с вытеснением по времени,
+ * через который проходят повторы сразу после исходного запроса. Второй уровень —
+ * таблица {@code idempotency_keys}: запись в нее выполняется в транзакции перевода,
+ * поэтому результат переживает перезапуск, а уникальный ключ (user_id, idempotency_key)
+ * не дает выполнить перевод дважды при одновременных повторах.
+ * <p>
+ * Результат действует {@code transfer.idempotency.ttl-ms} с момента сохранения: более старые
+ * записи не возвращаются ни из кэша, ни из таблицы, даже если периодическая очистка
+ * еще не удалила их, а повторное использование ключа заменяет истекшую запись.
+ * Метрики кэша публикуются под именем {@code transfer.idempotency}.
+ *
+ * @see IdempotencyRecordRepository
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+@Component
+public class IdempotencyStore {
+
+    private final IdempotencyRecordRepository repository;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Cache<CacheKey, StoredResponse> cache;
+
+    /**
+     * Конструктор с внедрением зависимостей и настроек.
+     *
+     * @param repository    репозиторий сохраненных результатов
+     * @param objectMapper  сериализатор ответов
+     * @param maxSize       максимальное количество результатов в кэше
+     * @param ttlMs         время хранения результата в миллисекундах
+     * @param meterRegistry реестр метрик
+     */
+    public IdempotencyStore(IdempotencyRecordRepository repository,
+                            ObjectMapper objectMapper,
+                            @Value("${transfer.idempotency.cache-size:100000}") long maxSize,
+                            @Value("${transfer.idempotency.ttl-ms:86400000}") long ttlMs,
+                            MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.ttl = Duration.ofMillis(ttlMs);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "transfer.idempotency");
+    }
+
+    /**
+     * Ищет сохраненный результат запроса сначала в кэше, затем в таблице.
+     *
+     * @param userId      идентификатор пользователя
+     * @param key         ключ идемпотентности
+     * @param fingerprint отпечаток данных запроса
+     * @return сохраненный ответ или пустой Optional, если ключ не использовался
+     * @throws IdempotencyKeyConflictException если ключ использован с другими данными запроса
+     */
+    public Optional<TransferResponseDTO> find(Long userId, String key, String fingerprint) {
+        CacheKey cacheKey = new CacheKey(userId, key);
+
+        LocalDateTime cutoff = LocalDateTime.now().minus(ttl);
+
+        StoredResponse stored = cache.getIfPresent(cacheKey);
+        if (stored != null && !stored.createdAt().isAfter(cutoff)) {
+            cache.invalidate(cacheKey);
+            stored = null;
+        }
+        if (stored == null) {
+            stored = repository.findByUserIdAndIdempotencyKeyAndCreatedAtAfter(userId, key, cutoff)
+                    .map(record -> new StoredResponse(record.getRequestFingerprint(),
+                            read(record.getResponseBody()), record.getCreatedAt()))
+                    .orElse(null);
+            if (stored == null) {
+                return Optional.empty();
+            }
+            cache.put(cacheKey, stored);
+        }
+
+        if (!stored.fingerprint().equals(fingerprint)) {
+            throw new IdempotencyKeyConflictException();
+        }
+
+        return Optional.of(stored.response());
+    }
+
+    /**
+     * Сохраняет результат запроса в таблицу в рамках текущей транзакции.
+     * Истекшая запись с тем же ключом предварительно удаляется. При одновременном
+     * повторе ключа вставка завершается нарушением уникальности,
+     * и транзакция откатывается вместе с переводом.
+     *
+     * @param userId      идентификатор пользователя
+     * @param key         ключ идемпотентности
+     * @param fingerprint отпечаток данных запроса
+     * @param response    ответ на запрос
+     */
+    public void save(Long userId, String key, String fingerprint, TransferResponseDTO response) {
+        LocalDateTime now = LocalDateTime.now();
+        repository.deleteExpiredKey(userId, key, now.minus(ttl));
+        repository.save(new IdempotencyRecord(userId, key, fingerprint, write(response), now));
+    }
+
+    /**
+     * Помещает результат зафиксированного запроса в кэш.
+     *
+     * @param userId      идентификатор пользователя
+     * @param key         ключ идемпотентности
+     * @param fingerprint отпечаток данных запроса
+     * @param response    ответ на запрос
+     */
+    public void remember(Long userId, String key, String fingerprint, TransferResponseDTO response) {
+        cache.put(new CacheKey(userId, key), new StoredResponse(fingerprint, response, LocalDateTime.now()));
+    }
+
+    /**
+     * Удаляет сохраненный результат запроса из таблицы и кэша, чтобы ключ можно было
+     * использовать повторно. Применяется, когда принятый запрос не удалось выполнить.
+     *
+     * @param userId идентификатор пользователя
+     * @param key    ключ идемпотентности
+     */
+    public void forget(Long userId, String key) {
+        repository.deleteByKey(userId, key);
+        cache.invalidate(new CacheKey(userId, key));
+    }
+
+    /**
+     * Удаляет из таблицы результаты старше {@code transfer.idempotency.ttl-ms}.
+     */
+    @Scheduled(fixedDelayString = "${transfer.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        repository.deleteCreatedBefore(LocalDateTime.now().minus(ttl));
+    }
+
+    private String write(TransferResponseDTO response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Не удалось сериализовать результат перевода", ex);
+        }
+    }
+
+    private TransferResponseDTO read(String body) {
+        try {
+            return objectMapper.readValue(body, TransferResponseDTO.class);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Не удалось прочитать сохраненный результат перевода", ex);
+        }
+    }
+
+    private record CacheKey(Long userId, String key) {
+    }
+
+    private record StoredResponse(String fingerprint, TransferResponseDTO response, LocalDateTime createdAt) {
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.bankcards.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Списывает сумму начиная с карты с наибольшим балансом.
+ * При равных балансах первой используется карта с меньшим id
+ * ({@code transfer.card-allocation=largest-first}).
+ *
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+@Component
+@ConditionalOnProperty(name = "transfer.card-allocation", havingValue = "largest-first")
+public class LargestBalanceFirstDebitAllocator implements CardDebitAllocator {
+
+    @Override
+    public long[] allocate(long[] balances, long amount) {
+        long[] debits = new long[balances.length];
+        drainLargestFirst(balances, debits, amount);
+        return debits;
+    }
+
+    /**
+     * Списывает сумму с карт в порядке убывания баланса.
+     * Сортировка выполняется по месту над массивом индексов, без упаковки в объекты.
+     *
+     * @return остаток суммы, который не покрыли карты
+     */
+    static long drainLargestFirst(long[] balances, long[] debits, long amount) {
+        int[] order = new int[balances.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+
+        for (int i = 1; i < order.length; i++) {
+            int current = order[i];
+            int j = i - 1;
+            while (j >= 0 && balances[order[j]] < balances[current]) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = current;
+        }
+
+        long remaining = amount;
+        for (int i = 0; i < order.length && remaining > 0; i++) {
+            int index = order[i];
+            debits[index] = Math.min(balances[index], remaining);
+            remaining -= debits[index];
+        }
+
+        return remaining;
+    }
+}
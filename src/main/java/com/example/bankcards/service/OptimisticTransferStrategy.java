@@ -0,0 +1,30 @@
+package com.example.bankcards.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Оптимистичная стратегия: счета и карты читаются без блокировки, а при фиксации
+ * Hibernate проверяет версии измененных строк ({@code @Version}). Если строку
+ * успела изменить другая транзакция, перевод повторяется с новыми данными.
+ * Включается свойством {@code transfer.concurrency=optimistic}.
+ *
+ * @see RetryingTransferStrategy
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+@Component
+@ConditionalOnProperty(name = "transfer.concurrency", havingValue = "optimistic")
+public class OptimisticTransferStrategy extends RetryingTransferStrategy {
+
+    public OptimisticTransferStrategy(TransactionTemplate transactionTemplate,
+                                      @Value("${transfer.retry.max-attempts:5}") int maxAttempts,
+                                      @Value("${transfer.retry.base-delay-ms:5}") long baseDelayMs,
+                                      @Value("${transfer.retry.max-delay-ms:200}") long maxDelayMs,
+                                      MeterRegistry meterRegistry) {
+        super("optimistic", transactionTemplate, maxAttempts, baseDelayMs, maxDelayMs, meterRegistry);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferRequestDTO;
+
+import java.util.UUID;
+
+/**
+ * Перевод, принятый к выполнению, вместе с контекстом, зафиксированным при приеме.
+ * <p>
+ * Идентификатор перевода и пользователь определяются заранее, поэтому перевод
+ * можно выполнить в другом потоке, где контекст безопасности недоступен.
+ *
+ * @param transferId идентификатор перевода, под которым он будет записан в журнал
+ * @param userId идентификатор пользователя, инициировавшего перевод
+ * @param request данные перевода
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public record PendingTransfer(UUID transferId, Long userId, TransferRequestDTO request) {
+}
@@ -0,0 +1,48 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.exception.TransferLockTimeoutException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+
+/**
+ * Пессимистичная стратегия: перед транзакцией захватываются блокировки счетов
+ * в {@link AccountLockManager}, а счета и карты читаются с блокировкой строк.
+ * Конфликты не возникают, переводы по одному счету ожидают друг друга.
+ * Используется по умолчанию ({@code transfer.concurrency=pessimistic}).
+ *
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+@Component
+@ConditionalOnProperty(name = "transfer.concurrency", havingValue = "pessimistic", matchIfMissing = true)
+public class PessimisticTransferStrategy implements TransferConcurrencyStrategy {
+
+    private final AccountLockManager lockManager;
+    private final TransactionTemplate transactionTemplate;
+
+    public PessimisticTransferStrategy(AccountLockManager lockManager, TransactionTemplate transactionTemplate) {
+        this.lockManager = lockManager;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws TransferLockTimeoutException если не удалось дождаться блокировки счетов
+     */
+    @Override
+    public <T> T execute(Collection<Long> accountIds, TransactionCallback<T> action) {
+        try (AccountLockManager.LockHandle ignored = lockManager.lock(accountIds)) {
+            return transactionTemplate.execute(action);
+        }
+    }
+
+    @Override
+    public boolean locksRows() {
+        return true;
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.exception.TransferConflictException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Базовая стратегия без блокировки строк при чтении, повторяющая транзакцию
+ * при конфликте с параллельными изменениями.
+ * <p>
+ * Конфликтом считается любое {@link ConcurrencyFailureException}: устаревшая версия
+ * строки, ошибка сериализации, взаимная блокировка или таймаут блокировки в БД.
+ * Перед повтором выдерживается пауза со случайным разбросом (full jitter):
+ * случайное время от нуля до {@code base-delay-ms * 2^(попытка - 1)},
+ * но не больше {@code max-delay-ms}. После {@code max-attempts} неудачных попыток
+ * выбрасывается {@link TransferConflictException}.
+ * <p>
+ * Публикует метрики с тегом {@code strategy}:
+ * <ul>
+ *   <li>{@code transfer.conflicts} — количество транзакций, прерванных из-за конфликта</li>
+ *   <li>{@code transfer.conflicts.exhausted} — количество переводов, отклоненных после всех попыток</li>
+ * </ul>
+ *
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public abstract class RetryingTransferStrategy implements TransferConcurrencyStrategy {
+
+    private static final int MAX_BACKOFF_SHIFT = 20;
+
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+
+    private final Counter conflictCounter;
+    private final Counter exhaustedCounter;
+
+    /**
+     * Конструктор с настройками повторов.
+     *
+     * @param name                имя стратегии для тега метрик
+     * @param transactionTemplate шаблон транзакции, в которой выполняется каждая попытка
+     * @param maxAttempts         максимальное количество попыток
+     * @param baseDelayMs         базовая пауза перед повтором в миллисекундах
+     * @param maxDelayMs          максимальная пауза перед повтором в миллисекундах
+     * @param meterRegistry       реестр метрик
+     */
+    protected RetryingTransferStrategy(String name,
+                                       TransactionTemplate transactionTemplate,
+                                       int maxAttempts,
+                                       long baseDelayMs,
+                                       long maxDelayMs,
+                                       MeterRegistry meterRegistry) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Количество попыток должно быть положительным");
+        }
+
+        this.transactionTemplate = transactionTemplate;
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+
+        this.conflictCounter = Counter.builder("transfer.conflicts")
+                .tag("strategy", name)
+                .description("Количество транзакций перевода, прерванных из-за конфликта")
+                .register(meterRegistry);
+        this.exhaustedCounter = Counter.builder("transfer.conflicts.exhausted")
+                .tag("strategy", name)
+                .description("Количество переводов, отклоненных после всех попыток")
+                .register(meterRegistry);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws TransferConflictException если все попытки завершились конфликтом
+     */
+    @Override
+    public <T> T execute(Collection<Long> accountIds, TransactionCallback<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(action);
+            } catch (ConcurrencyFailureException ex) {
+                conflictCounter.increment();
+                if (attempt >= maxAttempts) {
+                    exhaustedCounter.increment();
+                    throw new TransferConflictException();
+                }
+                backOff(attempt);
+            }
+        }
+    }
+
+    @Override
+    public boolean locksRows() {
+        return false;
+    }
+
+    /**
+     * Возвращает верхнюю границу паузы перед повтором после указанной попытки.
+     *
+     * @param attempt номер неудачной попытки, начиная с 1
+     * @return граница паузы в миллисекундах
+     */
+    long maxBackoffMs(int attempt) {
+        return Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, MAX_BACKOFF_SHIFT));
+    }
+
+    private void backOff(int attempt) {
+        long delay = ThreadLocalRandom.current().nextLong(maxBackoffMs(attempt) + 1);
+        if (delay == 0) {
+            return;
+        }
+
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TransferConflictException();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.bankcards.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Списывает сумму с карт по порядку: каждая следующая карта используется,
+ * только когда баланс предыдущих исчерпан.
+ * Используется по умолчанию ({@code transfer.card-allocation=sequential}).
+ *
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+@Component
+@ConditionalOnProperty(name = "transfer.card-allocation", havingValue = "sequential", matchIfMissing = true)
+public class SequentialCardDebitAllocator implements CardDebitAllocator {
+
+    @Override
+    public long[] allocate(long[] balances, long amount) {
+        long[] debits = new long[balances.length];
+        long remaining = amount;
+
+        for (int i = 0; i < balances.length && remaining > 0; i++) {
+            debits[i] = Math.min(balances[i], remaining);
+            remaining -= debits[i];
+        }
+
+        return debits;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.bankcards.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Стратегия на уровне изоляции SERIALIZABLE: счета и карты читаются без блокировки,
+ * а БД сама отменяет транзакцию, результат которой расходится с последовательным
+ * выполнением. Отмененный перевод повторяется.
+ * Включается свойством {@code transfer.concurrency=serializable}.
+ *
+ * @see RetryingTransferStrategy
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+@Component
+@ConditionalOnProperty(name = "transfer.concurrency", havingValue = "serializable")
+public class SerializableTransferStrategy extends RetryingTransferStrategy {
+
+    public SerializableTransferStrategy(PlatformTransactionManager transactionManager,
+                                        @Value("${transfer.retry.max-attempts:5}") int maxAttempts,
+                                        @Value("${transfer.retry.base-delay-ms:5}") long baseDelayMs,
+                                        @Value("${transfer.retry.max-delay-ms:200}") long maxDelayMs,
+                                        MeterRegistry meterRegistry) {
+        super("serializable", serializable(transactionManager), maxAttempts, baseDelayMs, maxDelayMs, meterRegistry);
+    }
+
+    private static TransactionTemplate serializable(PlatformTransactionManager transactionManager) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setIsolationLevel(TransactionDefinition.ISOLATION_SERIALIZABLE);
+        return template;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.bankcards.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Распределяет сумму по картам равными долями
+ * ({@code transfer.card-allocation=spread-evenly}).
+ * <p>
+ * Карта, баланс которой меньше своей доли, списывается полностью, а недостающая
+ * часть делится между остальными картами. Копейки, не делящиеся поровну,
+ * списываются с карт с большим балансом.
+ *
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+@Component
+@ConditionalOnProperty(name = "transfer.card-allocation", havingValue = "spread-evenly")
+public class SpreadEvenlyDebitAllocator implements CardDebitAllocator {
+
+    @Override
+    public long[] allocate(long[] balances, long amount) {
+        int count = balances.length;
+        long[] debits = new long[count];
+
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+
+        for (int i = 1; i < count; i++) {
+            int current = order[i];
+            int j = i - 1;
+            while (j >= 0 && balances[order[j]] > balances[current]) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = current;
+        }
+
+        long remaining = amount;
+        for (int i = 0; i < count && remaining > 0; i++) {
+            int index = order[i];
+            long cardsLeft = count - i;
+            long share = remaining / cardsLeft;
+
+            debits[index] = Math.min(balances[index], share);
+            remaining -= debits[index];
+        }
+
+        return debits;
+    }
+}
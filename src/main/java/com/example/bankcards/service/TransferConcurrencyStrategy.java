@@ -0,0 +1,45 @@
+package com.example.bankcards.service;
+
+import org.springframework.transaction.support.TransactionCallback;
+
+import java.util.Collection;
+
+/**
+ * Стратегия управления конкурентным доступом к счетам при переводе.
+ * <p>
+ * Определяет, как защищаются от одновременного изменения счета и карты,
+ * которые перевод читает и изменяет: блокировками строк до чтения
+ * или проверкой конфликта при фиксации с повтором транзакции.
+ * Реализация выбирается свойством {@code transfer.concurrency}:
+ * <ul>
+ *   <li>{@code pessimistic} — {@link PessimisticTransferStrategy} (по умолчанию)</li>
+ *   <li>{@code optimistic} — {@link OptimisticTransferStrategy}</li>
+ *   <li>{@code serializable} — {@link SerializableTransferStrategy}</li>
+ * </ul>
+ *
+ * @see TransferService
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public interface TransferConcurrencyStrategy {
+
+    /**
+     * Выполняет действие в транзакции над указанными счетами.
+     * Действие может быть выполнено несколько раз, поэтому не должно
+     * иметь побочных эффектов вне транзакции.
+     *
+     * @param accountIds идентификаторы затрагиваемых счетов (не может быть null)
+     * @param action действие, выполняемое в транзакции
+     * @param <T> тип результата
+     * @return результат действия
+     */
+    <T> T execute(Collection<Long> accountIds, TransactionCallback<T> action);
+
+    /**
+     * Показывает, нужно ли загружать счета и карты с блокировкой строк
+     * ({@code SELECT ... FOR UPDATE}).
+     *
+     * @return true, если строки блокируются при чтении
+     */
+    boolean locksRows();
+}
@@ -1,23 +1,51 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.BatchTransferItemResultDTO;
+import com.example.bankcards.dto.BatchTransferMode;
+import com.example.bankcards.dto.BatchTransferRequestDTO;
+import com.example.bankcards.dto.BatchTransferResponseDTO;
 import com.example.bankcards.dto.TransferRequestDTO;
 import com.example.bankcards.dto.TransferResponseDTO;
 import com.example.bankcards.entity.Account;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.EntryDirection;
+import com.example.bankcards.entity.TransferEntry;
 import com.example.bankcards.exception.AccountNotFoundException;
 import com.example.bankcards.exception.CardInactiveException;
 import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.exception.IdempotencyKeyConflictException;
 import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.exception.InvalidIdempotencyKeyException;
 import com.example.bankcards.exception.InvalidTransferAmountException;
+import com.example.bankcards.exception.SameAccountTransferException;
+import com.example.bankcards.exception.TransferConflictException;
+import com.example.bankcards.exception.TransferLockTimeoutException;
+import com.example.bankcards.exception.TransferNotFoundException;
 import com.example.bankcards.exception.UnauthorizedCardAccessException;
 import com.example.bankcards.repository.AccountRepository;
+import com.example.bankcards.repository.CardBalanceView;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferEntryRepository;
+import com.example.bankcards.util.MoneyUtils;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.TransactionStatus;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static com.example.bankcards.util.SecurityUtils.getCurrentUserId;
 
@@ -27,11 +55,37 @@ import static com.example.bankcards.util.SecurityUtils.getCurrentUserId;
  * Основные функции:
  * <ul>
  *   <li>Перевод средств между картами</li>
+ *   <li>Защита от повторного выполнения по ключу идемпотентности</li>
+ *   <li>Пакетный перевод в одной транзакции</li>
+ *   <li>Выполнение переводов, принятых асинхронно ({@link PendingTransfer})</li>
+ *   <li>Поиск выполненного перевода по журналу</li>
  *   <li>Проверка перевода на корректность данных</li>
  * </ul>
+ * Одиночный перевод выполняется условными запросами UPDATE без загрузки сущностей:
+ * количество измененных строк показывает, хватило ли средств и принадлежит ли
+ * счет пользователю. Пакетные переводы загружают счета и карты один раз на пакет,
+ * изменяют их в памяти, а UPDATE-запросы отправляются пакетом JDBC
+ * при фиксации транзакции.
+ * <p>
+ * Защита от одновременного изменения счетов определяется стратегией
+ * {@link TransferConcurrencyStrategy}, выбранной свойством {@code transfer.concurrency}:
+ * она задает транзакцию, в которой выполняется перевод, повторы при конфликте
+ * и то, читаются ли счета и карты с блокировкой строк.
+ * <p>
+ * Каждый перевод записывается в журнал {@link TransferEntry} парой проводок
+ * (списание и зачисление) с балансом счета после проводки. Балансы счетов
+ * являются нарастающим итогом по журналу.
+ * <p>
+ * Записи измененных карт удаляются из {@link CardBalanceCache} сразу после
+ * завершения транзакции перевода.
  *
  * @see AccountRepository
  * @see CardRepository
+ * @see TransferEntryRepository
+ * @see TransferConcurrencyStrategy
+ * @see CardDebitAllocator
+ * @see IdempotencyStore
+ * @see CardBalanceCache
  * @see TransferRequestDTO
  * @since 1.0
  * @author Vsevolod Batyrov
@@ -39,13 +93,33 @@ import static com.example.bankcards.util.SecurityUtils.getCurrentUserId;
 @Service
 public class TransferService {
 
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 64;
+
     private final AccountRepository accountRepository;
     private final CardRepository cardRepository;
+    private final TransferEntryRepository transferEntryRepository;
+    private final TransferConcurrencyStrategy concurrencyStrategy;
+    private final CardDebitAllocator cardDebitAllocator;
+    private final IdempotencyStore idempotencyStore;
+    private final CardBalanceCache balanceCache;
+    private final CardSetVersions cardSetVersions;
 
     public TransferService(AccountRepository accountRepository,
-                           CardRepository cardRepository) {
+                           CardRepository cardRepository,
+                           TransferEntryRepository transferEntryRepository,
+                           TransferConcurrencyStrategy concurrencyStrategy,
+                           CardDebitAllocator cardDebitAllocator,
+                           IdempotencyStore idempotencyStore,
+                           CardBalanceCache balanceCache,
+                           CardSetVersions cardSetVersions) {
         this.accountRepository = accountRepository;
         this.cardRepository = cardRepository;
+        this.transferEntryRepository = transferEntryRepository;
+        this.concurrencyStrategy = concurrencyStrategy;
+        this.cardDebitAllocator = cardDebitAllocator;
+        this.idempotencyStore = idempotencyStore;
+        this.balanceCache = balanceCache;
+        this.cardSetVersions = cardSetVersions;
     }
 
     /**
@@ -54,46 +128,488 @@ public class TransferService {
      * Процесс выполнения перевода:
      * <ol>
      *   <li>Проверка валидности суммы перевода</li>
-     *   <li>Поиск карт отправителя и получателя</li>
-     *   <li>Проверка прав доступа к картам</li>
-     *   <li>Проверка активности карт</li>
-     *   <li>Проверка достаточности средств</li>
-     *   <li>Выполнение транзакции</li>
+     *   <li>Открытие транзакции стратегией {@link TransferConcurrencyStrategy}</li>
+     *   <li>Условное изменение балансов счетов, проверяющее права доступа и достаточность средств</li>
+     *   <li>Проверка активности карт и распределение суммы по картам отправителя</li>
+     *   <li>Условное изменение балансов карт</li>
+     *   <li>Запись пары проводок в журнал</li>
      * </ol>
+     * Все шаги выполняются в одной транзакции, любая ошибка откатывает ее целиком.
+     * При конфликте с параллельной транзакцией стратегия может повторить перевод.
      *
      * @param dto объект {@link TransferRequestDTO} с данными перевода:
      *            fromAccountId, toAccountId и amount (не может быть null)
      * @return {@link TransferResponseDTO} с результатом операции
      * @throws InvalidTransferAmountException если сумма перевода некорректна
-     * @throws CardNotFoundException если карта не найдена
+     * @throws SameAccountTransferException если счета отправителя и получателя совпадают
+     * @throws AccountNotFoundException если счет не найден
      * @throws UnauthorizedCardAccessException если нет доступа к карте
      * @throws CardInactiveException если карта неактивна
      * @throws InsufficientFundsException если недостаточно средств
+     * @throws TransferLockTimeoutException если не удалось дождаться блокировки счетов
+     * @throws TransferConflictException если перевод не удалось зафиксировать из-за конфликтов
      */
-    @Transactional
     public TransferResponseDTO transfer(TransferRequestDTO dto) {
-        if (dto.amount() == null || dto.amount() <= 0) {
-            throw new InvalidTransferAmountException();
+        return transfer(dto, null);
+    }
+
+    /**
+     * Выполняет перевод средств с защитой от повторного выполнения.
+     * <p>
+     * Если перевод с таким ключом уже выполнялся, возвращается исходный результат
+     * без повторного списания. Результат сохраняется в той же транзакции, что и перевод,
+     * поэтому одновременные повторы с одним ключом выполняют перевод ровно один раз.
+     *
+     * @param dto объект {@link TransferRequestDTO} с данными перевода (не может быть null)
+     * @param idempotencyKey ключ идемпотентности клиента (null — без защиты от повторов)
+     * @return {@link TransferResponseDTO} с результатом операции
+     * @throws InvalidIdempotencyKeyException если ключ пустой или длиннее 64 символов
+     * @throws IdempotencyKeyConflictException если ключ уже использован с другими данными перевода
+     * @see #transfer(TransferRequestDTO)
+     */
+    public TransferResponseDTO transfer(TransferRequestDTO dto, String idempotencyKey) {
+        long amount = toMinorAmount(dto);
+        if (dto.fromAccountId().equals(dto.toAccountId())) {
+            throw new SameAccountTransferException();
         }
+        Long currentUserId = getCurrentUserId();
+
+        String fingerprint = null;
+        if (idempotencyKey != null) {
+            checkIdempotencyKey(idempotencyKey);
+
+            fingerprint = dto.fromAccountId() + ":" + dto.toAccountId() + ":" + amount;
+            Optional<TransferResponseDTO> stored = idempotencyStore.find(currentUserId, idempotencyKey, fingerprint);
+            if (stored.isPresent()) {
+                return stored.get();
+            }
+        }
+
+        List<Long> accountIds = List.of(dto.fromAccountId(), dto.toAccountId());
+        String requestFingerprint = fingerprint;
+        TransferResponseDTO response;
+
+        try {
+            response = concurrencyStrategy.execute(accountIds, status -> {
+                TransferResponseDTO result = applyConditionalTransfer(dto, amount, currentUserId);
+                if (idempotencyKey != null) {
+                    idempotencyStore.save(currentUserId, idempotencyKey, requestFingerprint, result);
+                }
+                return result;
+            });
+        } catch (DataIntegrityViolationException ex) {
+            if (idempotencyKey == null) {
+                throw ex;
+            }
+            return idempotencyStore.find(currentUserId, idempotencyKey, fingerprint).orElseThrow(() -> ex);
+        }
+
+        if (idempotencyKey != null) {
+            idempotencyStore.remember(currentUserId, idempotencyKey, fingerprint, response);
+        }
+        return response;
+    }
 
+    /**
+     * Выполняет пакет переводов в одной транзакции.
+     * <p>
+     * Стратегия {@link TransferConcurrencyStrategy} применяется один раз на весь пакет,
+     * счета и карты загружаются двумя запросами, изменения балансов
+     * отправляются пакетом JDBC при фиксации, а проводки всех переводов
+     * добавляются в журнал одной пакетной вставкой.
+     * <ul>
+     *   <li>{@link BatchTransferMode#ALL_OR_NOTHING} — первая ошибка откатывает транзакцию,
+     *       уже выполненные переводы получают статус ROLLED_BACK, оставшиеся — SKIPPED</li>
+     *   <li>{@link BatchTransferMode#BEST_EFFORT} — ошибочный перевод получает статус FAILED,
+     *       остальные фиксируются</li>
+     * </ul>
+     * Статус FAILED получают только отказы предметной области (нет счета или активной карты,
+     * нет доступа, не хватает средств, некорректная сумма). Любая другая ошибка
+     * прерывает и откатывает весь пакет.
+     *
+     * @param request пакет переводов (не может быть null)
+     * @return {@link BatchTransferResponseDTO} с результатом по каждому переводу
+     * @throws TransferLockTimeoutException если не удалось дождаться блокировки счетов
+     * @throws TransferConflictException если пакет не удалось зафиксировать из-за конфликтов
+     */
+    public BatchTransferResponseDTO transferBatch(BatchTransferRequestDTO request) {
         Long currentUserId = getCurrentUserId();
 
-        Account fromAccount = accountRepository.findByUserId(dto.fromAccountId())
-                .orElseThrow(() -> new AccountNotFoundException(dto.fromAccountId()));
+        List<PendingTransfer> transfers = request.transfers().stream()
+                .map(dto -> new PendingTransfer(UUID.randomUUID(), currentUserId, dto))
+                .toList();
+
+        return executeLocked(transfers, request.mode());
+    }
+
+    /**
+     * Выполняет переводы, принятые ранее асинхронно, в одной транзакции.
+     * <p>
+     * Каждый перевод выполняется от имени пользователя, зафиксированного при приеме,
+     * и записывается в журнал под заранее выданным идентификатором. Ошибочные
+     * переводы получают статус FAILED и не мешают фиксации остальных
+     * (аналогично {@link BatchTransferMode#BEST_EFFORT}).
+     *
+     * @param transfers принятые переводы (не может быть null)
+     * @return {@link BatchTransferResponseDTO} с результатом по каждому переводу в исходном порядке
+     * @throws TransferLockTimeoutException если не удалось дождаться блокировки счетов
+     * @throws TransferConflictException если переводы не удалось зафиксировать из-за конфликтов
+     */
+    public BatchTransferResponseDTO transferPending(List<PendingTransfer> transfers) {
+        return executeLocked(transfers, BatchTransferMode.BEST_EFFORT);
+    }
+
+    /**
+     * Возвращает выполненный перевод по его идентификатору из журнала проводок.
+     * Перевод доступен только владельцу счета списания.
+     *
+     * @param transferId идентификатор перевода (не может быть null)
+     * @return {@link TransferResponseDTO} со статусом SUCCESS
+     * @throws TransferNotFoundException если перевод не найден или принадлежит другому пользователю
+     */
+    public TransferResponseDTO findTransfer(UUID transferId) {
+        List<TransferEntry> entries = transferEntryRepository.findByTransferIdOrderById(transferId);
+
+        TransferEntry debit = null;
+        TransferEntry credit = null;
+        for (TransferEntry entry : entries) {
+            if (entry.getDirection() == EntryDirection.DEBIT) {
+                debit = entry;
+            } else {
+                credit = entry;
+            }
+        }
+
+        if (debit == null || credit == null) {
+            throw new TransferNotFoundException(transferId);
+        }
+
+        Long ownerId = accountRepository.findById(debit.getAccountId())
+                .map(account -> account.getUser().getId())
+                .orElse(null);
+        if (!getCurrentUserId().equals(ownerId)) {
+            throw new TransferNotFoundException(transferId);
+        }
+
+        return new TransferResponseDTO(
+                transferId,
+                debit.getAccountId(),
+                credit.getAccountId(),
+                MoneyUtils.fromMinorUnits(debit.getAmount()),
+                debit.getCreatedAt(),
+                "SUCCESS"
+        );
+    }
+
+    /**
+     * Выполняет пакет в одной транзакции стратегии {@link TransferConcurrencyStrategy}.
+     */
+    private BatchTransferResponseDTO executeLocked(List<PendingTransfer> transfers, BatchTransferMode mode) {
+        Collection<Long> accountIds = new TreeSet<>();
+        for (PendingTransfer transfer : transfers) {
+            accountIds.add(transfer.request().fromAccountId());
+            accountIds.add(transfer.request().toAccountId());
+        }
+
+        return concurrencyStrategy.execute(accountIds, status -> {
+            LockedAccounts locked = loadAccounts(accountIds);
+            balanceCache.evictAfterCompletion(locked.cardIds());
+            cardSetVersions.bumpAfterCommit(locked.ownerIds());
+            return executeBatch(transfers, mode, locked, status);
+        });
+    }
+
+    /**
+     * Выполняет переводы пакета по порядку над уже загруженными счетами и картами.
+     */
+    private BatchTransferResponseDTO executeBatch(List<PendingTransfer> transfers,
+                                                  BatchTransferMode mode,
+                                                  LockedAccounts locked,
+                                                  TransactionStatus status) {
+        List<BatchTransferItemResultDTO> results = new ArrayList<>(transfers.size());
+        List<TransferEntry> entries = new ArrayList<>(transfers.size() * 2);
+        boolean aborted = false;
+        int succeeded = 0;
+        int failed = 0;
+
+        for (int i = 0; i < transfers.size(); i++) {
+            if (aborted) {
+                results.add(new BatchTransferItemResultDTO(i, "SKIPPED", null, null));
+                continue;
+            }
+
+            PendingTransfer transfer = transfers.get(i);
+            try {
+                long amount = toMinorAmount(transfer.request());
+                TransferResponseDTO response = applyTransfer(transfer.transferId(), transfer.request(),
+                        amount, locked, transfer.userId(), entries);
+                results.add(new BatchTransferItemResultDTO(i, "SUCCESS", response, null));
+                succeeded++;
+            } catch (SameAccountTransferException | AccountNotFoundException | UnauthorizedCardAccessException
+                     | InsufficientFundsException | CardInactiveException | InvalidTransferAmountException ex) {
+                results.add(new BatchTransferItemResultDTO(i, "FAILED", null, ex.getMessage()));
+                failed++;
+
+                if (mode == BatchTransferMode.ALL_OR_NOTHING) {
+                    aborted = true;
+                    status.setRollbackOnly();
+                }
+            }
+        }
+
+        if (aborted) {
+            results.replaceAll(result -> "SUCCESS".equals(result.status())
+                    ? new BatchTransferItemResultDTO(result.index(), "ROLLED_BACK", result.transfer(), null)
+                    : result);
+            succeeded = 0;
+        } else {
+            transferEntryRepository.appendAll(entries);
+        }
+
+        return new BatchTransferResponseDTO(mode, succeeded, failed, results);
+    }
+
+    /**
+     * Применяет одиночный перевод условными запросами UPDATE.
+     * <p>
+     * Балансы счетов изменяются одним пакетом JDBC из двух условных запросов в порядке
+     * возрастания id счета; счет списания изменяется, только если он принадлежит пользователю
+     * и на нем достаточно средств. После этого строки обоих счетов заблокированы до конца
+     * транзакции, поэтому переводы, затрагивающие те же карты, ждут здесь и не блокируют
+     * друг друга взаимно на строках карт. Балансы карт читаются проекцией без блокировки.
+     * Сумма распределяется по активным картам отправителя стратегией {@link CardDebitAllocator}:
+     * последняя затронутая карта списывается одним пакетом вместе с зачислением на карту
+     * получателя, остальные — отдельным пакетом JDBC. Запросы изменяют только активные карты,
+     * поэтому карта, заблокированная после чтения балансов, не затрагивается. Обычно перевод
+     * покрывается одной картой, и к БД выполняются три обращения и одна пакетная вставка в журнал.
+     *
+     * @param dto данные перевода
+     * @param amount сумма перевода в копейках
+     * @param currentUserId идентификатор текущего пользователя
+     * @return {@link TransferResponseDTO} с результатом операции
+     */
+    private TransferResponseDTO applyConditionalTransfer(TransferRequestDTO dto, long amount, Long currentUserId) {
+        Long fromId = dto.fromAccountId();
+        Long toId = dto.toAccountId();
+
+        if (accountRepository.transferBalance(fromId, toId, currentUserId, amount) != 2) {
+            throw rejectAccountUpdate(fromId, toId, currentUserId);
+        }
+
+        List<CardBalanceView> cards = cardRepository.findBalancesByAccountIdIn(List.of(fromId, toId));
+
+        CardBalanceView fromCard = firstActiveCard(cards, fromId);
+        if (fromCard == null) {
+            throw new CardInactiveException(fromId);
+        }
+
+        CardBalanceView toCard = firstActiveCard(cards, toId);
+        if (toCard == null) {
+            throw new CardInactiveException(toId);
+        }
+
+        int eligibleCount = 0;
+        long[] cardIds = new long[cards.size()];
+        long[] balances = new long[cards.size()];
+        for (CardBalanceView card : cards) {
+            if (card.accountId().equals(fromId) && card.status() == CardStatus.ACTIVE && card.balance() > 0) {
+                cardIds[eligibleCount] = card.id();
+                balances[eligibleCount] = card.balance();
+                eligibleCount++;
+            }
+        }
+
+        long[] debits = allocateDebits(Arrays.copyOf(balances, eligibleCount), amount);
+
+        int debitCount = 0;
+        for (int i = 0; i < eligibleCount; i++) {
+            if (debits[i] > 0) {
+                cardIds[debitCount] = cardIds[i];
+                debits[debitCount] = debits[i];
+                debitCount++;
+            }
+        }
+
+        Long lastCardId = debitCount > 0 ? cardIds[debitCount - 1] : fromCard.id();
+        long lastDebit = debitCount > 0 ? debits[debitCount - 1] : 0;
+
+        if (!cardRepository.debitAll(cardIds, debits, Math.max(debitCount - 1, 0))
+                || cardRepository.moveBalance(lastCardId, lastDebit, toCard.id(), amount) != 2) {
+            throw rejectCardUpdate(fromId, toId, Arrays.copyOf(cardIds, debitCount), toCard.id());
+        }
+
+        List<Long> changedCardIds = new ArrayList<>(debitCount + 1);
+        for (int i = 0; i < debitCount; i++) {
+            changedCardIds.add(cardIds[i]);
+        }
+        changedCardIds.add(toCard.id());
+        balanceCache.evictAfterCompletion(changedCardIds);
+        cardSetVersions.bumpAfterCommit(List.of(currentUserId, toCard.ownerId()));
+
+        UUID transferId = UUID.randomUUID();
+        LocalDateTime now = LocalDateTime.now();
+        transferEntryRepository.appendTransfer(transferId, fromId, toId, amount, now);
+
+        return new TransferResponseDTO(
+                transferId,
+                fromId,
+                toId,
+                dto.amount(),
+                now,
+                "SUCCESS"
+        );
+    }
+
+    /**
+     * Определяет причину, по которой условное изменение балансов счетов не затронуло обе строки.
+     * Выполняется только при ошибке, транзакция после этого откатывается.
+     *
+     * @return исключение, описывающее причину отказа
+     */
+    private RuntimeException rejectAccountUpdate(Long fromId, Long toId, Long currentUserId) {
+        Map<Long, Account> accounts = accountRepository.findAllById(List.of(fromId, toId)).stream()
+                .collect(Collectors.toMap(Account::getId, Function.identity()));
+
+        Account fromAccount = accounts.get(fromId);
+        if (fromAccount == null) {
+            return new AccountNotFoundException(fromId);
+        }
 
-        Account toAccount = accountRepository.findByUserId(dto.toAccountId())
-                .orElseThrow(() -> new AccountNotFoundException(dto.toAccountId()));
+        if (!accounts.containsKey(toId)) {
+            return new AccountNotFoundException(toId);
+        }
+
+        if (!fromAccount.getUser().getId().equals(currentUserId)) {
+            return new UnauthorizedCardAccessException();
+        }
+
+        return new InsufficientFundsException();
+    }
+
+    /**
+     * Определяет причину, по которой условное изменение балансов карт не затронуло все строки:
+     * карта могла быть заблокирована или истечь после чтения ее баланса.
+     * Выполняется только при ошибке, транзакция после этого откатывается.
+     *
+     * @return исключение, описывающее причину отказа
+     */
+    private RuntimeException rejectCardUpdate(Long fromId, Long toId, long[] debitedCardIds, Long toCardId) {
+        Map<Long, CardStatus> statuses = cardRepository.findBalancesByAccountIdIn(List.of(fromId, toId)).stream()
+                .collect(Collectors.toMap(CardBalanceView::id, CardBalanceView::status));
+
+        for (long cardId : debitedCardIds) {
+            if (statuses.get(cardId) != CardStatus.ACTIVE) {
+                return new CardInactiveException(cardId);
+            }
+        }
+        if (statuses.get(toCardId) != CardStatus.ACTIVE) {
+            return new CardInactiveException(toCardId);
+        }
+        return new InsufficientFundsException();
+    }
+
+    /**
+     * Распределяет сумму списания по активным картам отправителя.
+     * Баланс счета учитывает и заблокированные карты, поэтому его достаточность
+     * не гарантирует, что активные карты покрывают сумму перевода.
+     *
+     * @param balances балансы активных карт с положительным балансом в копейках
+     * @param amount сумма перевода в копейках
+     * @return суммы списания по картам
+     * @throws InsufficientFundsException если активных карт не хватает для списания всей суммы
+     */
+    private long[] allocateDebits(long[] balances, long amount) {
+        long[] debits = cardDebitAllocator.allocate(balances, amount);
+
+        long allocated = 0;
+        for (long debit : debits) {
+            allocated += debit;
+        }
+        if (allocated != amount) {
+            throw new InsufficientFundsException();
+        }
+        return debits;
+    }
+
+    private static CardBalanceView firstActiveCard(List<CardBalanceView> cards, Long accountId) {
+        for (CardBalanceView card : cards) {
+            if (card.accountId().equals(accountId) && card.status() == CardStatus.ACTIVE) {
+                return card;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Загружает счета и карты в порядке возрастания id. Строки блокируются,
+     * если этого требует стратегия {@link TransferConcurrencyStrategy}.
+     *
+     * @param accountIds идентификаторы счетов
+     * @return загруженные счета и их карты
+     */
+    private LockedAccounts loadAccounts(Collection<Long> accountIds) {
+        boolean locksRows = concurrencyStrategy.locksRows();
+
+        List<Account> loadedAccounts = locksRows
+                ? accountRepository.findAllByIdForUpdate(accountIds)
+                : accountRepository.findByIdInOrderById(accountIds);
+        Map<Long, Account> accounts = loadedAccounts.stream()
+                .collect(Collectors.toMap(Account::getId, Function.identity()));
+
+        List<Card> loadedCards = locksRows
+                ? cardRepository.findByAccountIdInForUpdate(accountIds)
+                : cardRepository.findByAccountIdInOrderById(accountIds);
+        Map<Long, List<Card>> cards = loadedCards.stream()
+                .collect(Collectors.groupingBy(card -> card.getAccount().getId()));
+
+        return new LockedAccounts(accounts, cards);
+    }
+
+    /**
+     * Проверяет и применяет перевод к загруженным счетам и картам.
+     * Все проверки выполняются до изменения балансов, поэтому при ошибке
+     * состояние сущностей остается нетронутым. Арифметика ведется в копейках
+     * над примитивами {@code long}, сумма распределяется по картам отправителя
+     * стратегией {@link CardDebitAllocator}.
+     *
+     * @param transferId идентификатор перевода для записи в журнал
+     * @param dto данные перевода
+     * @param amount сумма перевода в копейках
+     * @param locked счета и карты, загруженные в текущей транзакции
+     * @param currentUserId идентификатор текущего пользователя
+     * @param entries список, в который добавляется пара проводок перевода
+     * @return {@link TransferResponseDTO} с результатом операции
+     */
+    private TransferResponseDTO applyTransfer(UUID transferId,
+                                              TransferRequestDTO dto,
+                                              long amount,
+                                              LockedAccounts locked,
+                                              Long currentUserId,
+                                              List<TransferEntry> entries) {
+        if (dto.fromAccountId().equals(dto.toAccountId())) {
+            throw new SameAccountTransferException();
+        }
+
+        Account fromAccount = locked.accounts().get(dto.fromAccountId());
+        if (fromAccount == null) {
+            throw new AccountNotFoundException(dto.fromAccountId());
+        }
+
+        Account toAccount = locked.accounts().get(dto.toAccountId());
+        if (toAccount == null) {
+            throw new AccountNotFoundException(dto.toAccountId());
+        }
 
         if (!fromAccount.getUser().getId().equals(currentUserId)) {
             throw new UnauthorizedCardAccessException();
         }
 
-        if (fromAccount.getBalance() < dto.amount()) {
+        if (fromAccount.getBalance() < amount) {
             throw new InsufficientFundsException();
         }
 
-        List<Card> fromCards = cardRepository.findByAccountId(fromAccount.getId());
-        List<Card> toCards = cardRepository.findByAccountId(toAccount.getId());
+        List<Card> fromCards = locked.cardsOf(fromAccount);
+        List<Card> toCards = locked.cardsOf(toAccount);
 
         Card fromCard = null;
         Card toCard = null;
@@ -120,42 +636,110 @@ public class TransferService {
             throw new CardInactiveException(toAccount.getId());
         }
 
-        double remainingAmount = dto.amount();
-
+        int eligibleCount = 0;
+        Card[] eligible = new Card[fromCards.size()];
+        long[] balances = new long[fromCards.size()];
         for (Card card : fromCards) {
-            if (card.getStatus() != CardStatus.ACTIVE || card.getBalance() <= 0) {
-                continue;
+            if (card.getStatus() == CardStatus.ACTIVE && card.getBalance() > 0) {
+                eligible[eligibleCount] = card;
+                balances[eligibleCount] = card.getBalance();
+                eligibleCount++;
             }
+        }
 
-            double cardBalance = card.getBalance();
-            double amountToDeduct = Math.min(cardBalance, remainingAmount);
-
-            card.setBalance(cardBalance - amountToDeduct);
-            remainingAmount -= amountToDeduct;
-            cardRepository.save(card);
+        long[] debits = allocateDebits(Arrays.copyOf(balances, eligibleCount), amount);
+        // Переполнение проверяется до изменения сущностей: в режиме BEST_EFFORT
+        // ошибочный перевод не должен оставить частичных списаний в пакете
+        long toCardBalance;
+        long toAccountBalance;
+        try {
+            toCardBalance = Math.addExact(toCard.getBalance(), amount);
+            toAccountBalance = Math.addExact(toAccount.getBalance(), amount);
+        } catch (ArithmeticException ex) {
+            throw new InvalidTransferAmountException("Сумма перевода превышает допустимый баланс получателя.");
+        }
 
-            if (remainingAmount <= 0) {
-                break;
-            }
+        for (int i = 0; i < eligibleCount; i++) {
+            eligible[i].setBalance(eligible[i].getBalance() - debits[i]);
         }
 
-        toCard.setBalance(toCard.getBalance() + dto.amount());
+        toCard.setBalance(toCardBalance);
 
-        cardRepository.save(toCard);
+        fromAccount.setBalance(fromAccount.getBalance() - amount);
+        toAccount.setBalance(toAccountBalance);
 
-        fromAccount.setBalance(fromAccount.getBalance() - dto.amount());
-        toAccount.setBalance(toAccount.getBalance() + dto.amount());
+        LocalDateTime now = LocalDateTime.now();
 
-        accountRepository.save(fromAccount);
-        accountRepository.save(toAccount);
+        entries.add(new TransferEntry(transferId, fromAccount.getId(), EntryDirection.DEBIT,
+                amount, fromAccount.getBalance(), now));
+        entries.add(new TransferEntry(transferId, toAccount.getId(), EntryDirection.CREDIT,
+                amount, toAccount.getBalance(), now));
 
         return new TransferResponseDTO(
+                transferId,
                 dto.fromAccountId(),
                 dto.toAccountId(),
                 dto.amount(),
-                LocalDateTime.now(),
+                now,
                 "SUCCESS"
         );
     }
 
+    /**
+     * Проверяет сумму перевода и переводит ее в копейки.
+     *
+     * @param dto данные перевода
+     * @return сумма перевода в копейках
+     * @throws InvalidTransferAmountException если сумма не задана, не положительна
+     * или содержит больше двух знаков после запятой
+     */
+    static long toMinorAmount(TransferRequestDTO dto) {
+        if (dto.amount() == null || dto.amount().signum() <= 0) {
+            throw new InvalidTransferAmountException();
+        }
+
+        try {
+            return MoneyUtils.toMinorUnits(dto.amount());
+        } catch (ArithmeticException ex) {
+            throw new InvalidTransferAmountException();
+        }
+    }
+
+    /**
+     * Проверяет формат ключа идемпотентности.
+     *
+     * @param idempotencyKey ключ идемпотентности клиента (не может быть null)
+     * @throws InvalidIdempotencyKeyException если ключ пустой или длиннее 64 символов
+     */
+    static void checkIdempotencyKey(String idempotencyKey) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException();
+        }
+    }
+
+    /**
+     * Счета и карты, загруженные в рамках текущей транзакции.
+     *
+     * @param accounts счета по id
+     * @param cards карты по id счета, в порядке возрастания id карты
+     */
+    private record LockedAccounts(Map<Long, Account> accounts, Map<Long, List<Card>> cards) {
+
+        List<Card> cardsOf(Account account) {
+            return cards.getOrDefault(account.getId(), Collections.emptyList());
+        }
+
+        List<Long> cardIds() {
+            List<Long> ids = new ArrayList<>();
+            cards.values().forEach(accountCards -> accountCards.forEach(card -> ids.add(card.getId())));
+            return ids;
+        }
+
+        Set<Long> ownerIds() {
+            Set<Long> ids = new HashSet<>();
+            accounts.values().forEach(account -> ids.add(account.getUser().getId()));
+            return ids;
+        }
+    }
+
 }
@@ -46,7 +46,7 @@ public class UserService {
      * @return список пользователей в формате DTO
      */
     public List<UserDTO> getAllUsers() {
-        List<User> users = userRepository.findAll();
+        List<User> users = userRepository.findAllWithRole();
         return users.stream()
                 .map(this::toDTO)
                 .collect(Collectors.toList());
@@ -82,7 +82,7 @@ public class UserService {
             throw new IllegalArgumentException("ID и UserDTO не могут быть null");
         }
 
-        User existingUser = userRepository.findById(id)
+        User existingUser = userRepository.findWithRoleById(id)
                 .orElseThrow(() -> new UserNotFoundException(id));
 
         existingUser.setFirstName(userDTO.firstName());
@@ -1,6 +1,6 @@
 package com.example.bankcards.util;
 
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Генератор номеров банковских карт, соответствующих алгоритму Луна.
@@ -11,10 +11,10 @@ import java.util.Random;
  */
 public class CardNumberGenerator {
 
-    private static final Random RANDOM = new Random();
-
     /**
      * Генерирует номер карты, соответствующий алгоритму Луна.
+     * Потокобезопасен и не создает конкуренции между потоками: случайные цифры
+     * берутся из генератора текущего потока.
      *
      * @return сгенерированный номер карты в виде строки
      */
@@ -23,7 +23,7 @@ public class CardNumberGenerator {
         StringBuilder number = new StringBuilder(bin);
 
         for (int i = 0; i < 9; i++) {
-            number.append(RANDOM.nextInt(10));
+            number.append(ThreadLocalRandom.current().nextInt(10));
         }
 
         int checkDigit = calculateLuhnDigit(number.toString());
@@ -0,0 +1,46 @@
+package com.example.bankcards.util;
+
+/**
+ * Утилита для выделения открытых частей номера карты, которые хранятся
+ * рядом с зашифрованным номером и позволяют искать карты без расшифровки.
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public final class CardNumberUtils {
+
+    /** Длина BIN (Bank Identification Number) — первых цифр номера карты. */
+    public static final int BIN_LENGTH = 6;
+
+    /** Количество последних цифр номера, которые показываются в маскированном номере. */
+    public static final int LAST4_LENGTH = 4;
+
+    private CardNumberUtils() {}
+
+    /**
+     * Возвращает BIN карты.
+     *
+     * @param cardNumber открытый номер карты (не может быть null)
+     * @return первые {@value #BIN_LENGTH} цифр номера
+     * @throws IllegalArgumentException если номер короче {@value #BIN_LENGTH} символов
+     */
+    public static String bin(String cardNumber) {
+        if (cardNumber.length() < BIN_LENGTH) {
+            throw new IllegalArgumentException("Номер карты слишком короткий");
+        }
+        return cardNumber.substring(0, BIN_LENGTH);
+    }
+
+    /**
+     * Возвращает последние цифры номера карты.
+     *
+     * @param cardNumber открытый номер карты (не может быть null)
+     * @return последние {@value #LAST4_LENGTH} цифры номера
+     * @throws IllegalArgumentException если номер короче {@value #LAST4_LENGTH} символов
+     */
+    public static String last4(String cardNumber) {
+        if (cardNumber.length() < LAST4_LENGTH) {
+            throw new IllegalArgumentException("Номер карты слишком короткий");
+        }
+        return cardNumber.substring(cardNumber.length() - LAST4_LENGTH);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.bankcards.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Утилита для перевода денежных сумм между внешним представлением и копейками.
+ * <p>
+ * Внутри системы все балансы и суммы хранятся как {@code long} в минимальных
+ * единицах валюты (копейках), поэтому арифметика перевода точна и не требует
+ * создания объектов. {@link BigDecimal} используется только на границе API.
+ * @since 1.2.0
+ * @author Vsevolod Batyrov
+ */
+public final class MoneyUtils {
+
+    /** Количество знаков после запятой в денежных суммах. */
+    public static final int SCALE = 2;
+
+    private MoneyUtils() {}
+
+    /**
+     * Переводит сумму в копейки без округления.
+     *
+     * @param amount сумма (не может быть null, не более {@value #SCALE} знаков после запятой)
+     * @return сумма в копейках
+     * @throws ArithmeticException если у суммы больше {@value #SCALE} знаков после запятой
+     * или она не помещается в {@code long}
+     */
+    public static long toMinorUnits(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.UNNECESSARY)
+                .unscaledValue()
+                .longValueExact();
+    }
+
+    /**
+     * Переводит сумму из копеек во внешнее представление.
+     *
+     * @param minorUnits сумма в копейках
+     * @return сумма с {@value #SCALE} знаками после запятой
+     */
+    public static BigDecimal fromMinorUnits(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+}
@@ -28,4 +28,22 @@ public class SecurityUtils {
         return userDetails.id();
     }
 
+    /**
+     * Проверяет, есть ли у текущего пользователя указанная роль.
+     * Роль берется из полномочий principal, загруженных при аутентификации запроса,
+     * поэтому обращения к базе данных не требуется.
+     *
+     * @param roleName имя роли, например {@code ROLE_USER}
+     * @return true если роль есть у текущего пользователя, иначе false
+     * @throws IllegalStateException если пользователь не аутентифицирован
+     */
+    public static boolean hasCurrentUserRole(String roleName) {
+        var auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !(auth.getPrincipal() instanceof UserDetailsImpl userDetails)) {
+            throw new IllegalStateException("Пользователь не аутентифицирован");
+        }
+        return userDetails.getAuthorities().stream()
+                .anyMatch(authority -> roleName.equals(authority.getAuthority()));
+    }
+
 }
@@ -1,7 +1,16 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.BulkCardIssueItemDTO;
+import com.example.bankcards.dto.BulkCardIssueRequestDTO;
+import com.example.bankcards.dto.BulkCardIssueResponseDTO;
+import com.example.bankcards.dto.BulkCardStatusRequestDTO;
+import com.example.bankcards.dto.BulkCardStatusResponseDTO;
 import com.example.bankcards.dto.CardDTO;
+import com.example.bankcards.dto.CardPageDTO;
+import com.example.bankcards.dto.CardSummaryDTO;
 import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.service.CardExportService;
+import com.example.bankcards.service.CardIssueService;
 import com.example.bankcards.service.CardService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -17,9 +26,19 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.math.BigDecimal;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -31,6 +50,12 @@ class CardControllerTest {
     @Mock
     private CardService cardService;
 
+    @Mock
+    private CardExportService cardExportService;
+
+    @Mock
+    private CardIssueService cardIssueService;
+
     @InjectMocks
     private CardController cardController;
 
@@ -53,7 +78,7 @@ class CardControllerTest {
                 "****3456",
                 123L,
                 LocalDate.now().plusYears(3),
-                1000.0,
+                new BigDecimal("1000.00"),
                 CardStatus.ACTIVE
         );
 
@@ -77,4 +102,177 @@ class CardControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string("\"Card blocked successfully\"")); // Ожидаем строку в кавычках
     }
-}
\ No newline at end of file
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void getAllCards_ShouldPassCursorAndFilters() throws Exception {
+        CardDTO card = new CardDTO(
+                7L,
+                "**** **** **** 3456",
+                123L,
+                LocalDate.of(2027, 5, 1),
+                new BigDecimal("10.00"),
+                CardStatus.BLOCKED
+        );
+
+        when(cardService.getAllCardsForAdmin("Nw", 20, CardStatus.BLOCKED,
+                LocalDate.of(2027, 1, 1), LocalDate.of(2027, 12, 31)))
+                .thenReturn(new CardPageDTO(List.of(card), "Nw"));
+
+        mockMvc.perform(get("/api/cards/admin/all")
+                        .param("cursor", "Nw")
+                        .param("limit", "20")
+                        .param("status", "BLOCKED")
+                        .param("expiresFrom", "2027-01-01")
+                        .param("expiresTo", "2027-12-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(7))
+                .andExpect(jsonPath("$.nextCursor").value("Nw"));
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void getCardSummary_ShouldReturnCountsAndTotalBalance() throws Exception {
+        when(cardService.getCardSummaryForCurrentUser()).thenReturn(new CardSummaryDTO(
+                Map.of(CardStatus.ACTIVE, 2L, CardStatus.BLOCKED, 1L, CardStatus.EXPIRED, 0L),
+                3L,
+                new BigDecimal("150.00")));
+
+        mockMvc.perform(get("/api/cards/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.countsByStatus.ACTIVE").value(2))
+                .andExpect(jsonPath("$.countsByStatus.EXPIRED").value(0))
+                .andExpect(jsonPath("$.totalCards").value(3))
+                .andExpect(jsonPath("$.totalBalance").value(150.00));
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void getCardsForUser_ShouldReturnListWithETag() throws Exception {
+        CardDTO card = new CardDTO(3L, "4000 0012 3456 7890", 1L, LocalDate.of(2027, 5, 1),
+                new BigDecimal("10.00"), CardStatus.ACTIVE);
+        when(cardService.getCardsETagForCurrentUser()).thenReturn(Optional.of("\"1-abc-0-2\""));
+        when(cardService.getCardsForCurrentUser()).thenReturn(List.of(card));
+
+        mockMvc.perform(get("/api/cards"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1-abc-0-2\""))
+                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                .andExpect(jsonPath("$[0].id").value(3));
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void getCardsForUser_ShouldReturnNotModified_WhenETagMatches() throws Exception {
+        when(cardService.getCardsETagForCurrentUser()).thenReturn(Optional.of("\"1-abc-0-2\""));
+
+        mockMvc.perform(get("/api/cards").header("If-None-Match", "\"1-abc-0-2\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"1-abc-0-2\""))
+                .andExpect(content().string(""));
+
+        verify(cardService, never()).getCardsForCurrentUser();
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void getCardsForUser_ShouldIgnoreIfNoneMatch_WhenETagIsDisabled() throws Exception {
+        when(cardService.getCardsETagForCurrentUser()).thenReturn(Optional.empty());
+        when(cardService.getCardsForCurrentUser()).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/cards").header("If-None-Match", "\"1-abc-0-2\""))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("ETag"))
+                .andExpect(jsonPath("$").isEmpty());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void issueCards_ShouldReturnResultPerAccount() throws Exception {
+        CardDTO card = new CardDTO(
+                11L,
+                "**** **** **** 3456",
+                123L,
+                LocalDate.of(2029, 5, 1),
+                new BigDecimal("0.00"),
+                CardStatus.ACTIVE
+        );
+        BulkCardIssueRequestDTO request = new BulkCardIssueRequestDTO(List.of(1L, 2L), null);
+        when(cardIssueService.issueCards(request)).thenReturn(new BulkCardIssueResponseDTO(1, 0, 1, List.of(
+                new BulkCardIssueItemDTO(1L, "ISSUED", card, null),
+                new BulkCardIssueItemDTO(2L, "FAILED", null, "Счет не найден."))));
+
+        mockMvc.perform(post("/api/cards/admin/bulk")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.issued").value(1))
+                .andExpect(jsonPath("$.results[0].card.id").value(11))
+                .andExpect(jsonPath("$.results[1].status").value("FAILED"));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void searchCards_ShouldPassFiltersToService() throws Exception {
+        CardDTO card = new CardDTO(5L, "**** **** **** 1234", 9L, LocalDate.of(2027, 6, 1),
+                new BigDecimal("1.00"), CardStatus.ACTIVE);
+        when(cardService.searchCardsForAdmin("MTAx", 20, "1234", CardStatus.ACTIVE, 9L,
+                LocalDate.of(2027, 1, 1), LocalDate.of(2027, 12, 31)))
+                .thenReturn(new CardPageDTO(List.of(card), "NQ"));
+
+        mockMvc.perform(get("/api/cards/admin/search")
+                        .param("cursor", "MTAx")
+                        .param("limit", "20")
+                        .param("last4", "1234")
+                        .param("status", "ACTIVE")
+                        .param("ownerId", "9")
+                        .param("expiresFrom", "2027-01-01")
+                        .param("expiresTo", "2027-12-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].cardNumber").value("**** **** **** 1234"))
+                .andExpect(jsonPath("$.nextCursor").value("NQ"));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void updateStatuses_ShouldReturnUpdatedCount() throws Exception {
+        BulkCardStatusRequestDTO request = new BulkCardStatusRequestDTO(CardStatus.BLOCKED, 5L, null, "400000", "400099");
+        when(cardService.updateStatuses(request)).thenReturn(new BulkCardStatusResponseDTO(CardStatus.BLOCKED, 7));
+
+        mockMvc.perform(post("/api/cards/admin/status")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("BLOCKED"))
+                .andExpect(jsonPath("$.updated").value(7));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void updateStatuses_ShouldRejectMalformedBin() throws Exception {
+        BulkCardStatusRequestDTO request = new BulkCardStatusRequestDTO(CardStatus.BLOCKED, null, null, "4000", null);
+
+        mockMvc.perform(post("/api/cards/admin/status")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void exportCards_ShouldStreamNdjson() throws Exception {
+        doAnswer(inv -> {
+            OutputStream out = inv.getArgument(0);
+            out.write("{\"id\":1}\n{\"id\":2}\n".getBytes(StandardCharsets.UTF_8));
+            return 2L;
+        }).when(cardExportService).exportAll(any());
+
+        mockMvc.perform(get("/api/cards/admin/export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+    }
+}
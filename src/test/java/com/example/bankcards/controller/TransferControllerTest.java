@@ -1,10 +1,19 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.BatchTransferItemResultDTO;
+import com.example.bankcards.dto.BatchTransferMode;
+import com.example.bankcards.dto.BatchTransferRequestDTO;
+import com.example.bankcards.dto.BatchTransferResponseDTO;
 import com.example.bankcards.dto.TransferRequestDTO;
 import com.example.bankcards.dto.TransferResponseDTO;
+import com.example.bankcards.dto.TransferStatusDTO;
 import com.example.bankcards.exception.CardNotFoundException;
 import com.example.bankcards.exception.GlobalExceptionHandler;
+import com.example.bankcards.exception.IdempotencyKeyConflictException;
 import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.exception.TransferNotFoundException;
+import com.example.bankcards.exception.TransferQueueFullException;
+import com.example.bankcards.service.AsyncTransferService;
 import com.example.bankcards.service.TransferService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -19,14 +28,20 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -36,6 +51,9 @@ class TransferControllerTest {
     @Mock
     private TransferService transferService;
 
+    @Mock
+    private AsyncTransferService asyncTransferService;
+
     @InjectMocks
     private TransferController transferController;
 
@@ -54,26 +72,29 @@ class TransferControllerTest {
     void transfer_ShouldReturnSuccessResponse_WhenValidRequest() throws Exception {
         TransferRequestDTO request = new TransferRequestDTO(1L,
                 2L,
-                30d);
+                new BigDecimal("30"));
         LocalDateTime now = LocalDateTime.now();
-        TransferResponseDTO response = new TransferResponseDTO(1L,
+        UUID transferId = UUID.randomUUID();
+        TransferResponseDTO response = new TransferResponseDTO(transferId,
+                1L,
                 2L,
-                10d, now,
+                new BigDecimal("10"), now,
                 "Success");
 
-        when(transferService.transfer(any(TransferRequestDTO.class))).thenReturn(response);
+        when(transferService.transfer(any(TransferRequestDTO.class), isNull())).thenReturn(response);
 
         mockMvc.perform(post("/api/transfers")
                         .with(csrf())
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.fromCardId").value(1L))
-                .andExpect(jsonPath("$.toCardId").value(2L))
-                .andExpect(jsonPath("$.amount").value(10d))
+                .andExpect(jsonPath("$.transferId").value(transferId.toString()))
+                .andExpect(jsonPath("$.fromAccountId").value(1L))
+                .andExpect(jsonPath("$.toAccountId").value(2L))
+                .andExpect(jsonPath("$.amount").value(10))
                 .andExpect(jsonPath("$.status").value("Success"));
 
-        verify(transferService, times(1)).transfer(any(TransferRequestDTO.class));
+        verify(transferService, times(1)).transfer(any(TransferRequestDTO.class), isNull());
     }
 
     @Test
@@ -93,16 +114,16 @@ class TransferControllerTest {
                         .content(invalidRequest))
                 .andExpect(status().isBadRequest());
 
-        verify(transferService, never()).transfer(any());
+        verify(transferService, never()).transfer(any(), any());
     }
 
     @Test
     @WithMockUser(roles = "USER")
     void transfer_ShouldReturnBadRequest_WhenInsufficientFunds() throws Exception {
-        TransferRequestDTO request = new TransferRequestDTO(1L, 2L, 30d);
+        TransferRequestDTO request = new TransferRequestDTO(1L, 2L, new BigDecimal("30"));
         String errorMessage = "Недостаточно средств для перевода";
 
-        when(transferService.transfer(any(TransferRequestDTO.class)))
+        when(transferService.transfer(any(TransferRequestDTO.class), isNull()))
                 .thenThrow(new InsufficientFundsException("Недостаточно средств для перевода"));
 
         mockMvc.perform(post("/api/transfers")
@@ -113,15 +134,15 @@ class TransferControllerTest {
                 .andExpect(jsonPath("$.message").value(errorMessage))
                 .andExpect(jsonPath("$.status").value(HttpStatus.BAD_REQUEST.value()));
 
-        verify(transferService, times(1)).transfer(any(TransferRequestDTO.class));
+        verify(transferService, times(1)).transfer(any(TransferRequestDTO.class), isNull());
     }
 
     @Test
     @WithMockUser(roles = "USER")
     void transfer_ShouldReturnBadRequest_WhenCardNotFound() throws Exception {
-        TransferRequestDTO request = new TransferRequestDTO(1L, 2L, 30d);
+        TransferRequestDTO request = new TransferRequestDTO(1L, 2L, new BigDecimal("30"));
 
-        when(transferService.transfer(any(TransferRequestDTO.class)))
+        when(transferService.transfer(any(TransferRequestDTO.class), isNull()))
                 .thenThrow(new CardNotFoundException(1L));
 
         mockMvc.perform(post("/api/transfers")
@@ -134,9 +155,9 @@ class TransferControllerTest {
     @Test
     @WithMockUser(roles = "USER")
     void transfer_ShouldReturnInternalServerError_WhenUnexpectedError() throws Exception {
-        TransferRequestDTO request = new TransferRequestDTO(1L, 2L, 30d);
+        TransferRequestDTO request = new TransferRequestDTO(1L, 2L, new BigDecimal("30"));
 
-        when(transferService.transfer(any(TransferRequestDTO.class)))
+        when(transferService.transfer(any(TransferRequestDTO.class), isNull()))
                 .thenThrow(new RuntimeException("Unexpected error"));
 
 
@@ -146,4 +167,146 @@ class TransferControllerTest {
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isInternalServerError());
     }
-}
\ No newline at end of file
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void transferBatch_ShouldReturnPerItemResults() throws Exception {
+        BatchTransferRequestDTO request = new BatchTransferRequestDTO(List.of(
+                new TransferRequestDTO(1L, 2L, new BigDecimal("30")),
+                new TransferRequestDTO(1L, 2L, new BigDecimal("500"))
+        ), BatchTransferMode.BEST_EFFORT);
+        BatchTransferResponseDTO response = new BatchTransferResponseDTO(BatchTransferMode.BEST_EFFORT, 1, 1, List.of(
+                new BatchTransferItemResultDTO(0, "SUCCESS", null, null),
+                new BatchTransferItemResultDTO(1, "FAILED", null, "Недостаточно средств для перевода.")
+        ));
+
+        when(transferService.transferBatch(any(BatchTransferRequestDTO.class))).thenReturn(response);
+
+        mockMvc.perform(post("/api/transfers/batch")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(1))
+                .andExpect(jsonPath("$.results[1].status").value("FAILED"));
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void transferBatch_ShouldReturnBadRequest_WhenBatchIsEmpty() throws Exception {
+        String invalidRequest = """
+            {
+                "transfers": [],
+                "mode": "ALL_OR_NOTHING"
+            }
+            """;
+
+        mockMvc.perform(post("/api/transfers/batch")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(invalidRequest))
+                .andExpect(status().isBadRequest());
+
+        verify(transferService, never()).transferBatch(any());
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void transferAsync_ShouldReturnAccepted_WithLocation() throws Exception {
+        UUID transferId = UUID.randomUUID();
+        when(asyncTransferService.submit(any(TransferRequestDTO.class), isNull()))
+                .thenReturn(new TransferStatusDTO(transferId, "PENDING", null, null));
+
+        mockMvc.perform(post("/api/transfers/async")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new TransferRequestDTO(1L, 2L, new BigDecimal("10.00")))))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/transfers/" + transferId))
+                .andExpect(jsonPath("$.transferId").value(transferId.toString()))
+                .andExpect(jsonPath("$.status").value("PENDING"));
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void transferAsync_ShouldReturnServiceUnavailable_WhenQueueIsFull() throws Exception {
+        when(asyncTransferService.submit(any(TransferRequestDTO.class), any())).thenThrow(new TransferQueueFullException());
+
+        mockMvc.perform(post("/api/transfers/async")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new TransferRequestDTO(1L, 2L, new BigDecimal("10.00")))))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void transferAsync_ShouldPassIdempotencyKey_WhenHeaderPresent() throws Exception {
+        UUID transferId = UUID.randomUUID();
+        when(asyncTransferService.submit(any(TransferRequestDTO.class), eq("key-1")))
+                .thenReturn(new TransferStatusDTO(transferId, "PENDING", null, null));
+
+        mockMvc.perform(post("/api/transfers/async")
+                        .with(csrf())
+                        .header("Idempotency-Key", "key-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new TransferRequestDTO(1L, 2L, new BigDecimal("10.00")))))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.transferId").value(transferId.toString()));
+
+        verify(asyncTransferService).submit(any(TransferRequestDTO.class), eq("key-1"));
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void getTransferStatus_ShouldReturnStatus() throws Exception {
+        UUID transferId = UUID.randomUUID();
+        when(asyncTransferService.getStatus(transferId))
+                .thenReturn(new TransferStatusDTO(transferId, "FAILED", null, "Недостаточно средств для перевода."));
+
+        mockMvc.perform(get("/api/transfers/" + transferId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("FAILED"))
+                .andExpect(jsonPath("$.error").value("Недостаточно средств для перевода."));
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void getTransferStatus_ShouldReturnNotFound_WhenTransferUnknown() throws Exception {
+        UUID transferId = UUID.randomUUID();
+        when(asyncTransferService.getStatus(transferId)).thenThrow(new TransferNotFoundException(transferId));
+
+        mockMvc.perform(get("/api/transfers/" + transferId))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void transfer_ShouldPassIdempotencyKey_WhenHeaderPresent() throws Exception {
+        TransferResponseDTO response = new TransferResponseDTO(UUID.randomUUID(), 1L, 2L,
+                new BigDecimal("10.00"), LocalDateTime.now(), "SUCCESS");
+        when(transferService.transfer(any(TransferRequestDTO.class), eq("key-1"))).thenReturn(response);
+
+        mockMvc.perform(post("/api/transfers")
+                        .with(csrf())
+                        .header("Idempotency-Key", "key-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new TransferRequestDTO(1L, 2L, new BigDecimal("10.00")))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.transferId").value(response.transferId().toString()));
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void transfer_ShouldReturnUnprocessableEntity_WhenIdempotencyKeyReusedWithOtherRequest() throws Exception {
+        when(transferService.transfer(any(TransferRequestDTO.class), eq("key-1")))
+                .thenThrow(new IdempotencyKeyConflictException());
+
+        mockMvc.perform(post("/api/transfers")
+                        .with(csrf())
+                        .header("Idempotency-Key", "key-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new TransferRequestDTO(1L, 2L, new BigDecimal("10.00")))))
+                .andExpect(status().isUnprocessableEntity());
+    }
+}
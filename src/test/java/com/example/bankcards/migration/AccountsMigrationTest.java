@@ -0,0 +1,64 @@
+package com.example.bankcards.migration;
+
+import liquibase.Liquibase;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountsMigrationTest {
+
+    private static final String CHANGELOG = "db/migration/db.changelog-master.yaml";
+
+    private Connection connection;
+    private Liquibase liquibase;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        connection = DriverManager.getConnection("jdbc:h2:mem:accounts-migration;DB_CLOSE_DELAY=-1");
+        Database database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(connection));
+        liquibase = new Liquibase(CHANGELOG, new ClassLoaderResourceAccessor(), database);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void migration003_ShouldSetAccountBalanceToSumOfConvertedCards() throws Exception {
+        liquibase.update(2, "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO bank_cards (card_number, user_id, expiration_date, status, balance)"
+                    + " SELECT 'a', id, DATE '2030-01-01', 'ACTIVE', 0.004 FROM users WHERE username = 'admin'");
+            statement.execute("INSERT INTO bank_cards (card_number, user_id, expiration_date, status, balance)"
+                    + " SELECT 'b', id, DATE '2030-01-01', 'ACTIVE', 10.004 FROM users WHERE username = 'admin'");
+        }
+        connection.commit();
+
+        liquibase.update(3, "");
+
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT a.balance, SUM(c.balance) FROM accounts a"
+                     + " JOIN bank_cards c ON c.account_id = a.id GROUP BY a.id, a.balance")) {
+            assertTrue(resultSet.next());
+            assertEquals(10_00L, resultSet.getLong(1));
+            assertEquals(resultSet.getLong(2), resultSet.getLong(1));
+        }
+    }
+}
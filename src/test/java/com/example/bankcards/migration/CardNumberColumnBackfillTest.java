@@ -0,0 +1,102 @@
+package com.example.bankcards.migration;
+
+import com.example.bankcards.util.EncryptionUtil;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CardNumberColumnBackfillTest {
+
+    private Connection connection;
+    private Database database;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        connection = DriverManager.getConnection("jdbc:h2:mem:backfill;DB_CLOSE_DELAY=-1");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE bank_cards (id BIGINT PRIMARY KEY, card_number VARCHAR(255),"
+                    + " card_bin VARCHAR(6), card_last4 VARCHAR(4))");
+        }
+        database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(connection));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE bank_cards");
+        }
+        connection.close();
+    }
+
+    @Test
+    void execute_ShouldFillColumnFromDecryptedNumbersAcrossChunks() throws Exception {
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO bank_cards (id, card_number) VALUES (?, ?)")) {
+            for (int id = 1; id <= 2500; id++) {
+                insert.setLong(1, id);
+                insert.setString(2, EncryptionUtil.encrypt(String.format("%06d1234567890", id)));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+
+        backfill("card_bin").execute(database);
+        backfill("card_last4").execute(database);
+
+        List<String> bins = new ArrayList<>();
+        List<String> last4s = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT card_bin, card_last4 FROM bank_cards ORDER BY id")) {
+            while (resultSet.next()) {
+                bins.add(resultSet.getString(1));
+                last4s.add(resultSet.getString(2));
+            }
+        }
+        assertEquals(2500, bins.size());
+        assertEquals("000001", bins.getFirst());
+        assertEquals("002500", bins.getLast());
+        assertTrue(last4s.stream().allMatch("7890"::equals));
+    }
+
+    @Test
+    void execute_ShouldSkipRowsThatAreAlreadyFilled() throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO bank_cards (id, card_number, card_last4) VALUES (1, 'not a ciphertext', '1111')");
+        }
+
+        backfill("card_last4").execute(database);
+
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT card_last4 FROM bank_cards")) {
+            assertTrue(resultSet.next());
+            assertEquals("1111", resultSet.getString(1));
+        }
+    }
+
+    @Test
+    void validate_ShouldRejectUnknownColumn() {
+        assertTrue(backfill("card_number").validate(database).hasErrors());
+        assertFalse(backfill("card_bin").validate(database).hasErrors());
+        assertFalse(backfill("card_last4").validate(database).hasErrors());
+    }
+
+    private static CardNumberColumnBackfill backfill(String column) {
+        CardNumberColumnBackfill change = new CardNumberColumnBackfill();
+        change.setColumn(column);
+        return change;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.exception.TransferLockTimeoutException;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountLockManagerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AccountLockManager lockManager;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        lockManager = new AccountLockManager(64, 200, meterRegistry);
+    }
+
+    @Test
+    void lock_ShouldConserveBalances_UnderContention() throws Exception {
+        int accounts = 8;
+        int threads = 16;
+        int transfersPerThread = 5_000;
+        long[] balances = new long[accounts];
+        Arrays.fill(balances, 1_000L);
+
+        AccountLockManager manager = new AccountLockManager(64, 10_000, meterRegistry);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < transfersPerThread; i++) {
+                    int from = random.nextInt(accounts);
+                    int to = random.nextInt(accounts);
+                    try (AccountLockManager.LockHandle ignored = manager.lock(List.of((long) from, (long) to))) {
+                        long amount = random.nextLong(1, 50);
+                        if (balances[from] >= amount) {
+                            balances[from] -= amount;
+                            balances[to] += amount;
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        long total = 0;
+        for (long balance : balances) {
+            assertTrue(balance >= 0);
+            total += balance;
+        }
+        assertEquals(accounts * 1_000L, total);
+        assertEquals(threads * transfersPerThread,
+                meterRegistry.get("transfer.lock.wait").tag("outcome", "acquired").timer().count());
+    }
+
+    @Test
+    void lock_ShouldNotBlockUnrelatedAccounts() throws Exception {
+        assertNotEquals(lockManager.stripeIndex(1L), lockManager.stripeIndex(3L));
+        assertNotEquals(lockManager.stripeIndex(2L), lockManager.stripeIndex(4L));
+
+        try (AccountLockManager.LockHandle ignored = lockManager.lock(List.of(1L, 2L))) {
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            Future<Boolean> other = executor.submit(() -> {
+                try (AccountLockManager.LockHandle handle = lockManager.lock(List.of(3L, 4L))) {
+                    return true;
+                }
+            });
+
+            assertTrue(other.get(1, TimeUnit.SECONDS));
+            executor.shutdown();
+        }
+
+        assertEquals(0, meterRegistry.get("transfer.lock.contended").counter().count());
+    }
+
+    @Test
+    void lock_ShouldTimeout_WhenAccountHeldByAnotherThread() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        executor.submit(() -> {
+            try (AccountLockManager.LockHandle ignored = lockManager.lock(List.of(7L))) {
+                locked.countDown();
+                release.await();
+            }
+            return null;
+        });
+
+        assertTrue(locked.await(1, TimeUnit.SECONDS));
+        assertThrows(TransferLockTimeoutException.class, () -> lockManager.lock(List.of(5L, 7L)));
+
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+
+        assertEquals(1, meterRegistry.get("transfer.lock.timeouts").counter().count());
+        Timer timedOut = meterRegistry.get("transfer.lock.wait").tag("outcome", "timeout").timer();
+        assertEquals(1, timedOut.count());
+        assertTrue(timedOut.totalTime(TimeUnit.MILLISECONDS) >= 150);
+        try (AccountLockManager.LockHandle handle = lockManager.lock(List.of(5L, 7L))) {
+            assertTrue(handle != null);
+        }
+    }
+
+    @Test
+    void lock_ShouldAcquireSharedStripeOnce() {
+        long sameStripe = 1L + 64L;
+        assertEquals(lockManager.stripeIndex(1L), lockManager.stripeIndex(sameStripe));
+
+        try (AccountLockManager.LockHandle ignored = lockManager.lock(List.of(1L, sameStripe))) {
+            assertEquals(1, meterRegistry.get("transfer.lock.wait").tag("outcome", "acquired").timer().count());
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BatchTransferItemResultDTO;
+import com.example.bankcards.dto.BatchTransferMode;
+import com.example.bankcards.dto.BatchTransferResponseDTO;
+import com.example.bankcards.dto.TransferRequestDTO;
+import com.example.bankcards.dto.TransferResponseDTO;
+import com.example.bankcards.dto.TransferStatusDTO;
+import com.example.bankcards.exception.IdempotencyKeyConflictException;
+import com.example.bankcards.exception.InvalidTransferAmountException;
+import com.example.bankcards.exception.TransferLockTimeoutException;
+import com.example.bankcards.exception.TransferNotFoundException;
+import com.example.bankcards.exception.TransferQueueFullException;
+import com.example.bankcards.repository.IdempotencyRecordRepository;
+import com.example.bankcards.util.SecurityUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AsyncTransferServiceTest {
+
+    private static final long USER_ID = 1L;
+
+    private TransferService transferService;
+    private IdempotencyRecordRepository idempotencyRepository;
+    private IdempotencyStore idempotencyStore;
+    private MockedStatic<SecurityUtils> securityUtils;
+
+    @BeforeEach
+    void setUp() {
+        transferService = mock(TransferService.class);
+        idempotencyRepository = mock(IdempotencyRecordRepository.class);
+        idempotencyStore = new IdempotencyStore(idempotencyRepository, new ObjectMapper().findAndRegisterModules(),
+                100, 60_000, new SimpleMeterRegistry());
+        securityUtils = mockStatic(SecurityUtils.class);
+        securityUtils.when(SecurityUtils::getCurrentUserId).thenReturn(USER_ID);
+    }
+
+    @AfterEach
+    void tearDown() {
+        securityUtils.close();
+    }
+
+    @Test
+    void submit_ShouldReturnPendingAndCompleteInBatch() {
+        AsyncTransferService service = service(10, 100);
+        when(transferService.transferPending(anyList())).thenAnswer(inv -> succeedAll(inv.getArgument(0)));
+
+        TransferStatusDTO first = service.submit(request("10.00"));
+        TransferStatusDTO second = service.submit(request("20.00"));
+
+        assertEquals("PENDING", first.status());
+        assertEquals("PENDING", service.getStatus(first.transferId()).status());
+
+        service.start();
+        service.stop();
+
+        TransferStatusDTO completed = service.getStatus(first.transferId());
+        assertEquals("SUCCESS", completed.status());
+        assertEquals(first.transferId(), completed.transfer().transferId());
+        assertEquals("SUCCESS", service.getStatus(second.transferId()).status());
+        verify(transferService).transferPending(anyList());
+    }
+
+    @Test
+    void submit_ShouldThrow_WhenQueueIsFull() {
+        AsyncTransferService service = service(1, 100);
+
+        service.submit(request("10.00"));
+
+        assertThrows(TransferQueueFullException.class, () -> service.submit(request("10.00")));
+    }
+
+    @Test
+    void submit_ShouldThrow_WhenAmountIsInvalid() {
+        AsyncTransferService service = service(10, 100);
+
+        assertThrows(InvalidTransferAmountException.class, () -> service.submit(request("0.001")));
+    }
+
+    @Test
+    void worker_ShouldRetryOneByOne_WhenBatchFails() {
+        AsyncTransferService service = service(10, 100);
+        when(transferService.transferPending(anyList())).thenAnswer(inv -> {
+            List<PendingTransfer> batch = inv.getArgument(0);
+            if (batch.size() > 1) {
+                throw new TransferLockTimeoutException();
+            }
+            if (batch.get(0).request().amount().compareTo(new BigDecimal("100.00")) > 0) {
+                return new BatchTransferResponseDTO(BatchTransferMode.BEST_EFFORT, 0, 1, List.of(
+                        new BatchTransferItemResultDTO(0, "FAILED", null, "Недостаточно средств для перевода.")));
+            }
+            return succeedAll(batch);
+        });
+
+        TransferStatusDTO ok = service.submit(request("10.00"));
+        TransferStatusDTO failed = service.submit(request("500.00"));
+
+        service.start();
+        service.stop();
+
+        assertEquals("SUCCESS", service.getStatus(ok.transferId()).status());
+        TransferStatusDTO failedStatus = service.getStatus(failed.transferId());
+        assertEquals("FAILED", failedStatus.status());
+        assertEquals("Недостаточно средств для перевода.", failedStatus.error());
+    }
+
+    @Test
+    void getStatus_ShouldFallBackToLedger_WhenStatusIsNotTracked() {
+        AsyncTransferService service = service(10, 100);
+        UUID transferId = UUID.randomUUID();
+        TransferResponseDTO transfer = new TransferResponseDTO(transferId, 10L, 20L,
+                new BigDecimal("10.00"), LocalDateTime.now(), "SUCCESS");
+        when(transferService.findTransfer(transferId)).thenReturn(transfer);
+
+        TransferStatusDTO status = service.getStatus(transferId);
+
+        assertEquals("SUCCESS", status.status());
+        assertSame(transfer, status.transfer());
+    }
+
+    @Test
+    void getStatus_ShouldThrow_WhenTransferBelongsToAnotherUser() {
+        AsyncTransferService service = service(10, 100);
+        TransferStatusDTO pending = service.submit(request("10.00"));
+
+        securityUtils.when(SecurityUtils::getCurrentUserId).thenReturn(2L);
+
+        assertThrows(TransferNotFoundException.class, () -> service.getStatus(pending.transferId()));
+        verify(transferService, never()).findTransfer(pending.transferId());
+    }
+
+    @Test
+    void getStatus_ShouldForgetFailedStatus_AfterTtlEvenIfNeverPolled() {
+        AsyncTransferService service = service(10, 100, 0, 10_000);
+        when(transferService.transferPending(anyList())).thenReturn(new BatchTransferResponseDTO(
+                BatchTransferMode.BEST_EFFORT, 0, 1, List.of(
+                        new BatchTransferItemResultDTO(0, "FAILED", null, "Недостаточно средств для перевода."))));
+        TransferStatusDTO failed = service.submit(request("500.00"));
+        service.start();
+        service.stop();
+
+        when(transferService.findTransfer(failed.transferId())).thenThrow(new TransferNotFoundException(failed.transferId()));
+        assertThrows(TransferNotFoundException.class, () -> service.getStatus(failed.transferId()));
+    }
+
+    @Test
+    void getStatus_ShouldFallBackToLedger_AfterSuccessfulStatusExpires() {
+        AsyncTransferService service = service(10, 100, 0, 10_000);
+        when(transferService.transferPending(anyList())).thenAnswer(inv -> succeedAll(inv.getArgument(0)));
+        TransferStatusDTO ok = service.submit(request("10.00"));
+        service.start();
+        service.stop();
+
+        service.getStatus(ok.transferId());
+
+        verify(transferService).findTransfer(ok.transferId());
+    }
+
+    @Test
+    void getStatus_ShouldKeepPendingStatus_RegardlessOfTtl() {
+        AsyncTransferService service = service(10, 100, 0, 10_000);
+
+        TransferStatusDTO pending = service.submit(request("10.00"));
+
+        assertEquals("PENDING", service.getStatus(pending.transferId()).status());
+    }
+
+    @Test
+    void submit_ShouldNotEnqueueTwice_WhenIdempotencyKeyRepeated() {
+        AsyncTransferService service = service(1, 100);
+
+        TransferStatusDTO first = service.submit(request("10.00"), "key-1");
+        TransferStatusDTO retry = service.submit(request("10.00"), "key-1");
+
+        assertEquals(first.transferId(), retry.transferId());
+        assertEquals("PENDING", retry.status());
+        verify(idempotencyRepository).save(any());
+    }
+
+    @Test
+    void submit_ShouldThrow_WhenIdempotencyKeyReusedWithOtherRequest() {
+        AsyncTransferService service = service(10, 100);
+
+        service.submit(request("10.00"), "key-1");
+
+        assertThrows(IdempotencyKeyConflictException.class, () -> service.submit(request("20.00"), "key-1"));
+    }
+
+    @Test
+    void submit_ShouldReleaseIdempotencyKey_WhenQueueIsFull() {
+        AsyncTransferService service = service(1, 100);
+        service.submit(request("10.00"));
+
+        assertThrows(TransferQueueFullException.class, () -> service.submit(request("10.00"), "key-1"));
+
+        verify(idempotencyRepository).deleteByKey(USER_ID, "key-1");
+        assertTrue(idempotencyStore.find(USER_ID, "key-1", "async:10:20:1000").isEmpty());
+    }
+
+    @Test
+    void stop_ShouldReturnAfterTimeout_WhenWorkerIsStuck() throws Exception {
+        AsyncTransferService service = service(10, 1, 60_000, 100);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(transferService.transferPending(anyList())).thenAnswer(inv -> {
+            started.countDown();
+            release.await();
+            return succeedAll(inv.getArgument(0));
+        });
+        service.submit(request("10.00"));
+        service.submit(request("20.00"));
+        service.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(5), service::stop);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void stop_ShouldFailQueuedTransfersAndReleaseTheirKeys() {
+        AsyncTransferService service = service(10, 100);
+        TransferStatusDTO queued = service.submit(request("10.00"), "key-1");
+
+        service.stop();
+
+        TransferStatusDTO status = service.getStatus(queued.transferId());
+        assertEquals("FAILED", status.status());
+        verify(idempotencyRepository).deleteByKey(USER_ID, "key-1");
+        assertTrue(idempotencyStore.find(USER_ID, "key-1", "async:10:20:1000").isEmpty());
+        verify(transferService, never()).transferPending(anyList());
+    }
+
+    @Test
+    void submit_ShouldReturnFailed_WhenKeyWasRegisteredButTransferNeverRan() {
+        UUID lostTransferId = UUID.randomUUID();
+        idempotencyStore.remember(USER_ID, "key-1", "async:10:20:1000", new TransferResponseDTO(
+                lostTransferId, 10L, 20L, new BigDecimal("10.00"), LocalDateTime.now(), "PENDING"));
+        when(transferService.findTransfer(lostTransferId)).thenThrow(new TransferNotFoundException(lostTransferId));
+        AsyncTransferService service = service(10, 100);
+
+        TransferStatusDTO retry = service.submit(request("10.00"), "key-1");
+
+        assertEquals(lostTransferId, retry.transferId());
+        assertEquals("FAILED", retry.status());
+    }
+
+    private AsyncTransferService service(int queueCapacity, int batchSize) {
+        return service(queueCapacity, batchSize, 60_000, 10_000);
+    }
+
+    private AsyncTransferService service(int queueCapacity, int batchSize, long statusTtlMs, long shutdownTimeoutMs) {
+        return new AsyncTransferService(transferService, idempotencyStore, queueCapacity, 1, batchSize,
+                statusTtlMs, 1_000, shutdownTimeoutMs, new SimpleMeterRegistry());
+    }
+
+    private static TransferRequestDTO request(String amount) {
+        return new TransferRequestDTO(10L, 20L, new BigDecimal(amount));
+    }
+
+    private static BatchTransferResponseDTO succeedAll(List<PendingTransfer> batch) {
+        List<BatchTransferItemResultDTO> results = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            PendingTransfer transfer = batch.get(i);
+            results.add(new BatchTransferItemResultDTO(i, "SUCCESS", new TransferResponseDTO(
+                    transfer.transferId(),
+                    transfer.request().fromAccountId(),
+                    transfer.request().toAccountId(),
+                    transfer.request().amount(),
+                    LocalDateTime.now(),
+                    "SUCCESS"), null));
+        }
+        return new BatchTransferResponseDTO(BatchTransferMode.BEST_EFFORT, batch.size(), 0, results);
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardDTO;
+import com.example.bankcards.dto.CardPageDTO;
+import com.example.bankcards.entity.Account;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.AccountRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.RoleRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.UserDetailsImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Проверяет keyset-пагинацию списка карт администратора на H2 со схемой из миграций Liquibase.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CardAdminPagingTest {
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoSpyBean
+    private JdbcTemplate jdbcTemplate;
+
+    private CardService cardService;
+    private Statistics statistics;
+    private List<Long> blockedIds;
+    private long firstId;
+
+    @BeforeEach
+    void setUp() {
+        cardService = new CardService(cardRepository, accountRepository,
+                new CardBalanceCache(cardRepository, true, 100, 60_000, new SimpleMeterRegistry()), new CardSetVersions(true, 1024), 50, 500);
+
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Account account = account(user());
+            for (int j = 0; j < 4; j++) {
+                CardStatus status = j == 0 ? CardStatus.BLOCKED : CardStatus.ACTIVE;
+                cards.add(card(account, status, LocalDate.of(2027, 1 + j, 1)));
+            }
+        }
+        List<Card> saved = cardRepository.saveAll(cards);
+        firstId = saved.getFirst().getId() - 1;
+        blockedIds = saved.stream()
+                .filter(card -> card.getStatus() == CardStatus.BLOCKED)
+                .map(Card::getId)
+                .toList();
+
+        UserDetailsImpl admin = new UserDetailsImpl(0L, "admin", "", List.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(admin, null, admin.getAuthorities()));
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void getAllCardsForAdmin_ShouldWalkFilteredPagesWithOneQueryEach() {
+        List<Long> seen = new ArrayList<>();
+        String cursor = CardService.encodeCursor(firstId);
+        int pages = 0;
+
+        do {
+            statistics.clear();
+            clearInvocations(jdbcTemplate);
+            CardPageDTO page = cardService.getAllCardsForAdmin(cursor, 2, CardStatus.BLOCKED, null, null);
+            assertEquals(0, statistics.getPrepareStatementCount());
+            verify(jdbcTemplate, times(1)).query(anyString(), any(RowMapper.class), any(Object[].class));
+            page.items().forEach(card -> seen.add(card.id()));
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(blockedIds, seen);
+        assertEquals(2, pages);
+    }
+
+    @Test
+    void getAllCardsForAdmin_ShouldFilterByExpirationRange() {
+        CardPageDTO page = cardService.getAllCardsForAdmin(CardService.encodeCursor(firstId), 50, null,
+                LocalDate.of(2027, 2, 1), LocalDate.of(2027, 3, 1));
+
+        assertEquals(6, page.items().size());
+        page.items().stream()
+                .map(CardDTO::expirationDate)
+                .forEach(date -> assertTrue(date.getMonthValue() == 2 || date.getMonthValue() == 3, date::toString));
+        assertNull(page.nextCursor());
+    }
+
+    private User user() {
+        User user = new User();
+        user.setUsername("user-" + UUID.randomUUID());
+        user.setPassword("password");
+        user.setFirstName("Test");
+        user.setSecondName("User");
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        user.setRole(roleRepository.findByRoleName("ROLE_USER").orElseThrow());
+        return userRepository.save(user);
+    }
+
+    private Account account(User owner) {
+        Account account = new Account();
+        account.setUser(owner);
+        account.setBalance(0L);
+        return accountRepository.save(account);
+    }
+
+    private static Card card(Account account, CardStatus status, LocalDate expirationDate) {
+        Card card = new Card();
+        card.setCardNumber("4000123412341234");
+        card.setAccount(account);
+        card.setExpirationDate(expirationDate);
+        card.setStatus(status);
+        card.setBalance(0L);
+        return card;
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardView;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CardBalanceCacheTest {
+
+    private CardRepository cardRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private CardBalanceCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cardRepository = mock(CardRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new CardBalanceCache(cardRepository, true, 100, 60_000, meterRegistry);
+        when(cardRepository.findViewById(1L)).thenReturn(Optional.of(view(1L, 7L, 10_00L)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void find_ShouldReadDatabaseOnce_WhenCardIsRequestedRepeatedly() {
+        CardBalanceCache.CachedBalance first = cache.find(1L).orElseThrow();
+        CardBalanceCache.CachedBalance second = cache.find(1L).orElseThrow();
+
+        assertEquals(new CardBalanceCache.CachedBalance(7L, 10_00L), first);
+        assertEquals(first, second);
+        verify(cardRepository, times(1)).findViewById(1L);
+    }
+
+    @Test
+    void find_ShouldNotCacheMissingCard() {
+        when(cardRepository.findViewById(2L)).thenReturn(Optional.empty());
+
+        assertTrue(cache.find(2L).isEmpty());
+        assertTrue(cache.find(2L).isEmpty());
+        verify(cardRepository, times(2)).findViewById(2L);
+    }
+
+    @Test
+    void find_ShouldReadDatabaseEveryTime_WhenCacheIsDisabled() {
+        CardBalanceCache disabled = new CardBalanceCache(cardRepository, false, 100, 60_000, new SimpleMeterRegistry());
+
+        disabled.find(1L);
+        when(cardRepository.findViewById(1L)).thenReturn(Optional.of(view(1L, 7L, 5_00L)));
+
+        assertEquals(5_00L, disabled.find(1L).orElseThrow().balance());
+        verify(cardRepository, times(2)).findViewById(1L);
+    }
+
+    @Test
+    void find_ShouldReloadBalance_AfterTtlExpires() {
+        CardBalanceCache shortLived = new CardBalanceCache(cardRepository, true, 100, 0, new SimpleMeterRegistry());
+
+        shortLived.find(1L);
+        when(cardRepository.findViewById(1L)).thenReturn(Optional.of(view(1L, 7L, 5_00L)));
+
+        assertEquals(5_00L, shortLived.find(1L).orElseThrow().balance());
+    }
+
+    @Test
+    void evictAfterCompletion_ShouldEvictImmediately_WhenNoTransactionIsActive() {
+        cache.find(1L);
+        when(cardRepository.findViewById(1L)).thenReturn(Optional.of(view(1L, 7L, 5_00L)));
+
+        cache.evictAfterCompletion(List.of(1L));
+
+        assertEquals(5_00L, cache.find(1L).orElseThrow().balance());
+    }
+
+    @Test
+    void evictAfterCompletion_ShouldKeepEntryUntilTransactionCompletes() {
+        cache.find(1L);
+        when(cardRepository.findViewById(1L)).thenReturn(Optional.of(view(1L, 7L, 5_00L)));
+        TransactionSynchronizationManager.initSynchronization();
+
+        cache.evictAfterCompletion(List.of(1L));
+        assertEquals(10_00L, cache.find(1L).orElseThrow().balance());
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        assertEquals(5_00L, cache.find(1L).orElseThrow().balance());
+    }
+
+    @Test
+    void evictAllAfterCompletion_ShouldClearCacheWhenTransactionCompletes() {
+        when(cardRepository.findViewById(2L)).thenReturn(Optional.of(view(2L, 8L, 20_00L)));
+        cache.find(1L);
+        cache.find(2L);
+        TransactionSynchronizationManager.initSynchronization();
+
+        cache.evictAllAfterCompletion();
+        cache.find(1L);
+        verify(cardRepository, times(1)).findViewById(1L);
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        cache.find(1L);
+        cache.find(2L);
+
+        verify(cardRepository, times(2)).findViewById(1L);
+        verify(cardRepository, times(2)).findViewById(2L);
+    }
+
+    @Test
+    void find_ShouldPublishHitAndMissMetrics() {
+        cache.find(1L);
+        cache.find(1L);
+
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "card.balance").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "card.balance").tag("result", "miss")
+                .functionCounter().count());
+        assertNotNull(meterRegistry.find("cache.evictions").tag("cache", "card.balance").meter());
+    }
+
+    private static CardView view(Long id, Long ownerId, long balance) {
+        return new CardView(id, "encrypted", "1234", ownerId, LocalDate.now().plusYears(3), balance, CardStatus.ACTIVE);
+    }
+}
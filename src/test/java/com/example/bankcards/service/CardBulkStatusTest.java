@@ -0,0 +1,213 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BulkCardStatusRequestDTO;
+import com.example.bankcards.dto.BulkCardStatusResponseDTO;
+import com.example.bankcards.entity.Account;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.InvalidBulkStatusRequestException;
+import com.example.bankcards.repository.AccountRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.RoleRepository;
+import com.example.bankcards.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Проверяет массовую смену статуса карт одним запросом UPDATE на H2 со схемой из миграций Liquibase.
+ * Запрос выполняется через JdbcTemplate и в статистику Hibernate не входит, поэтому обращения
+ * к JdbcTemplate считаются отдельно.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CardBulkStatusTest {
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoSpyBean
+    private JdbcTemplate jdbcTemplate;
+
+    private CardService cardService;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        cardService = new CardService(cardRepository, accountRepository,
+                new CardBalanceCache(cardRepository, true, 100, 60_000, new SimpleMeterRegistry()), new CardSetVersions(true, 1024), 50, 500);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void updateStatuses_ShouldBlockAllCardsOfUserInOneStatement() {
+        User owner = user();
+        Account first = account(owner);
+        Account second = account(owner);
+        Card active = cardRepository.save(card(first, "4000001234561234", CardStatus.ACTIVE));
+        Card blocked = cardRepository.save(card(first, "4000001234561235", CardStatus.BLOCKED));
+        Card expired = cardRepository.save(card(second, "4000001234561236", CardStatus.EXPIRED));
+        Card other = cardRepository.save(card(second, "4000001234561237", CardStatus.ACTIVE));
+        Card foreign = cardRepository.save(card(account(user()), "4000001234561238", CardStatus.ACTIVE));
+
+        statistics.clear();
+        clearInvocations(jdbcTemplate);
+        BulkCardStatusResponseDTO response = update(
+                new BulkCardStatusRequestDTO(CardStatus.BLOCKED, owner.getId(), null, null, null));
+
+        assertEquals(new BulkCardStatusResponseDTO(CardStatus.BLOCKED, 2), response);
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate, times(1)).update(sql.capture(), any(Object[].class));
+        assertFalse(sql.getValue().contains("IS NULL"));
+        assertFalse(sql.getValue().contains("card_bin"));
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+
+        assertEquals(CardStatus.BLOCKED, reload(active).getStatus());
+        assertEquals(active.getVersion() + 1, reload(active).getVersion());
+        assertEquals(blocked.getVersion(), reload(blocked).getVersion());
+        assertEquals(CardStatus.EXPIRED, reload(expired).getStatus());
+        assertEquals(CardStatus.BLOCKED, reload(other).getStatus());
+        assertEquals(CardStatus.ACTIVE, reload(foreign).getStatus());
+    }
+
+    @Test
+    void updateStatuses_ShouldCombineAccountAndStatusFilters() {
+        Account account = account(user());
+        Account sibling = account(user());
+        Card blocked = cardRepository.save(card(account, "4000001234560001", CardStatus.BLOCKED));
+        Card active = cardRepository.save(card(account, "4000001234560002", CardStatus.ACTIVE));
+        Card siblingCard = cardRepository.save(card(sibling, "4000001234560003", CardStatus.BLOCKED));
+
+        BulkCardStatusResponseDTO response = update(
+                new BulkCardStatusRequestDTO(CardStatus.ACTIVE, null, account.getId(), null, null));
+
+        assertEquals(1, response.updated());
+        assertEquals(CardStatus.ACTIVE, reload(blocked).getStatus());
+        assertEquals(active.getVersion(), reload(active).getVersion());
+        assertEquals(CardStatus.BLOCKED, reload(siblingCard).getStatus());
+    }
+
+    @Test
+    void updateStatuses_ShouldNotActivateCardPastExpiry() {
+        Account account = account(user());
+        Card stale = card(account, "4000001234560011", CardStatus.BLOCKED);
+        stale.setExpirationDate(LocalDate.now().minusDays(1));
+        stale = cardRepository.save(stale);
+        Card lastDay = card(account, "4000001234560012", CardStatus.BLOCKED);
+        lastDay.setExpirationDate(LocalDate.now());
+        lastDay = cardRepository.save(lastDay);
+
+        BulkCardStatusResponseDTO response = update(
+                new BulkCardStatusRequestDTO(CardStatus.ACTIVE, null, account.getId(), null, null));
+
+        assertEquals(1, response.updated());
+        assertEquals(CardStatus.BLOCKED, reload(stale).getStatus());
+        assertEquals(stale.getVersion(), reload(stale).getVersion());
+        assertEquals(CardStatus.ACTIVE, reload(lastDay).getStatus());
+    }
+
+    @Test
+    void updateStatuses_ShouldBlockCardsInBinRange() {
+        Account account = account(user());
+        Card lower = cardRepository.save(card(account, "9123001234561234", CardStatus.ACTIVE));
+        Card upper = cardRepository.save(card(account, "9123991234561234", CardStatus.ACTIVE));
+        Card outside = cardRepository.save(card(account, "9124001234561234", CardStatus.ACTIVE));
+
+        BulkCardStatusResponseDTO response = update(
+                new BulkCardStatusRequestDTO(CardStatus.BLOCKED, null, null, "912300", "912399"));
+
+        assertEquals(2, response.updated());
+        assertEquals("912300", reload(lower).getCardBin());
+        assertEquals(CardStatus.BLOCKED, reload(lower).getStatus());
+        assertEquals(CardStatus.BLOCKED, reload(upper).getStatus());
+        assertEquals(CardStatus.ACTIVE, reload(outside).getStatus());
+    }
+
+    @Test
+    void updateStatuses_ShouldThrow_WhenNoFilterIsSet() {
+        assertThrows(InvalidBulkStatusRequestException.class, () -> cardService.updateStatuses(
+                new BulkCardStatusRequestDTO(CardStatus.BLOCKED, null, null, null, null)));
+    }
+
+    @Test
+    void updateStatuses_ShouldThrow_WhenStatusIsExpired() {
+        assertThrows(InvalidBulkStatusRequestException.class, () -> cardService.updateStatuses(
+                new BulkCardStatusRequestDTO(CardStatus.EXPIRED, 1L, null, null, null)));
+    }
+
+    private BulkCardStatusResponseDTO update(BulkCardStatusRequestDTO request) {
+        return new TransactionTemplate(transactionManager).execute(status -> cardService.updateStatuses(request));
+    }
+
+    private Card reload(Card card) {
+        return cardRepository.findById(card.getId()).orElseThrow();
+    }
+
+    private User user() {
+        User user = new User();
+        user.setUsername("user-" + UUID.randomUUID());
+        user.setPassword("password");
+        user.setFirstName("Test");
+        user.setSecondName("User");
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        user.setRole(roleRepository.findByRoleName("ROLE_USER").orElseThrow());
+        return userRepository.save(user);
+    }
+
+    private Account account(User owner) {
+        Account account = new Account();
+        account.setUser(owner);
+        account.setBalance(0L);
+        return accountRepository.save(account);
+    }
+
+    private static Card card(Account account, String cardNumber, CardStatus status) {
+        Card card = new Card();
+        card.setCardNumber(cardNumber);
+        card.setAccount(account);
+        card.setExpirationDate(LocalDate.now().plusYears(3));
+        card.setStatus(status);
+        card.setBalance(0L);
+        return card;
+    }
+}
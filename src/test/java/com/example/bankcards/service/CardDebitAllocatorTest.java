@@ -0,0 +1,61 @@
+package com.example.bankcards.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class CardDebitAllocatorTest {
+
+    private static final long[] BALANCES = {100_00L, 300_00L, 50_00L, 200_00L};
+
+    @Test
+    void sequential_ShouldDrainCardsInOrder() {
+        assertArrayEquals(new long[]{100_00L, 150_00L, 0L, 0L},
+                new SequentialCardDebitAllocator().allocate(BALANCES, 250_00L));
+    }
+
+    @Test
+    void largestFirst_ShouldDrainLargestBalancesFirst() {
+        assertArrayEquals(new long[]{0L, 300_00L, 0L, 100_00L},
+                new LargestBalanceFirstDebitAllocator().allocate(BALANCES, 400_00L));
+    }
+
+    @Test
+    void largestFirst_ShouldPreferLowerIndex_WhenBalancesAreEqual() {
+        assertArrayEquals(new long[]{40_00L, 0L},
+                new LargestBalanceFirstDebitAllocator().allocate(new long[]{50_00L, 50_00L}, 40_00L));
+    }
+
+    @Test
+    void fewestCards_ShouldUseSmallestSingleCoveringCard() {
+        assertArrayEquals(new long[]{0L, 0L, 0L, 150_00L},
+                new FewestCardsDebitAllocator().allocate(BALANCES, 150_00L));
+    }
+
+    @Test
+    void fewestCards_ShouldFallBackToLargestFirst_WhenNoSingleCardCovers() {
+        assertArrayEquals(new long[]{0L, 300_00L, 0L, 200_00L},
+                new FewestCardsDebitAllocator().allocate(BALANCES, 500_00L));
+    }
+
+    @Test
+    void spreadEvenly_ShouldSplitAmountAndPutRemainderOnLargerCards() {
+        assertArrayEquals(new long[]{3L, 3L, 4L},
+                new SpreadEvenlyDebitAllocator().allocate(new long[]{100L, 100L, 100L}, 10L));
+    }
+
+    @Test
+    void spreadEvenly_ShouldDrainSmallCardsAndShareShortfall() {
+        assertArrayEquals(new long[]{100_00L, 116_67L, 50_00L, 116_66L},
+                new SpreadEvenlyDebitAllocator().allocate(BALANCES, 383_33L));
+    }
+
+    @Test
+    void allStrategies_ShouldDebitAtMostTotalBalance() {
+        long[] expected = BALANCES.clone();
+        assertArrayEquals(expected, new SequentialCardDebitAllocator().allocate(BALANCES, 1_000_00L));
+        assertArrayEquals(expected, new LargestBalanceFirstDebitAllocator().allocate(BALANCES, 1_000_00L));
+        assertArrayEquals(expected, new FewestCardsDebitAllocator().allocate(BALANCES, 1_000_00L));
+        assertArrayEquals(expected, new SpreadEvenlyDebitAllocator().allocate(BALANCES, 1_000_00L));
+    }
+}
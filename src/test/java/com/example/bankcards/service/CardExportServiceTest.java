@@ -0,0 +1,160 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Account;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.AccountRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.RoleRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.UserDetailsImpl;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет выгрузку карт в NDJSON на H2 со схемой из миграций Liquibase.
+ */
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CardExportServiceTest {
+
+    private static final int CHUNK_SIZE = 2;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private CardExportService cardExportService;
+    private List<Long> cardIds;
+
+    @BeforeEach
+    void setUp() {
+        cardExportService = new CardExportService(cardRepository,
+                new CardService(cardRepository, accountRepository,
+                        new CardBalanceCache(cardRepository, true, 100, 60_000, new SimpleMeterRegistry()), new CardSetVersions(true, 1024), 50, 500),
+                objectMapper, CHUNK_SIZE);
+
+        Account account = account(user());
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            cards.add(card(account));
+        }
+        cardIds = cardRepository.saveAll(cards).stream().map(Card::getId).toList();
+
+        UserDetailsImpl admin = new UserDetailsImpl(0L, "admin", "", List.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(admin, null, admin.getAuthorities()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void exportAll_ShouldWriteOneMaskedCardPerLineInIdOrder() throws Exception {
+        long total = cardRepository.count();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long exported = new TransactionTemplate(transactionManager).execute(status -> cardExportService.exportAll(out));
+
+        String body = out.toString(StandardCharsets.UTF_8);
+        assertTrue(body.endsWith("\n"));
+        String[] lines = body.split("\n");
+        assertEquals(total, exported);
+        assertEquals(total, lines.length);
+
+        List<Long> exportedIds = new ArrayList<>();
+        for (String line : lines) {
+            JsonNode card = objectMapper.readTree(line);
+            exportedIds.add(card.get("id").asLong());
+            assertTrue(card.get("cardNumber").asText().startsWith("****"), line);
+        }
+        assertEquals(exportedIds.stream().sorted().toList(), exportedIds);
+        assertTrue(exportedIds.containsAll(cardIds));
+    }
+
+    @Test
+    void exportAll_ShouldNotKeepManagedEntities() {
+        int managedEntities = new TransactionTemplate(transactionManager).execute(status -> {
+            cardExportService.exportAll(new ByteArrayOutputStream());
+            return entityManager.unwrap(Session.class).getStatistics().getEntityCount();
+        });
+
+        assertEquals(0, managedEntities);
+    }
+
+    private User user() {
+        User user = new User();
+        user.setUsername("user-" + UUID.randomUUID());
+        user.setPassword("password");
+        user.setFirstName("Test");
+        user.setSecondName("User");
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        user.setRole(roleRepository.findByRoleName("ROLE_USER").orElseThrow());
+        return userRepository.save(user);
+    }
+
+    private Account account(User owner) {
+        Account account = new Account();
+        account.setUser(owner);
+        account.setBalance(0L);
+        return accountRepository.save(account);
+    }
+
+    private static Card card(Account account) {
+        Card card = new Card();
+        card.setCardNumber("4000123412341234");
+        card.setAccount(account);
+        card.setExpirationDate(LocalDate.now().plusYears(3));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(0L);
+        return card;
+    }
+}
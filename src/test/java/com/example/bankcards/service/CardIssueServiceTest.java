@@ -0,0 +1,317 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BulkCardIssueItemDTO;
+import com.example.bankcards.dto.BulkCardIssueRequestDTO;
+import com.example.bankcards.dto.BulkCardIssueResponseDTO;
+import com.example.bankcards.dto.CardDTO;
+import com.example.bankcards.entity.Account;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.InvalidBulkIssueRequestException;
+import com.example.bankcards.repository.AccountRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.RoleRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.UserDetailsImpl;
+import com.example.bankcards.util.EncryptionUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет массовый выпуск карт и выпуск карты пользователем на H2 со схемой из миграций Liquibase.
+ * Вставка карт выполняется через JdbcTemplate и в статистику Hibernate не входит.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CardIssueServiceTest {
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private CardService cardService;
+    private CardIssueService cardIssueService;
+    private CardSetVersions cardSetVersions;
+    private Statistics statistics;
+
+    private Account withActiveCard;
+    private Account withBlockedCard;
+    private Account withoutCards;
+
+    @BeforeEach
+    void setUp() {
+        cardSetVersions = new CardSetVersions(true, 1024);
+        cardService = new CardService(cardRepository, accountRepository,
+                new CardBalanceCache(cardRepository, true, 100, 60_000, new SimpleMeterRegistry()), cardSetVersions, 50, 500);
+        cardIssueService = new CardIssueService(accountRepository, cardRepository, cardService, cardSetVersions, 1000);
+
+        withActiveCard = account(user(), 70_00L);
+        cardRepository.save(card(withActiveCard, CardStatus.ACTIVE, 70_00L));
+        withBlockedCard = account(user(), 30_00L);
+        cardRepository.save(card(withBlockedCard, CardStatus.BLOCKED, 30_00L));
+        withoutCards = account(user(), 10_00L);
+
+        authenticateAdmin();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void issueCards_ShouldIssueOneCardPerListedAccountAfterLockingAccounts() {
+        String etagBefore = cardSetVersions.etagFor(withoutCards.getUser().getId());
+
+        BulkCardIssueResponseDTO response = issue(new BulkCardIssueRequestDTO(
+                List.of(withActiveCard.getId(), withBlockedCard.getId(), withoutCards.getId(), -1L), null));
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(3, response.issued());
+        assertEquals(0, response.skipped());
+        assertEquals(1, response.failed());
+        assertEquals(List.of(withActiveCard.getId(), withBlockedCard.getId(), withoutCards.getId(), -1L),
+                response.results().stream().map(BulkCardIssueItemDTO::accountId).toList());
+        assertEquals("FAILED", response.results().get(3).status());
+        assertNull(response.results().get(3).card());
+
+        BulkCardIssueItemDTO first = response.results().get(0);
+        assertEquals("ISSUED", first.status());
+        assertTrue(first.card().cardNumber().startsWith("****"), first.card().cardNumber());
+        Card stored = cardRepository.findById(first.card().id()).orElseThrow();
+        assertEquals(CardStatus.ACTIVE, stored.getStatus());
+        assertEquals(0L, stored.getBalance());
+        String cardNumber = EncryptionUtil.decrypt(stored.getEncryptedCardNumber());
+        assertEquals(16, cardNumber.length());
+        assertEquals(cardNumber.substring(0, 6), stored.getCardBin());
+        assertEquals(cardNumber.substring(12), stored.getCardLast4());
+        assertEquals("**** **** **** " + stored.getCardLast4(), first.card().cardNumber());
+
+        assertEquals(30_00L, cardRepository.findById(response.results().get(1).card().id()).orElseThrow().getBalance());
+        assertEquals(10_00L, cardRepository.findById(response.results().get(2).card().id()).orElseThrow().getBalance());
+        assertNotEquals(etagBefore, cardSetVersions.etagFor(withoutCards.getUser().getId()));
+    }
+
+    @Test
+    void issueCards_ShouldSkipListedAccountsWithActiveCards_WhenFilterIsSet() {
+        BulkCardIssueResponseDTO response = issue(new BulkCardIssueRequestDTO(
+                List.of(withActiveCard.getId(), withoutCards.getId()), true));
+
+        assertEquals(1, response.issued());
+        assertEquals(1, response.skipped());
+        assertEquals("SKIPPED", response.results().get(0).status());
+        assertEquals("ISSUED", response.results().get(1).status());
+    }
+
+    @Test
+    void issueCards_ShouldSelectAccountsWithoutActiveCards_WhenOnlyFilterIsSet() {
+        BulkCardIssueResponseDTO response = issue(new BulkCardIssueRequestDTO(null, true));
+
+        Set<Long> accountIds = new HashSet<>(response.results().stream().map(BulkCardIssueItemDTO::accountId).toList());
+        assertTrue(accountIds.contains(withBlockedCard.getId()));
+        assertTrue(accountIds.contains(withoutCards.getId()));
+        assertFalse(accountIds.contains(withActiveCard.getId()));
+        assertEquals(response.results().size(), response.issued());
+
+        BulkCardIssueResponseDTO repeated = issue(new BulkCardIssueRequestDTO(null, true));
+        assertEquals(0, repeated.issued());
+    }
+
+    @Test
+    void issueCards_ShouldGiveAccountBalanceToOneCard_WhenSameAccountIsIssuedConcurrently() throws Exception {
+        BulkCardIssueRequestDTO request = new BulkCardIssueRequestDTO(List.of(withoutCards.getId()), null);
+        CountDownLatch firstIssued = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<BulkCardIssueResponseDTO> first = executor.submit(() -> {
+                authenticateAdmin();
+                return new TransactionTemplate(transactionManager).execute(status -> {
+                    BulkCardIssueResponseDTO response = cardIssueService.issueCards(request);
+                    firstIssued.countDown();
+                    try {
+                        releaseFirst.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return response;
+                });
+            });
+            assertTrue(firstIssued.await(5, TimeUnit.SECONDS));
+
+            Future<BulkCardIssueResponseDTO> second = executor.submit(() -> {
+                authenticateAdmin();
+                return issue(request);
+            });
+            Thread.sleep(200);
+            assertFalse(second.isDone());
+            releaseFirst.countDown();
+
+            Long firstCardId = first.get(5, TimeUnit.SECONDS).results().get(0).card().id();
+            Long secondCardId = second.get(5, TimeUnit.SECONDS).results().get(0).card().id();
+            assertEquals(10_00L, cardRepository.findById(firstCardId).orElseThrow().getBalance());
+            assertEquals(0L, cardRepository.findById(secondCardId).orElseThrow().getBalance());
+        } finally {
+            releaseFirst.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void createCard_ShouldCountBlockedCardsButNotExpiredCards_WhenSplittingAccountBalance() {
+        authenticateUser(withBlockedCard.getUser().getId());
+        Long besideBlockedCardId = createCard().id();
+
+        Account withExpiredCard = account(user(), 20_00L);
+        cardRepository.save(card(withExpiredCard, CardStatus.EXPIRED, 20_00L));
+        authenticateUser(withExpiredCard.getUser().getId());
+        Long besideExpiredCardId = createCard().id();
+
+        assertEquals(0L, cardRepository.findById(besideBlockedCardId).orElseThrow().getBalance());
+        assertEquals(20_00L, cardRepository.findById(besideExpiredCardId).orElseThrow().getBalance());
+    }
+
+    @Test
+    void createCard_ShouldGiveAccountBalanceToOneCard_WhenCardsAreCreatedConcurrently() throws Exception {
+        Long userId = withoutCards.getUser().getId();
+        CountDownLatch firstCreated = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<CardDTO> first = executor.submit(() -> {
+                authenticateUser(userId);
+                return new TransactionTemplate(transactionManager).execute(status -> {
+                    CardDTO card = cardService.createCard();
+                    firstCreated.countDown();
+                    try {
+                        releaseFirst.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return card;
+                });
+            });
+            assertTrue(firstCreated.await(5, TimeUnit.SECONDS));
+
+            Future<CardDTO> second = executor.submit(() -> {
+                authenticateUser(userId);
+                return createCard();
+            });
+            Thread.sleep(200);
+            assertFalse(second.isDone());
+            releaseFirst.countDown();
+
+            Long firstCardId = first.get(5, TimeUnit.SECONDS).id();
+            Long secondCardId = second.get(5, TimeUnit.SECONDS).id();
+            assertEquals(10_00L, cardRepository.findById(firstCardId).orElseThrow().getBalance());
+            assertEquals(0L, cardRepository.findById(secondCardId).orElseThrow().getBalance());
+        } finally {
+            releaseFirst.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void issueCards_ShouldThrow_WhenNeitherAccountsNorFilterAreSet() {
+        assertThrows(InvalidBulkIssueRequestException.class,
+                () -> cardIssueService.issueCards(new BulkCardIssueRequestDTO(List.of(), false)));
+    }
+
+    private BulkCardIssueResponseDTO issue(BulkCardIssueRequestDTO request) {
+        return new TransactionTemplate(transactionManager).execute(status -> cardIssueService.issueCards(request));
+    }
+
+    private CardDTO createCard() {
+        return new TransactionTemplate(transactionManager).execute(status -> cardService.createCard());
+    }
+
+    private static void authenticateUser(Long userId) {
+        UserDetailsImpl user = new UserDetailsImpl(userId, "user", "", List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+
+    private static void authenticateAdmin() {
+        UserDetailsImpl admin = new UserDetailsImpl(0L, "admin", "", List.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(admin, null, admin.getAuthorities()));
+    }
+
+    private User user() {
+        User user = new User();
+        user.setUsername("user-" + UUID.randomUUID());
+        user.setPassword("password");
+        user.setFirstName("Test");
+        user.setSecondName("User");
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        user.setRole(roleRepository.findByRoleName("ROLE_USER").orElseThrow());
+        return userRepository.save(user);
+    }
+
+    private Account account(User owner, long balance) {
+        Account account = new Account();
+        account.setUser(owner);
+        account.setBalance(balance);
+        return accountRepository.save(account);
+    }
+
+    private static Card card(Account account, CardStatus status, long balance) {
+        Card card = new Card();
+        card.setCardNumber("4000123412341234");
+        card.setAccount(account);
+        card.setExpirationDate(LocalDate.now().plusYears(3));
+        card.setStatus(status);
+        card.setBalance(balance);
+        return card;
+    }
+}
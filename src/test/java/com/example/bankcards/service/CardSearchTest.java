@@ -0,0 +1,163 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardDTO;
+import com.example.bankcards.dto.CardPageDTO;
+import com.example.bankcards.entity.Account;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.InvalidCardSearchRequestException;
+import com.example.bankcards.repository.AccountRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.RoleRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.UserDetailsImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет поиск карт администратором на H2 со схемой и индексами из миграций Liquibase.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CardSearchTest {
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private CardService cardService;
+    private User owner;
+    private List<Long> ownerCardIds;
+
+    @BeforeEach
+    void setUp() {
+        cardService = new CardService(cardRepository, accountRepository,
+                new CardBalanceCache(cardRepository, true, 100, 60_000, new SimpleMeterRegistry()), new CardSetVersions(true, 1024), 50, 500);
+
+        owner = user();
+        Account account = account(owner);
+        Account other = account(user());
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            CardStatus status = i == 0 ? CardStatus.BLOCKED : CardStatus.ACTIVE;
+            cards.add(card(account, "400000123456" + (7700 + i), status, LocalDate.of(2027, 1 + i, 1)));
+        }
+        cards.add(card(other, "4000001234567700", CardStatus.ACTIVE, LocalDate.of(2027, 1, 1)));
+        ownerCardIds = cardRepository.saveAll(cards).stream().limit(5).map(Card::getId).toList();
+
+        UserDetailsImpl admin = new UserDetailsImpl(0L, "admin", "", List.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(admin, null, admin.getAuthorities()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void searchCardsForAdmin_ShouldFilterByLast4AndOwner() {
+        CardPageDTO page = cardService.searchCardsForAdmin(null, null, "7700", null, owner.getId(), null, null);
+
+        assertEquals(List.of(ownerCardIds.getFirst()), page.items().stream().map(CardDTO::id).toList());
+        assertEquals("**** **** **** 7700", page.items().getFirst().cardNumber());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void searchCardsForAdmin_ShouldCombineStatusAndExpiryRange() {
+        CardPageDTO page = cardService.searchCardsForAdmin(null, null, null, CardStatus.ACTIVE, owner.getId(),
+                LocalDate.of(2027, 1, 1), LocalDate.of(2027, 3, 1));
+
+        assertEquals(ownerCardIds.subList(1, 3), page.items().stream().map(CardDTO::id).toList());
+    }
+
+    @Test
+    void searchCardsForAdmin_ShouldPageByCursor() {
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            CardPageDTO page = cardService.searchCardsForAdmin(cursor, 2, null, null, owner.getId(), null, null);
+            assertTrue(page.items().size() <= 2);
+            page.items().forEach(card -> seen.add(card.id()));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        assertEquals(ownerCardIds, seen);
+    }
+
+    @Test
+    void searchCardsForAdmin_ShouldThrow_WhenLast4IsMalformed() {
+        assertThrows(InvalidCardSearchRequestException.class,
+                () -> cardService.searchCardsForAdmin(null, null, "12a4", null, null, null, null));
+    }
+
+    @Test
+    void searchByLast4_ShouldUseCompositeIndex() {
+        String plan = jdbcTemplate.queryForObject(
+                "EXPLAIN SELECT c.id FROM bank_cards c WHERE c.id > 0 AND c.card_last4 = '7700' ORDER BY c.id",
+                String.class);
+
+        assertTrue(plan.toUpperCase().contains("IDX_BANK_CARDS_LAST4_ID"), plan);
+    }
+
+    private User user() {
+        User user = new User();
+        user.setUsername("user-" + UUID.randomUUID());
+        user.setPassword("password");
+        user.setFirstName("Test");
+        user.setSecondName("User");
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        user.setRole(roleRepository.findByRoleName("ROLE_USER").orElseThrow());
+        return userRepository.save(user);
+    }
+
+    private Account account(User owner) {
+        Account account = new Account();
+        account.setUser(owner);
+        account.setBalance(0L);
+        return accountRepository.save(account);
+    }
+
+    private static Card card(Account account, String cardNumber, CardStatus status, LocalDate expirationDate) {
+        Card card = new Card();
+        card.setCardNumber(cardNumber);
+        card.setAccount(account);
+        card.setExpirationDate(expirationDate);
+        card.setStatus(status);
+        card.setBalance(0L);
+        return card;
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardDTO;
+import com.example.bankcards.dto.CardPageDTO;
+import com.example.bankcards.dto.CardSummaryDTO;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.exception.AccessDeniedException;
+import com.example.bankcards.exception.InvalidPageCursorException;
+import com.example.bankcards.repository.AccountRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardSearchFilter;
+import com.example.bankcards.repository.CardStatusTotals;
+import com.example.bankcards.repository.CardView;
+import com.example.bankcards.security.UserDetailsImpl;
+import com.example.bankcards.util.EncryptionUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CardServiceListingTest {
+
+    private static final String CARD_NUMBER = "4000123412341234";
+
+    private CardRepository cardRepository;
+    private CardService cardService;
+
+    @BeforeEach
+    void setUp() {
+        cardRepository = mock(CardRepository.class);
+        cardService = new CardService(cardRepository, mock(AccountRepository.class),
+                new CardBalanceCache(cardRepository, true, 100, 60_000, new SimpleMeterRegistry()), new CardSetVersions(true, 1024), 2, 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void getAllCardsForAdmin_ShouldMaskNumbers_WhenCallerIsAdmin() {
+        authenticate("ROLE_ADMIN");
+        when(cardRepository.searchPage(any(), anyLong(), anyInt()))
+                .thenReturn(List.of(card(1L), card(2L)));
+
+        CardPageDTO page = cardService.getAllCardsForAdmin(null, null, null, null, null);
+
+        assertEquals(List.of(1L, 2L), page.items().stream().map(CardDTO::id).toList());
+        page.items().forEach(card -> assertEquals("**** **** **** 1234", card.cardNumber()));
+    }
+
+    @Test
+    void getAllCardsForAdmin_ShouldMaskNumbersWithoutDecrypting() {
+        authenticate("ROLE_ADMIN");
+        when(cardRepository.searchPage(any(), anyLong(), anyInt()))
+                .thenReturn(List.of(new CardView(1L, "not a ciphertext", "9876", 7L,
+                        LocalDate.now().plusYears(3), 0L, CardStatus.ACTIVE)));
+
+        CardPageDTO page = cardService.getAllCardsForAdmin(null, null, null, null, null);
+
+        assertEquals("**** **** **** 9876", page.items().getFirst().cardNumber());
+    }
+
+    @Test
+    void getAllCardsForAdmin_ShouldReturnCursorOfLastCard_WhenMoreCardsExist() {
+        authenticate("ROLE_ADMIN");
+        when(cardRepository.searchPage(any(), eq(0L), eq(3)))
+                .thenReturn(List.of(card(5L), card(8L), card(13L)));
+        when(cardRepository.searchPage(any(), eq(8L), eq(3)))
+                .thenReturn(List.of(card(13L)));
+
+        CardPageDTO first = cardService.getAllCardsForAdmin(null, null, null, null, null);
+        CardPageDTO second = cardService.getAllCardsForAdmin(first.nextCursor(), null, null, null, null);
+
+        assertEquals(List.of(5L, 8L), first.items().stream().map(CardDTO::id).toList());
+        assertEquals(List.of(13L), second.items().stream().map(CardDTO::id).toList());
+        assertNull(second.nextCursor());
+    }
+
+    @Test
+    void getAllCardsForAdmin_ShouldCapPageSize() {
+        authenticate("ROLE_ADMIN");
+        LocalDate from = LocalDate.of(2027, 1, 1);
+        LocalDate to = LocalDate.of(2027, 12, 31);
+
+        cardService.getAllCardsForAdmin(null, 1000, CardStatus.BLOCKED, from, to);
+
+        verify(cardRepository).searchPage(new CardSearchFilter(null, CardStatus.BLOCKED, null, from, to), 0L, 4);
+    }
+
+    @Test
+    void getAllCardsForAdmin_ShouldThrow_WhenCursorIsInvalid() {
+        authenticate("ROLE_ADMIN");
+
+        assertThrows(InvalidPageCursorException.class,
+                () -> cardService.getAllCardsForAdmin("not a cursor", null, null, null, null));
+    }
+
+    @Test
+    void getCardsForCurrentUser_ShouldShowFullNumbers_WhenCallerIsOwner() {
+        authenticate("ROLE_USER");
+        when(cardRepository.findViewsByUserId(7L)).thenReturn(List.of(card(1L), card(2L)));
+
+        List<CardDTO> cards = cardService.getCardsForCurrentUser();
+
+        cards.forEach(card -> assertEquals(CARD_NUMBER, card.cardNumber()));
+        verify(cardRepository, never()).findByUserId(any());
+    }
+
+    @Test
+    void getCardBalance_ShouldReadProjection_WhenCallerOwnsCard() {
+        authenticate("ROLE_USER");
+        when(cardRepository.findViewById(1L)).thenReturn(Optional.of(card(1L)));
+
+        assertEquals(new BigDecimal("12.34"), cardService.getCardBalance(1L));
+        verify(cardRepository, never()).findById(any());
+    }
+
+    @Test
+    void getCardBalance_ShouldThrow_WhenCardBelongsToAnotherUser() {
+        UserDetailsImpl principal = new UserDetailsImpl(8L, "other", "", List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        when(cardRepository.findViewById(1L)).thenReturn(Optional.of(card(1L)));
+
+        assertThrows(AccessDeniedException.class, () -> cardService.getCardBalance(1L));
+    }
+
+    @Test
+    void hasUserActiveCards_ShouldAskDatabaseForExistence() {
+        when(cardRepository.existsByAccountUserIdAndStatus(7L, CardStatus.ACTIVE)).thenReturn(false);
+
+        assertFalse(cardService.hasUserActiveCards(7L));
+        verify(cardRepository, never()).findByUserId(any());
+    }
+
+    @Test
+    void getCardSummaryForCurrentUser_ShouldFillMissingStatusesWithZero() {
+        authenticate("ROLE_USER");
+        when(cardRepository.sumByStatusForUser(7L)).thenReturn(List.of(
+                new CardStatusTotals(CardStatus.ACTIVE, 2, 100_00L),
+                new CardStatusTotals(CardStatus.BLOCKED, 1, 50_50L)));
+
+        CardSummaryDTO summary = cardService.getCardSummaryForCurrentUser();
+
+        assertEquals(2L, summary.countsByStatus().get(CardStatus.ACTIVE));
+        assertEquals(1L, summary.countsByStatus().get(CardStatus.BLOCKED));
+        assertEquals(0L, summary.countsByStatus().get(CardStatus.EXPIRED));
+        assertEquals(3L, summary.totalCards());
+        assertEquals(new BigDecimal("150.50"), summary.totalBalance());
+    }
+
+    private static void authenticate(String role) {
+        UserDetailsImpl principal = new UserDetailsImpl(7L, "user", "", List.of(new SimpleGrantedAuthority(role)));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    private static CardView card(Long id) {
+        return new CardView(id, EncryptionUtil.encrypt(CARD_NUMBER), "1234", 7L,
+                LocalDate.now().plusYears(3), 12_34L, CardStatus.ACTIVE);
+    }
+}
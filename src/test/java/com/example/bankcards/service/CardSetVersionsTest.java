@@ -0,0 +1,80 @@
+package com.example.bankcards.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CardSetVersionsTest {
+
+    private final CardSetVersions versions = new CardSetVersions(true, 1024);
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void bumpAfterCommit_ShouldChangeETagOnlyForAffectedUsers() {
+        String first = versions.etagFor(1L);
+        String second = versions.etagFor(2L);
+
+        versions.bumpAfterCommit(List.of(1L));
+
+        assertNotEquals(first, versions.etagFor(1L));
+        assertEquals(second, versions.etagFor(2L));
+    }
+
+    @Test
+    void bumpAfterCommit_ShouldWaitForCommit() {
+        String before = versions.etagFor(1L);
+        TransactionSynchronizationManager.initSynchronization();
+
+        versions.bumpAfterCommit(List.of(1L));
+        assertEquals(before, versions.etagFor(1L));
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertNotEquals(before, versions.etagFor(1L));
+    }
+
+    @Test
+    void bumpAfterCommit_ShouldKeepETag_WhenTransactionRollsBack() {
+        String before = versions.etagFor(1L);
+        TransactionSynchronizationManager.initSynchronization();
+
+        versions.bumpAfterCommit(List.of(1L));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertEquals(before, versions.etagFor(1L));
+    }
+
+    @Test
+    void bumpAllAfterCommit_ShouldChangeETagOfEveryUser() {
+        String first = versions.etagFor(1L);
+        String second = versions.etagFor(2L);
+
+        versions.bumpAllAfterCommit();
+
+        assertNotEquals(first, versions.etagFor(1L));
+        assertNotEquals(second, versions.etagFor(2L));
+    }
+
+    @Test
+    void etagFor_ShouldDifferBetweenUsersSharingStripe() {
+        assertNotEquals(versions.etagFor(1L), versions.etagFor(1025L));
+    }
+
+    @Test
+    void constructor_ShouldRejectNonPositiveStripes() {
+        assertThrows(IllegalArgumentException.class, () -> new CardSetVersions(true, 0));
+    }
+}
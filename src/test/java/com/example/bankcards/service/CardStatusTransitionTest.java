@@ -0,0 +1,185 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Account;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.exception.IllegalCardStatusTransitionException;
+import com.example.bankcards.repository.AccountRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.RoleRepository;
+import com.example.bankcards.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Проверяет условные переходы статуса карты на H2 со схемой из миграций Liquibase.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CardStatusTransitionTest {
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private CardBalanceCache balanceCache;
+    private CardSetVersions cardSetVersions;
+    private CardService cardService;
+    private CardExpirationChecker checker;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        balanceCache = new CardBalanceCache(cardRepository, true, 100, 60_000, new SimpleMeterRegistry());
+        cardSetVersions = new CardSetVersions(true, 1024);
+        cardService = new CardService(cardRepository, accountRepository, balanceCache, cardSetVersions, 50, 500);
+        checker = new CardExpirationChecker(cardRepository, cardSetVersions);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void blockCard_ShouldBlockActiveCardWithOwnerQueryAndOneUpdate() {
+        User owner = user();
+        Card card = cardRepository.save(card(account(owner), "4000001234569001", CardStatus.ACTIVE,
+                LocalDate.now().plusYears(3)));
+        String etag = cardSetVersions.etagFor(owner.getId());
+
+        statistics.clear();
+        inTransaction(() -> cardService.blockCard(card.getId()));
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        Card blocked = reload(card);
+        assertEquals(CardStatus.BLOCKED, blocked.getStatus());
+        assertEquals(card.getVersion() + 1, blocked.getVersion());
+        assertNotEquals(etag, cardSetVersions.etagFor(owner.getId()));
+    }
+
+    @Test
+    void blockCard_ShouldSkipOwnerQuery_WhenCardSetVersionsAreDisabled() {
+        CardService withoutVersions = new CardService(cardRepository, accountRepository, balanceCache,
+                new CardSetVersions(false, 1024), 50, 500);
+        Card card = cardRepository.save(card(account(user()), "4000001234569004", CardStatus.ACTIVE,
+                LocalDate.now().plusYears(3)));
+
+        statistics.clear();
+        inTransaction(() -> withoutVersions.blockCard(card.getId()));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(CardStatus.BLOCKED, reload(card).getStatus());
+    }
+
+    @Test
+    void blockCard_ShouldRejectBlockedAndExpiredCards() {
+        User owner = user();
+        Account account = account(owner);
+        Card blocked = cardRepository.save(card(account, "4000001234569002", CardStatus.BLOCKED,
+                LocalDate.now().plusYears(3)));
+        Card expired = cardRepository.save(card(account, "4000001234569003", CardStatus.EXPIRED,
+                LocalDate.now().minusDays(1)));
+        String etag = cardSetVersions.etagFor(owner.getId());
+
+        assertThrows(IllegalCardStatusTransitionException.class,
+                () -> inTransaction(() -> cardService.blockCard(blocked.getId())));
+        assertThrows(IllegalCardStatusTransitionException.class,
+                () -> inTransaction(() -> cardService.blockCard(expired.getId())));
+
+        assertEquals(blocked.getVersion(), reload(blocked).getVersion());
+        assertEquals(CardStatus.EXPIRED, reload(expired).getStatus());
+        assertEquals(etag, cardSetVersions.etagFor(owner.getId()));
+    }
+
+    @Test
+    void blockCard_ShouldThrow_WhenCardNotFound() {
+        assertThrows(CardNotFoundException.class, () -> inTransaction(() -> cardService.blockCard(-1L)));
+    }
+
+    @Test
+    void checkAndExpireCards_ShouldExpireOverdueCardsOfAnyStatusInOneStatement() {
+        Account account = account(user());
+        Card overdue = cardRepository.save(card(account, "4000001234569004", CardStatus.ACTIVE,
+                LocalDate.now().minusDays(1)));
+        Card dueToday = cardRepository.save(card(account, "4000001234569005", CardStatus.ACTIVE,
+                LocalDate.now()));
+        Card overdueBlocked = cardRepository.save(card(account, "4000001234569006", CardStatus.BLOCKED,
+                LocalDate.now().minusDays(1)));
+
+        statistics.clear();
+        inTransaction(checker::checkAndExpireCards);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(CardStatus.EXPIRED, reload(overdue).getStatus());
+        assertEquals(overdue.getVersion() + 1, reload(overdue).getVersion());
+        assertEquals(CardStatus.ACTIVE, reload(dueToday).getStatus());
+        assertEquals(CardStatus.EXPIRED, reload(overdueBlocked).getStatus());
+    }
+
+    private void inTransaction(Runnable action) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> action.run());
+    }
+
+    private Card reload(Card card) {
+        return cardRepository.findById(card.getId()).orElseThrow();
+    }
+
+    private User user() {
+        User user = new User();
+        user.setUsername("user-" + UUID.randomUUID());
+        user.setPassword("password");
+        user.setFirstName("Test");
+        user.setSecondName("User");
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        user.setRole(roleRepository.findByRoleName("ROLE_USER").orElseThrow());
+        return userRepository.save(user);
+    }
+
+    private Account account(User owner) {
+        Account account = new Account();
+        account.setUser(owner);
+        account.setBalance(0L);
+        return accountRepository.save(account);
+    }
+
+    private static Card card(Account account, String cardNumber, CardStatus status, LocalDate expirationDate) {
+        Card card = new Card();
+        card.setCardNumber(cardNumber);
+        card.setAccount(account);
+        card.setExpirationDate(expirationDate);
+        card.setStatus(status);
+        card.setBalance(0L);
+        return card;
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardDTO;
+import com.example.bankcards.dto.CardPageDTO;
+import com.example.bankcards.dto.CardSummaryDTO;
+import com.example.bankcards.dto.UserDTO;
+import com.example.bankcards.entity.Account;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.AccountRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.RoleRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.UserDetailsImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Считает SQL-запросы, которые Hibernate готовит за один вызов каждого эндпоинта,
+ * на H2 со схемой из миграций Liquibase. Все связи сущностей ленивые, поэтому
+ * лишний запрос здесь означает, что сценарию не хватает явного плана выборки.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EntityFetchPlanTest {
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoSpyBean
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private CardService cardService;
+    private UserService userService;
+    private AccountService accountService;
+    private CustomUserDetailsService userDetailsService;
+    private Statistics statistics;
+
+    private User owner;
+    private Long cardId;
+
+    @BeforeEach
+    void setUp() {
+        cardService = new CardService(cardRepository, accountRepository,
+                new CardBalanceCache(cardRepository, true, 100, 60_000, new SimpleMeterRegistry()), new CardSetVersions(true, 1024), 50, 500);
+        userService = new UserService(userRepository);
+        accountService = new AccountService(accountRepository, userRepository);
+        userDetailsService = new CustomUserDetailsService(userRepository);
+
+        owner = user();
+        user();
+        Account account = account(owner);
+        cardId = cardRepository.save(card(account)).getId();
+        cardRepository.save(card(account));
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void loadUserByUsername_ShouldFetchRoleInSameQuery() {
+        UserDetails details = userDetailsService.loadUserByUsername(owner.getUsername());
+
+        assertEquals(List.of("ROLE_USER"),
+                details.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getAllUsers_ShouldFetchRolesInSameQuery() {
+        List<UserDTO> users = userService.getAllUsers();
+
+        assertTrue(users.size() >= 3, () -> String.valueOf(users.size()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void updateUser_ShouldReadOnceAndUpdateOnce() {
+        UserDTO patch = new UserDTO(null, null, "Renamed", "User", null, LocalDate.of(2000, 1, 1), null);
+
+        UserDTO updated = new TransactionTemplate(transactionManager)
+                .execute(status -> userService.updateUser(owner.getId(), patch));
+
+        assertEquals("Renamed", updated.firstName());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getCardsForCurrentUser_ShouldUseOneQuery() {
+        authenticate(owner.getId(), "ROLE_USER");
+
+        List<CardDTO> cards = cardService.getCardsForCurrentUser();
+
+        assertEquals(2, cards.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getCardBalance_ShouldUseOneQueryThenCache() {
+        authenticate(owner.getId(), "ROLE_USER");
+
+        assertEquals(new BigDecimal("0.00"), cardService.getCardBalance(cardId));
+        assertEquals(new BigDecimal("0.00"), cardService.getCardBalance(cardId));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getAllCardsForAdmin_ShouldUseOneQuery() {
+        authenticate(0L, "ROLE_ADMIN");
+        clearInvocations(jdbcTemplate);
+
+        CardPageDTO page = cardService.getAllCardsForAdmin(null, 50, null, null, null);
+
+        assertTrue(page.items().size() >= 2, () -> String.valueOf(page.items().size()));
+        assertEquals(0, statistics.getPrepareStatementCount());
+        verify(jdbcTemplate, times(1)).query(anyString(), any(RowMapper.class), any(Object[].class));
+    }
+
+    @Test
+    void getCardSummary_ShouldUseOneGroupedQuery() {
+        authenticate(owner.getId(), "ROLE_USER");
+
+        CardSummaryDTO summary = cardService.getCardSummaryForCurrentUser();
+
+        assertEquals(2L, summary.countsByStatus().get(CardStatus.ACTIVE));
+        assertEquals(0L, summary.countsByStatus().get(CardStatus.BLOCKED));
+        assertEquals(2L, summary.totalCards());
+        assertEquals(new BigDecimal("0.00"), summary.totalBalance());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void createCard_ShouldNotLoadOwnerOrAccountsOfExistingCards() {
+        authenticate(owner.getId(), "ROLE_USER");
+
+        CardDTO card = cardService.createCard();
+
+        assertEquals(owner.getId(), card.userId());
+        assertEquals(4, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void checkAccount_ShouldNotLoadRole() {
+        authenticate(owner.getId(), "ROLE_USER");
+
+        assertEquals(new BigDecimal("0.00"), accountService.checkAccount());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    private static void authenticate(Long userId, String role) {
+        UserDetailsImpl principal = new UserDetailsImpl(userId, "user", "", List.of(new SimpleGrantedAuthority(role)));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    private User user() {
+        User user = new User();
+        user.setUsername("user-" + UUID.randomUUID());
+        user.setPassword("password");
+        user.setFirstName("Test");
+        user.setSecondName("User");
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        user.setRole(roleRepository.findByRoleName("ROLE_USER").orElseThrow());
+        return userRepository.save(user);
+    }
+
+    private Account account(User owner) {
+        Account account = new Account();
+        account.setUser(owner);
+        account.setBalance(0L);
+        return accountRepository.save(account);
+    }
+
+    private static Card card(Account account) {
+        Card card = new Card();
+        card.setCardNumber("4000123412341234");
+        card.setAccount(account);
+        card.setExpirationDate(LocalDate.now().plusYears(3));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(0L);
+        return card;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferResponseDTO;
+import com.example.bankcards.entity.IdempotencyRecord;
+import com.example.bankcards.exception.IdempotencyKeyConflictException;
+import com.example.bankcards.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotencyStoreTest {
+
+    private IdempotencyRecordRepository repository;
+    private IdempotencyStore store;
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(IdempotencyRecordRepository.class);
+        store = new IdempotencyStore(repository, objectMapper, 100, 60_000, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void find_ShouldReturnEmpty_WhenKeyUnknown() {
+        when(repository.findByUserIdAndIdempotencyKeyAndCreatedAtAfter(eq(1L), eq("key-1"), any(LocalDateTime.class))).thenReturn(Optional.empty());
+
+        assertTrue(store.find(1L, "key-1", "10:20:5000").isEmpty());
+    }
+
+    @Test
+    void find_ShouldServeFromCache_WithoutDatabase() {
+        TransferResponseDTO response = response();
+        store.remember(1L, "key-1", "10:20:5000", response);
+
+        assertEquals(response, store.find(1L, "key-1", "10:20:5000").orElseThrow());
+        verify(repository, never()).findByUserIdAndIdempotencyKeyAndCreatedAtAfter(anyLong(), anyString(), any());
+    }
+
+    @Test
+    void find_ShouldLoadFromDatabaseOnce_AfterRestart() throws Exception {
+        TransferResponseDTO response = response();
+        when(repository.findByUserIdAndIdempotencyKeyAndCreatedAtAfter(eq(1L), eq("key-1"), any(LocalDateTime.class))).thenReturn(Optional.of(new IdempotencyRecord(
+                1L, "key-1", "10:20:5000", objectMapper.writeValueAsString(response), LocalDateTime.now())));
+
+        assertEquals(response, store.find(1L, "key-1", "10:20:5000").orElseThrow());
+        assertEquals(response, store.find(1L, "key-1", "10:20:5000").orElseThrow());
+        verify(repository, times(1)).findByUserIdAndIdempotencyKeyAndCreatedAtAfter(eq(1L), eq("key-1"), any());
+    }
+
+    @Test
+    void find_ShouldThrow_WhenKeyReusedWithOtherRequest() {
+        store.remember(1L, "key-1", "10:20:5000", response());
+
+        assertThrows(IdempotencyKeyConflictException.class, () -> store.find(1L, "key-1", "10:20:9900"));
+    }
+
+    @Test
+    void find_ShouldKeepKeysOfDifferentUsersApart() {
+        store.remember(1L, "key-1", "10:20:5000", response());
+        when(repository.findByUserIdAndIdempotencyKeyAndCreatedAtAfter(eq(2L), eq("key-1"), any(LocalDateTime.class))).thenReturn(Optional.empty());
+
+        assertTrue(store.find(2L, "key-1", "10:20:5000").isEmpty());
+    }
+
+    @Test
+    void find_ShouldIgnoreRecordsOlderThanTtl() {
+        store.find(1L, "key-1", "10:20:5000");
+
+        ArgumentCaptor<LocalDateTime> cutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(repository).findByUserIdAndIdempotencyKeyAndCreatedAtAfter(eq(1L), eq("key-1"), cutoff.capture());
+        LocalDateTime expected = LocalDateTime.now().minusSeconds(60);
+        assertTrue(Math.abs(Duration.between(expected, cutoff.getValue()).toMillis()) < 5_000);
+    }
+
+    @Test
+    void find_ShouldNotServeCachedResponse_AfterTtl() throws Exception {
+        IdempotencyStore shortLived = new IdempotencyStore(repository, objectMapper, 100, 1, new SimpleMeterRegistry());
+        shortLived.remember(1L, "key-1", "10:20:5000", response());
+
+        Thread.sleep(5);
+        assertTrue(shortLived.find(1L, "key-1", "10:20:5000").isEmpty());
+    }
+
+    @Test
+    void save_ShouldReplaceExpiredRecordWithSameKey() {
+        store.save(1L, "key-1", "10:20:5000", response());
+
+        verify(repository).deleteExpiredKey(eq(1L), eq("key-1"), any(LocalDateTime.class));
+        verify(repository).save(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    void save_ShouldPersistSerializedResponse() throws Exception {
+        TransferResponseDTO response = response();
+
+        store.save(1L, "key-1", "10:20:5000", response);
+
+        ArgumentCaptor<IdempotencyRecord> captor = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(repository).save(captor.capture());
+        assertEquals("key-1", captor.getValue().getIdempotencyKey());
+        assertEquals(response, objectMapper.readValue(captor.getValue().getResponseBody(), TransferResponseDTO.class));
+    }
+
+    @Test
+    void purgeExpired_ShouldDeleteOldRecords() {
+        store.purgeExpired();
+
+        verify(repository).deleteCreatedBefore(any(LocalDateTime.class));
+    }
+
+    private static TransferResponseDTO response() {
+        return new TransferResponseDTO(UUID.randomUUID(), 10L, 20L,
+                new BigDecimal("50.00"), LocalDateTime.of(2025, 1, 1, 12, 0), "SUCCESS");
+    }
+}
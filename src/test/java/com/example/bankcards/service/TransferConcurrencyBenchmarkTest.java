@@ -0,0 +1,210 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BatchTransferResponseDTO;
+import com.example.bankcards.dto.TransferRequestDTO;
+import com.example.bankcards.entity.Account;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.TransferConflictException;
+import com.example.bankcards.exception.TransferLockTimeoutException;
+import com.example.bankcards.repository.AccountRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.RoleRepository;
+import com.example.bankcards.repository.TransferEntryRepository;
+import com.example.bankcards.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Сравнивает стратегии {@link TransferConcurrencyStrategy} на H2: несколько потоков
+ * выполняют переводы между небольшим набором счетов, после чего печатаются
+ * пропускная способность и доли прерванных и повторенных транзакций.
+ * <p>
+ * Не входит в обычный прогон тестов. Запуск: {@code mvn test -Pbenchmark}.
+ * Конкуренция задается системными свойствами:
+ * <ul>
+ *   <li>{@code benchmark.threads} — количество потоков (по умолчанию 8)</li>
+ *   <li>{@code benchmark.accounts} — количество счетов, между которыми идут переводы (по умолчанию 4);
+ *       чем их меньше, тем выше конкуренция</li>
+ *   <li>{@code benchmark.transfers} — количество переводов на поток (по умолчанию 200)</li>
+ * </ul>
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TransferConcurrencyBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(TransferConcurrencyBenchmarkTest.class);
+
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 8);
+    private static final int ACCOUNTS = Integer.getInteger("benchmark.accounts", 4);
+    private static final int TRANSFERS_PER_THREAD = Integer.getInteger("benchmark.transfers", 200);
+    private static final long INITIAL_BALANCE = 1_000_000_00L;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransferEntryRepository transferEntryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"pessimistic", "optimistic", "serializable"})
+    void compareStrategies(String strategyName) throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TransferService transferService = new TransferService(
+                accountRepository,
+                cardRepository,
+                transferEntryRepository,
+                strategy(strategyName, meterRegistry),
+                new SequentialCardDebitAllocator(),
+                null,
+                new CardBalanceCache(cardRepository, true, 1000, 60_000, meterRegistry),
+                new CardSetVersions(true, 1024)
+        );
+
+        User owner = user();
+        List<Long> accountIds = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            Account account = accountRepository.save(account(owner));
+            cardRepository.save(card(account));
+            accountIds.add(account.getId());
+        }
+
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        long startNanos = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                    int from = random.nextInt(ACCOUNTS);
+                    int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                    PendingTransfer transfer = new PendingTransfer(UUID.randomUUID(), owner.getId(),
+                            new TransferRequestDTO(accountIds.get(from), accountIds.get(to), new BigDecimal("1.00")));
+                    try {
+                        BatchTransferResponseDTO response = transferService.transferPending(List.of(transfer));
+                        succeeded.addAndGet(response.succeeded());
+                    } catch (TransferConflictException | TransferLockTimeoutException ex) {
+                        rejected.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+        executor.shutdown();
+
+        long total = (long) THREADS * TRANSFERS_PER_THREAD;
+        long conflicts = count(meterRegistry, "transfer.conflicts") + count(meterRegistry, "transfer.lock.timeouts");
+        long attempts = succeeded.get() + conflicts;
+
+        log.info("{} threads={} accounts={} transfers={} | {} transfers/s | "
+                        + "aborted {} of {} attempts ({}%) | retried {}% | rejected {}",
+                strategyName, THREADS, ACCOUNTS, total,
+                Math.round(succeeded.get() / elapsedSeconds),
+                conflicts, attempts, String.format("%.1f", 100.0 * conflicts / attempts),
+                String.format("%.1f", 100.0 * (conflicts - rejected.get()) / total),
+                rejected.get());
+
+        assertEquals(total, succeeded.get() + rejected.get());
+        assertEquals(INITIAL_BALANCE * ACCOUNTS, sum("SELECT SUM(balance) FROM accounts WHERE id IN (%s)", accountIds));
+        assertEquals(INITIAL_BALANCE * ACCOUNTS, sum("SELECT SUM(balance) FROM bank_cards WHERE account_id IN (%s)", accountIds));
+        assertEquals(2 * succeeded.get(), sum("SELECT COUNT(*) FROM transfer_entries WHERE account_id IN (%s)", accountIds));
+    }
+
+    private TransferConcurrencyStrategy strategy(String name, SimpleMeterRegistry meterRegistry) {
+        return switch (name) {
+            case "pessimistic" -> new PessimisticTransferStrategy(
+                    new AccountLockManager(1024, 5000, meterRegistry), new TransactionTemplate(transactionManager));
+            case "optimistic" -> new OptimisticTransferStrategy(
+                    new TransactionTemplate(transactionManager), 10, 1, 50, meterRegistry);
+            case "serializable" -> new SerializableTransferStrategy(
+                    transactionManager, 10, 1, 50, meterRegistry);
+            default -> throw new IllegalArgumentException(name);
+        };
+    }
+
+    private static long count(SimpleMeterRegistry meterRegistry, String name) {
+        Counter counter = meterRegistry.find(name).counter();
+        return counter == null ? 0 : (long) counter.count();
+    }
+
+    private long sum(String sql, List<Long> accountIds) {
+        String ids = String.join(",", accountIds.stream().map(String::valueOf).toList());
+        return jdbcTemplate.queryForObject(sql.formatted(ids), Long.class);
+    }
+
+    private User user() {
+        User user = new User();
+        user.setUsername("user-" + UUID.randomUUID());
+        user.setPassword("password");
+        user.setFirstName("Test");
+        user.setSecondName("User");
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        user.setRole(roleRepository.findByRoleName("ROLE_USER").orElseThrow());
+        return userRepository.save(user);
+    }
+
+    private static Account account(User owner) {
+        Account account = new Account();
+        account.setUser(owner);
+        account.setBalance(INITIAL_BALANCE);
+        return account;
+    }
+
+    private static Card card(Account account) {
+        Card card = new Card();
+        card.setCardNumber("4000123412341234");
+        card.setAccount(account);
+        card.setExpirationDate(LocalDate.now().plusYears(3));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(INITIAL_BALANCE);
+        return card;
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.exception.TransferConflictException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TransferConcurrencyStrategyTest {
+
+    private PlatformTransactionManager transactionManager;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(inv -> new SimpleTransactionStatus());
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void pessimistic_ShouldLockRowsAndRunOnce() {
+        PessimisticTransferStrategy strategy = new PessimisticTransferStrategy(
+                new AccountLockManager(64, 1000, meterRegistry), new TransactionTemplate(transactionManager));
+
+        assertEquals("done", strategy.execute(List.of(1L, 2L), status -> "done"));
+        assertTrue(strategy.locksRows());
+    }
+
+    @Test
+    void optimistic_ShouldRetryOnVersionConflict() {
+        OptimisticTransferStrategy strategy = optimistic(5);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = strategy.execute(List.of(1L, 2L), status -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException("Account", 1L);
+            }
+            return "done";
+        });
+
+        assertEquals("done", result);
+        assertEquals(3, attempts.get());
+        assertFalse(strategy.locksRows());
+        assertEquals(2.0, meterRegistry.get("transfer.conflicts").tag("strategy", "optimistic").counter().count());
+    }
+
+    @Test
+    void optimistic_ShouldThrow_WhenAttemptsExhausted() {
+        OptimisticTransferStrategy strategy = optimistic(3);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(TransferConflictException.class, () -> strategy.execute(List.of(1L, 2L), status -> {
+            attempts.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException("Account", 1L);
+        }));
+
+        assertEquals(3, attempts.get());
+        assertEquals(1.0, meterRegistry.get("transfer.conflicts.exhausted").counter().count());
+    }
+
+    @Test
+    void optimistic_ShouldNotRetryBusinessErrors() {
+        OptimisticTransferStrategy strategy = optimistic(5);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(InsufficientFundsException.class, () -> strategy.execute(List.of(1L, 2L), status -> {
+            attempts.incrementAndGet();
+            throw new InsufficientFundsException();
+        }));
+
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void serializable_ShouldUseSerializableIsolationAndRetry() {
+        SerializableTransferStrategy strategy = new SerializableTransferStrategy(transactionManager, 5, 0, 0, meterRegistry);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = strategy.execute(List.of(1L, 2L), status -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new CannotAcquireLockException("could not serialize access");
+            }
+            return "done";
+        });
+
+        assertEquals("done", result);
+        assertEquals(2, attempts.get());
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager, atLeastOnce()).getTransaction(definition.capture());
+        assertEquals(TransactionDefinition.ISOLATION_SERIALIZABLE, definition.getValue().getIsolationLevel());
+    }
+
+    @Test
+    void maxBackoff_ShouldGrowExponentiallyUpToLimit() {
+        OptimisticTransferStrategy strategy = new OptimisticTransferStrategy(
+                new TransactionTemplate(transactionManager), 10, 5, 200, meterRegistry);
+
+        assertEquals(5, strategy.maxBackoffMs(1));
+        assertEquals(10, strategy.maxBackoffMs(2));
+        assertEquals(40, strategy.maxBackoffMs(4));
+        assertEquals(200, strategy.maxBackoffMs(7));
+        assertEquals(200, strategy.maxBackoffMs(100));
+    }
+
+    private OptimisticTransferStrategy optimistic(int maxAttempts) {
+        return new OptimisticTransferStrategy(new TransactionTemplate(transactionManager), maxAttempts, 1, 2, meterRegistry);
+    }
+}
@@ -1,191 +1,759 @@
-/*
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.BatchTransferMode;
+import com.example.bankcards.dto.BatchTransferRequestDTO;
+import com.example.bankcards.dto.BatchTransferResponseDTO;
 import com.example.bankcards.dto.TransferRequestDTO;
 import com.example.bankcards.dto.TransferResponseDTO;
+import com.example.bankcards.entity.Account;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.EntryDirection;
+import com.example.bankcards.entity.TransferEntry;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.AccountNotFoundException;
 import com.example.bankcards.exception.CardInactiveException;
-import com.example.bankcards.exception.CardNotFoundException;
 import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.exception.InvalidIdempotencyKeyException;
 import com.example.bankcards.exception.InvalidTransferAmountException;
+import com.example.bankcards.exception.SameAccountTransferException;
+import com.example.bankcards.exception.TransferNotFoundException;
 import com.example.bankcards.exception.UnauthorizedCardAccessException;
+import com.example.bankcards.repository.AccountRepository;
+import com.example.bankcards.repository.CardBalanceView;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferEntryRepository;
 import com.example.bankcards.util.SecurityUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.MockedStatic;
-
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class TransferServiceTest {
 
+    private static final long USER_ID = 1L;
+
+    private AccountRepository accountRepository;
     private CardRepository cardRepository;
+    private TransferEntryRepository transferEntryRepository;
+    private IdempotencyStore idempotencyStore;
+    private CardBalanceCache balanceCache;
+    private CardSetVersions cardSetVersions;
+    private PlatformTransactionManager transactionManager;
     private TransferService transferService;
+    private MockedStatic<SecurityUtils> securityUtils;
 
     @BeforeEach
     void setUp() {
+        accountRepository = mock(AccountRepository.class);
         cardRepository = mock(CardRepository.class);
-        transferService = new TransferService(cardRepository);
+        transferEntryRepository = mock(TransferEntryRepository.class);
+        idempotencyStore = mock(IdempotencyStore.class);
+        balanceCache = mock(CardBalanceCache.class);
+        cardSetVersions = mock(CardSetVersions.class);
+        when(idempotencyStore.find(anyLong(), anyString(), anyString())).thenReturn(Optional.empty());
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(inv -> new SimpleTransactionStatus());
+
+        transferService = new TransferService(
+                accountRepository,
+                cardRepository,
+                transferEntryRepository,
+                new PessimisticTransferStrategy(
+                        new AccountLockManager(64, 1000, new SimpleMeterRegistry()),
+                        new TransactionTemplate(transactionManager)),
+                new SequentialCardDebitAllocator(),
+                idempotencyStore,
+                balanceCache,
+                cardSetVersions
+        );
+
+        securityUtils = mockStatic(SecurityUtils.class);
+        securityUtils.when(SecurityUtils::getCurrentUserId).thenReturn(USER_ID);
+    }
+
+    @AfterEach
+    void tearDown() {
+        securityUtils.close();
+    }
+
+    @Test
+    void transfer_ShouldMoveFundsBetweenAccountsAndCards() {
+        Account from = account(10L, USER_ID, 300_00L);
+        Account to = account(20L, 2L, 50_00L);
+        Card fromFirst = card(100L, from, CardStatus.ACTIVE, 100_00L);
+        Card fromSecond = card(101L, from, CardStatus.ACTIVE, 200_00L);
+        Card toCard = card(200L, to, CardStatus.ACTIVE, 50_00L);
+        stubLoad(List.of(from, to), List.of(fromFirst, fromSecond, toCard));
+
+        TransferResponseDTO response = transferService.transfer(new TransferRequestDTO(10L, 20L, new BigDecimal("150.00")));
+
+        assertEquals("SUCCESS", response.status());
+        assertEquals(150_00L, from.getBalance());
+        assertEquals(200_00L, to.getBalance());
+        assertEquals(0L, fromFirst.getBalance());
+        assertEquals(150_00L, fromSecond.getBalance());
+        assertEquals(200_00L, toCard.getBalance());
+        verify(cardRepository, never()).save(any());
+        verify(accountRepository, never()).save(any());
     }
 
     @Test
-    void transfer_ShouldSucceed_WhenValidRequest() {
-        long userId = 1L;
-        long fromCardId = 100L;
-        long toCardId = 200L;
+    void transfer_ShouldAppendDebitAndCreditEntries() {
+        Account from = account(10L, USER_ID, 300_00L);
+        Account to = account(20L, 2L, 50_00L);
+        stubLoad(List.of(from, to), List.of(
+                card(100L, from, CardStatus.ACTIVE, 300_00L),
+                card(200L, to, CardStatus.ACTIVE, 50_00L)));
 
-        Card fromCard = new Card();
-        fromCard.setId(fromCardId);
-        fromCard.setStatus(CardStatus.ACTIVE);
-        fromCard.setBalance(1000.0);
-        fromCard.setUser(new User());
-        fromCard.getUser().setId(userId);
+        TransferResponseDTO response = transferService.transfer(new TransferRequestDTO(10L, 20L, new BigDecimal("150.00")));
 
-        Card toCard = new Card();
-        toCard.setId(toCardId);
-        toCard.setStatus(CardStatus.ACTIVE);
-        toCard.setBalance(500.0);
-        toCard.setUser(new User());
-        toCard.getUser().setId(userId);
+        verify(transferEntryRepository).appendTransfer(response.transferId(), 10L, 20L, 150_00L, response.timestamp());
+    }
 
-        TransferRequestDTO dto = new TransferRequestDTO(fromCardId, toCardId, 200.0);
+    @Test
+    void transfer_ShouldNotAppendEntries_WhenTransferFails() {
+        Account from = account(10L, USER_ID, 10_00L);
+        Account to = account(20L, 2L, 0L);
+        stubLoad(List.of(from, to), List.of());
+
+        assertThrows(InsufficientFundsException.class,
+                () -> transferService.transfer(new TransferRequestDTO(10L, 20L, new BigDecimal("50.00"))));
+        verify(transferEntryRepository, never()).appendTransfer(any(), any(), any(), anyLong(), any());
+    }
 
-        when(cardRepository.findById(fromCardId)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findById(toCardId)).thenReturn(Optional.of(toCard));
+    @Test
+    void transfer_ShouldDebitLastCardAndCreditInOneStatement() {
+        Account from = account(10L, USER_ID, 300_00L);
+        Account to = account(20L, 2L, 50_00L);
+        stubLoad(List.of(from, to), List.of(
+                card(100L, from, CardStatus.ACTIVE, 100_00L),
+                card(101L, from, CardStatus.ACTIVE, 200_00L),
+                card(200L, to, CardStatus.ACTIVE, 50_00L)));
+
+        transferService.transfer(new TransferRequestDTO(10L, 20L, new BigDecimal("150.00")));
+
+        verify(accountRepository).transferBalance(10L, 20L, USER_ID, 150_00L);
+        ArgumentCaptor<long[]> ids = ArgumentCaptor.forClass(long[].class);
+        ArgumentCaptor<long[]> amounts = ArgumentCaptor.forClass(long[].class);
+        verify(cardRepository).debitAll(ids.capture(), amounts.capture(), eq(1));
+        assertEquals(100L, ids.getValue()[0]);
+        assertEquals(100_00L, amounts.getValue()[0]);
+        verify(cardRepository).moveBalance(101L, 50_00L, 200L, 150_00L);
+        verify(accountRepository, never()).findAllByIdForUpdate(anyCollection());
+        verify(cardRepository, never()).findByAccountIdInForUpdate(anyCollection());
+    }
 
-        try (MockedStatic<SecurityUtils> mocked = mockStatic(SecurityUtils.class)) {
-            mocked.when(SecurityUtils::getCurrentUserId).thenReturn(userId);
+    @Test
+    void transfer_ShouldEvictBalancesOfChangedCards() {
+        Account from = account(10L, USER_ID, 300_00L);
+        Account to = account(20L, 2L, 50_00L);
+        stubLoad(List.of(from, to), List.of(
+                card(100L, from, CardStatus.ACTIVE, 100_00L),
+                card(101L, from, CardStatus.ACTIVE, 200_00L),
+                card(102L, from, CardStatus.ACTIVE, 0L),
+                card(200L, to, CardStatus.ACTIVE, 50_00L)));
+
+        transferService.transfer(new TransferRequestDTO(10L, 20L, new BigDecimal("150.00")));
+
+        verify(balanceCache).evictAfterCompletion(List.of(100L, 101L, 200L));
+        verify(cardSetVersions).bumpAfterCommit(List.of(USER_ID, 2L));
+    }
 
-            TransferResponseDTO response = transferService.transfer(dto);
+    @Test
+    void transfer_ShouldNotEvictBalances_WhenTransferFails() {
+        Account from = account(10L, USER_ID, 10_00L);
+        Account to = account(20L, 2L, 0L);
+        stubLoad(List.of(from, to), List.of());
+
+        assertThrows(InsufficientFundsException.class,
+                () -> transferService.transfer(new TransferRequestDTO(10L, 20L, new BigDecimal("50.00"))));
+        verify(balanceCache, never()).evictAfterCompletion(any());
+        verify(cardSetVersions, never()).bumpAfterCommit(any());
+    }
 
-            assertEquals(fromCardId, response.fromCardId());
-            assertEquals(toCardId, response.toCardId());
-            assertEquals(200.0, response.amount());
-            assertEquals("SUCCESS", response.status());
-            assertEquals(800.0, fromCard.getBalance());
-            assertEquals(700.0, toCard.getBalance());
-        }
+    @Test
+    void transfer_ShouldDebitCardsChosenByAllocator() {
+        transferService = new TransferService(
+                accountRepository,
+                cardRepository,
+                transferEntryRepository,
+                new PessimisticTransferStrategy(
+                        new AccountLockManager(64, 1000, new SimpleMeterRegistry()),
+                        new TransactionTemplate(transactionManager)),
+                new LargestBalanceFirstDebitAllocator(),
+                idempotencyStore,
+                balanceCache,
+                cardSetVersions
+        );
+        Account from = account(10L, USER_ID, 300_00L);
+        Account to = account(20L, 2L, 0L);
+        Card small = card(100L, from, CardStatus.ACTIVE, 100_00L);
+        Card large = card(101L, from, CardStatus.ACTIVE, 200_00L);
+        stubLoad(List.of(from, to), List.of(small, large, card(200L, to, CardStatus.ACTIVE, 0L)));
+
+        transferService.transfer(new TransferRequestDTO(10L, 20L, new BigDecimal("150.00")));
+
+        assertEquals(100_00L, small.getBalance());
+        assertEquals(50_00L, large.getBalance());
+        verify(cardRepository).moveBalance(101L, 150_00L, 200L, 150_00L);
+    }
 
-        verify(cardRepository).save(fromCard);
-        verify(cardRepository).save(toCard);
+    @Test
+    void transferBatch_ShouldDebitCardsChosenByAllocator() {
+        transferService = new TransferService(
+                accountRepository,
+                cardRepository,
+                transferEntryRepository,
+                new PessimisticTransferStrategy(
+                        new AccountLockManager(64, 1000, new SimpleMeterRegistry()),
+                        new TransactionTemplate(transactionManager)),
+                new SpreadEvenlyDebitAllocator(),
+                idempotencyStore,
+                balanceCache,
+                cardSetVersions
+        );
+        Account from = account(10L, USER_ID, 300_00L);
+        Account to = account(20L, 2L, 0L);
+        Card first = card(100L, from, CardStatus.ACTIVE, 100_00L);
+        Card second = card(101L, from, CardStatus.ACTIVE, 200_00L);
+        stubLoad(List.of(from, to), List.of(first, second, card(200L, to, CardStatus.ACTIVE, 0L)));
+
+        transferService.transferBatch(new BatchTransferRequestDTO(List.of(
+                new TransferRequestDTO(10L, 20L, new BigDecimal("150.00"))
+        ), BatchTransferMode.ALL_OR_NOTHING));
+
+        assertEquals(25_00L, first.getBalance());
+        assertEquals(125_00L, second.getBalance());
     }
 
     @Test
-    void transfer_ShouldThrow_WhenAmountIsInvalid() {
-        TransferRequestDTO dto = new TransferRequestDTO(1L, 2L, 0.0);
+    void transferBatch_ShouldLoadWithoutRowLocks_WhenStrategyIsOptimistic() {
+        transferService = new TransferService(
+                accountRepository,
+                cardRepository,
+                transferEntryRepository,
+                new OptimisticTransferStrategy(new TransactionTemplate(transactionManager), 5, 0, 0,
+                        new SimpleMeterRegistry()),
+                new SequentialCardDebitAllocator(),
+                idempotencyStore,
+                balanceCache,
+                cardSetVersions
+        );
+        Account from = account(10L, USER_ID, 100_00L);
+        Account to = account(20L, 2L, 0L);
+        Card toCard = card(200L, to, CardStatus.ACTIVE, 0L);
+        stubLoad(List.of(from, to), List.of(card(100L, from, CardStatus.ACTIVE, 100_00L), toCard));
+
+        BatchTransferResponseDTO response = transferService.transferBatch(new BatchTransferRequestDTO(List.of(
+                new TransferRequestDTO(10L, 20L, new BigDecimal("30.00"))
+        ), BatchTransferMode.ALL_OR_NOTHING));
+
+        assertEquals(1, response.succeeded());
+        assertEquals(30_00L, toCard.getBalance());
+        verify(accountRepository).findByIdInOrderById(anyCollection());
+        verify(cardRepository).findByAccountIdInOrderById(anyCollection());
+        verify(accountRepository, never()).findAllByIdForUpdate(anyCollection());
+        verify(cardRepository, never()).findByAccountIdInForUpdate(anyCollection());
+    }
 
-        assertThrows(InvalidTransferAmountException.class, () -> transferService.transfer(dto));
+    @Test
+    void transfer_ShouldThrow_WhenAccountsAreSame() {
+        assertThrows(SameAccountTransferException.class,
+                () -> transferService.transfer(new TransferRequestDTO(10L, 10L, new BigDecimal("50.00"))));
+        verify(accountRepository, never()).transferBalance(any(), any(), any(), anyLong());
     }
 
     @Test
-    void transfer_ShouldThrow_WhenFromCardNotFound() {
-        TransferRequestDTO dto = new TransferRequestDTO(1L, 2L, 100.0);
-        when(cardRepository.findById(1L)).thenReturn(Optional.empty());
+    void transfer_ShouldThrow_WhenAmountIsInvalid() {
+        assertThrows(InvalidTransferAmountException.class,
+                () -> transferService.transfer(new TransferRequestDTO(10L, 20L, new BigDecimal("0.00"))));
+        verify(accountRepository, never()).findAllByIdForUpdate(anyCollection());
+    }
 
-        try (MockedStatic<SecurityUtils> mocked = mockStatic(SecurityUtils.class)) {
-            mocked.when(SecurityUtils::getCurrentUserId).thenReturn(1L);
+    @Test
+    void transfer_ShouldThrow_WhenAccountNotFound() {
+        stubLoad(List.of(account(10L, USER_ID, 100_00L)), List.of());
 
-            assertThrows(CardNotFoundException.class, () -> transferService.transfer(dto));
-        }
+        assertThrows(AccountNotFoundException.class,
+                () -> transferService.transfer(new TransferRequestDTO(10L, 20L, new BigDecimal("50.00"))));
     }
 
     @Test
     void transfer_ShouldThrow_WhenUnauthorizedAccess() {
-        long userId = 1L;
+        Account from = account(10L, 99L, 100_00L);
+        Account to = account(20L, USER_ID, 0L);
+        stubLoad(List.of(from, to), List.of(card(100L, from, CardStatus.ACTIVE, 100_00L)));
 
-        Card fromCard = new Card();
-        fromCard.setId(1L);
-        fromCard.setUser(new User());
-        fromCard.getUser().setId(99L);
-        fromCard.setStatus(CardStatus.ACTIVE);
-        fromCard.setBalance(100.0);
+        assertThrows(UnauthorizedCardAccessException.class,
+                () -> transferService.transfer(new TransferRequestDTO(10L, 20L, new BigDecimal("50.00"))));
+    }
 
-        Card toCard = new Card();
-        toCard.setId(2L);
-        toCard.setUser(new User());
-        toCard.getUser().setId(1L);
-        toCard.setStatus(CardStatus.ACTIVE);
-        toCard.setBalance(0.0);
+    @Test
+    void transfer_ShouldThrow_WhenCardInactive() {
+        Account from = account(10L, USER_ID, 100_00L);
+        Account to = account(20L, 2L, 0L);
+        stubLoad(List.of(from, to), List.of(
+                card(100L, from, CardStatus.BLOCKED, 100_00L),
+                card(200L, to, CardStatus.ACTIVE, 0L)));
+
+        assertThrows(CardInactiveException.class,
+                () -> transferService.transfer(new TransferRequestDTO(10L, 20L, new BigDecimal("50.00"))));
+    }
 
-        TransferRequestDTO dto = new TransferRequestDTO(1L, 2L, 50.0);
+    @Test
+    void transfer_ShouldThrow_WhenCardBlockedAfterBalancesRead() {
+        Account from = account(10L, USER_ID, 100_00L);
+        Account to = account(20L, 2L, 0L);
+        Card toCard = card(200L, to, CardStatus.ACTIVE, 0L);
+        stubLoad(List.of(from, to), List.of(card(100L, from, CardStatus.ACTIVE, 100_00L), toCard));
+        List<CardBalanceView> readBeforeBlock = cardRepository.findBalancesByAccountIdIn(List.of(10L, 20L));
+        toCard.setStatus(CardStatus.BLOCKED);
+        List<CardBalanceView> readAfterBlock = cardRepository.findBalancesByAccountIdIn(List.of(10L, 20L));
+        when(cardRepository.findBalancesByAccountIdIn(anyCollection())).thenReturn(readBeforeBlock, readAfterBlock);
+
+        CardInactiveException exception = assertThrows(CardInactiveException.class,
+                () -> transferService.transfer(new TransferRequestDTO(10L, 20L, new BigDecimal("50.00"))));
+
+        assertTrue(exception.getMessage().contains("200"));
+        assertEquals(0L, toCard.getBalance());
+        verify(transferEntryRepository, never()).appendTransfer(any(), any(), any(), anyLong(), any());
+    }
 
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
+    @Test
+    void transfer_ShouldThrow_WhenInsufficientFunds() {
+        Account from = account(10L, USER_ID, 10_00L);
+        Account to = account(20L, 2L, 0L);
+        stubLoad(List.of(from, to), List.of());
 
-        try (MockedStatic<SecurityUtils> mocked = mockStatic(SecurityUtils.class)) {
-            mocked.when(SecurityUtils::getCurrentUserId).thenReturn(userId);
+        assertThrows(InsufficientFundsException.class,
+                () -> transferService.transfer(new TransferRequestDTO(10L, 20L, new BigDecimal("50.00"))));
+    }
 
-            assertThrows(UnauthorizedCardAccessException.class, () -> transferService.transfer(dto));
-        }
+    @Test
+    void transfer_ShouldThrow_WhenActiveCardsDoNotCoverAmount() {
+        Account from = account(10L, USER_ID, 100_00L);
+        Account to = account(20L, 2L, 0L);
+        Card toCard = card(200L, to, CardStatus.ACTIVE, 0L);
+        stubLoad(List.of(from, to), List.of(
+                card(100L, from, CardStatus.ACTIVE, 20_00L),
+                card(101L, from, CardStatus.BLOCKED, 80_00L),
+                toCard));
+
+        assertThrows(InsufficientFundsException.class,
+                () -> transferService.transfer(new TransferRequestDTO(10L, 20L, new BigDecimal("50.00"))));
+        verify(cardRepository, never()).moveBalance(anyLong(), anyLong(), anyLong(), anyLong());
+        assertEquals(0L, toCard.getBalance());
     }
 
     @Test
-    void transfer_ShouldThrow_WhenCardInactive() {
-        long userId = 1L;
+    void transferBatch_ShouldFailItem_WhenActiveCardsDoNotCoverAmount() {
+        Account from = account(10L, USER_ID, 100_00L);
+        Account to = account(20L, 2L, 0L);
+        Card fromCard = card(100L, from, CardStatus.ACTIVE, 20_00L);
+        Card toCard = card(200L, to, CardStatus.ACTIVE, 0L);
+        stubLoad(List.of(from, to), List.of(fromCard, card(101L, from, CardStatus.BLOCKED, 80_00L), toCard));
+
+        BatchTransferResponseDTO response = transferService.transferBatch(new BatchTransferRequestDTO(List.of(
+                new TransferRequestDTO(10L, 20L, new BigDecimal("50.00"))
+        ), BatchTransferMode.BEST_EFFORT));
+
+        assertEquals(1, response.failed());
+        assertEquals(100_00L, from.getBalance());
+        assertEquals(20_00L, fromCard.getBalance());
+        assertEquals(0L, toCard.getBalance());
+    }
 
-        Card fromCard = new Card();
-        fromCard.setId(1L);
-        fromCard.setUser(new User());
-        fromCard.getUser().setId(userId);
-        fromCard.setStatus(CardStatus.BLOCKED);
-        fromCard.setBalance(100.0);
+    @Test
+    void transferBatch_ShouldApplyAllTransfers_WhenAllValid() {
+        Account from = account(10L, USER_ID, 100_00L);
+        Account to = account(20L, 2L, 0L);
+        Card fromCard = card(100L, from, CardStatus.ACTIVE, 100_00L);
+        Card toCard = card(200L, to, CardStatus.ACTIVE, 0L);
+        stubLoad(List.of(from, to), List.of(fromCard, toCard));
+
+        BatchTransferResponseDTO response = transferService.transferBatch(new BatchTransferRequestDTO(List.of(
+                new TransferRequestDTO(10L, 20L, new BigDecimal("30.00")),
+                new TransferRequestDTO(10L, 20L, new BigDecimal("70.00"))
+        ), BatchTransferMode.ALL_OR_NOTHING));
+
+        assertEquals(2, response.succeeded());
+        assertEquals(0, response.failed());
+        assertEquals(0L, from.getBalance());
+        assertEquals(100_00L, toCard.getBalance());
+        assertFalse(committedStatus().isRollbackOnly());
+        verify(accountRepository).findAllByIdForUpdate(anyCollection());
+        verify(cardRepository).findByAccountIdInForUpdate(anyCollection());
+
+        List<TransferEntry> entries = appendedEntries();
+        assertEquals(4, entries.size());
+        assertEquals(List.of(70_00L, 30_00L, 0L, 100_00L),
+                entries.stream().map(TransferEntry::getBalanceAfter).toList());
+    }
 
-        Card toCard = new Card();
-        toCard.setId(2L);
-        toCard.setUser(new User());
-        toCard.getUser().setId(userId);
-        toCard.setStatus(CardStatus.ACTIVE);
-        toCard.setBalance(0.0);
+    @Test
+    void transferBatch_ShouldRollBackEverything_WhenAllOrNothingItemFails() {
+        Account from = account(10L, USER_ID, 100_00L);
+        Account to = account(20L, 2L, 0L);
+        stubLoad(List.of(from, to), List.of(
+                card(100L, from, CardStatus.ACTIVE, 100_00L),
+                card(200L, to, CardStatus.ACTIVE, 0L)));
+
+        BatchTransferResponseDTO response = transferService.transferBatch(new BatchTransferRequestDTO(List.of(
+                new TransferRequestDTO(10L, 20L, new BigDecimal("30.00")),
+                new TransferRequestDTO(10L, 20L, new BigDecimal("500.00")),
+                new TransferRequestDTO(10L, 20L, new BigDecimal("10.00"))
+        ), BatchTransferMode.ALL_OR_NOTHING));
+
+        assertEquals(0, response.succeeded());
+        assertEquals(1, response.failed());
+        assertEquals(List.of("ROLLED_BACK", "FAILED", "SKIPPED"),
+                response.results().stream().map(r -> r.status()).toList());
+        assertTrue(committedStatus().isRollbackOnly());
+        verify(transferEntryRepository, never()).appendAll(anyList());
+    }
 
-        TransferRequestDTO dto = new TransferRequestDTO(1L, 2L, 50.0);
+    @Test
+    void transferBatch_ShouldSkipFailedItems_WhenBestEffort() {
+        Account from = account(10L, USER_ID, 100_00L);
+        Account to = account(20L, 2L, 0L);
+        Card toCard = card(200L, to, CardStatus.ACTIVE, 0L);
+        stubLoad(List.of(from, to), List.of(card(100L, from, CardStatus.ACTIVE, 100_00L), toCard));
+
+        BatchTransferResponseDTO response = transferService.transferBatch(new BatchTransferRequestDTO(List.of(
+                new TransferRequestDTO(10L, 20L, new BigDecimal("30.00")),
+                new TransferRequestDTO(10L, 20L, new BigDecimal("500.00")),
+                new TransferRequestDTO(10L, 30L, new BigDecimal("10.00")),
+                new TransferRequestDTO(10L, 20L, new BigDecimal("10.00"))
+        ), BatchTransferMode.BEST_EFFORT));
+
+        assertEquals(2, response.succeeded());
+        assertEquals(2, response.failed());
+        assertEquals(List.of("SUCCESS", "FAILED", "FAILED", "SUCCESS"),
+                response.results().stream().map(r -> r.status()).toList());
+        assertEquals(60_00L, from.getBalance());
+        assertEquals(40_00L, toCard.getBalance());
+        assertFalse(committedStatus().isRollbackOnly());
+        assertEquals(4, appendedEntries().size());
+    }
 
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
+    @Test
+    void transferBatch_ShouldLeaveBalancesUntouched_WhenCreditOverflows() {
+        Account from = account(10L, USER_ID, 100_00L);
+        Account to = account(20L, 2L, Long.MAX_VALUE);
+        Card fromCard = card(100L, from, CardStatus.ACTIVE, 100_00L);
+        Card toCard = card(200L, to, CardStatus.ACTIVE, Long.MAX_VALUE);
+        stubLoad(List.of(from, to), List.of(fromCard, toCard));
+
+        BatchTransferResponseDTO response = transferService.transferBatch(new BatchTransferRequestDTO(List.of(
+                new TransferRequestDTO(10L, 20L, new BigDecimal("30.00"))
+        ), BatchTransferMode.BEST_EFFORT));
+
+        assertEquals(1, response.failed());
+        assertEquals(100_00L, from.getBalance());
+        assertEquals(100_00L, fromCard.getBalance());
+        assertEquals(Long.MAX_VALUE, toCard.getBalance());
+        assertEquals(Long.MAX_VALUE, to.getBalance());
+    }
 
-        try (MockedStatic<SecurityUtils> mocked = mockStatic(SecurityUtils.class)) {
-            mocked.when(SecurityUtils::getCurrentUserId).thenReturn(userId);
+    @Test
+    void transferBatch_ShouldFailWholeBatch_WhenUnexpectedErrorInBestEffort() {
+        CardDebitAllocator brokenAllocator = (balances, amount) -> {
+            throw new IllegalStateException("allocator bug");
+        };
+        transferService = new TransferService(
+                accountRepository,
+                cardRepository,
+                transferEntryRepository,
+                new PessimisticTransferStrategy(
+                        new AccountLockManager(64, 1000, new SimpleMeterRegistry()),
+                        new TransactionTemplate(transactionManager)),
+                brokenAllocator,
+                idempotencyStore,
+                balanceCache,
+                cardSetVersions
+        );
+        Account from = account(10L, USER_ID, 100_00L);
+        Account to = account(20L, 2L, 0L);
+        stubLoad(List.of(from, to), List.of(
+                card(100L, from, CardStatus.ACTIVE, 100_00L),
+                card(200L, to, CardStatus.ACTIVE, 0L)));
+
+        BatchTransferRequestDTO request = new BatchTransferRequestDTO(List.of(
+                new TransferRequestDTO(10L, 20L, new BigDecimal("30.00"))
+        ), BatchTransferMode.BEST_EFFORT);
+
+        assertThrows(IllegalStateException.class, () -> transferService.transferBatch(request));
+        verify(transactionManager, never()).commit(any());
+        verify(transferEntryRepository, never()).appendAll(anyList());
+    }
 
-            assertThrows(CardInactiveException.class, () -> transferService.transfer(dto));
-        }
+    @Test
+    void transfer_ShouldKeepExactKopecks_ForFractionalAmounts() {
+        Account from = account(10L, USER_ID, 30L);
+        Account to = account(20L, 2L, 0L);
+        Card fromCard = card(100L, from, CardStatus.ACTIVE, 30L);
+        Card toCard = card(200L, to, CardStatus.ACTIVE, 0L);
+        stubLoad(List.of(from, to), List.of(fromCard, toCard));
+
+        transferService.transfer(new TransferRequestDTO(10L, 20L, new BigDecimal("0.1")));
+        transferService.transfer(new TransferRequestDTO(10L, 20L, new BigDecimal("0.2")));
+
+        assertEquals(0L, from.getBalance());
+        assertEquals(30L, toCard.getBalance());
     }
 
     @Test
-    void transfer_ShouldThrow_WhenInsufficientFunds() {
-        long userId = 1L;
+    void transfer_ShouldThrow_WhenAmountHasFractionsOfKopeck() {
+        assertThrows(InvalidTransferAmountException.class,
+                () -> transferService.transfer(new TransferRequestDTO(10L, 20L, new BigDecimal("1.005"))));
+    }
 
-        Card fromCard = new Card();
-        fromCard.setId(1L);
-        fromCard.setUser(new User());
-        fromCard.getUser().setId(userId);
-        fromCard.setStatus(CardStatus.ACTIVE);
-        fromCard.setBalance(10.0);
+    @Test
+    void transferPending_ShouldUsePreassignedIdsAndCapturedUser() {
+        Account from = account(10L, 7L, 100_00L);
+        Account to = account(20L, 2L, 0L);
+        stubLoad(List.of(from, to), List.of(
+                card(100L, from, CardStatus.ACTIVE, 100_00L),
+                card(200L, to, CardStatus.ACTIVE, 0L)));
+
+        UUID transferId = UUID.randomUUID();
+        BatchTransferResponseDTO response = transferService.transferPending(List.of(
+                new PendingTransfer(transferId, 7L, new TransferRequestDTO(10L, 20L, new BigDecimal("25.00"))),
+                new PendingTransfer(UUID.randomUUID(), USER_ID, new TransferRequestDTO(10L, 20L, new BigDecimal("5.00")))
+        ));
+
+        assertEquals(List.of("SUCCESS", "FAILED"),
+                response.results().stream().map(r -> r.status()).toList());
+        assertEquals(transferId, response.results().get(0).transfer().transferId());
+        assertEquals(75_00L, from.getBalance());
+        assertEquals(transferId, appendedEntries().get(0).getTransferId());
+    }
+
+    @Test
+    void findTransfer_ShouldRestoreTransferFromLedger() {
+        UUID transferId = UUID.randomUUID();
+        LocalDateTime createdAt = LocalDateTime.now();
+        when(transferEntryRepository.findByTransferIdOrderById(transferId)).thenReturn(List.of(
+                new TransferEntry(transferId, 10L, EntryDirection.DEBIT, 25_00L, 75_00L, createdAt),
+                new TransferEntry(transferId, 20L, EntryDirection.CREDIT, 25_00L, 25_00L, createdAt)));
+        when(accountRepository.findById(10L)).thenReturn(Optional.of(account(10L, USER_ID, 75_00L)));
+
+        TransferResponseDTO response = transferService.findTransfer(transferId);
+
+        assertEquals(transferId, response.transferId());
+        assertEquals(10L, response.fromAccountId());
+        assertEquals(20L, response.toAccountId());
+        assertEquals(new BigDecimal("25.00"), response.amount());
+        assertEquals("SUCCESS", response.status());
+    }
 
-        Card toCard = new Card();
-        toCard.setId(2L);
-        toCard.setUser(new User());
-        toCard.getUser().setId(userId);
-        toCard.setStatus(CardStatus.ACTIVE);
-        toCard.setBalance(0.0);
+    @Test
+    void findTransfer_ShouldThrow_WhenTransferBelongsToAnotherUser() {
+        UUID transferId = UUID.randomUUID();
+        LocalDateTime createdAt = LocalDateTime.now();
+        when(transferEntryRepository.findByTransferIdOrderById(transferId)).thenReturn(List.of(
+                new TransferEntry(transferId, 10L, EntryDirection.DEBIT, 25_00L, 75_00L, createdAt),
+                new TransferEntry(transferId, 20L, EntryDirection.CREDIT, 25_00L, 25_00L, createdAt)));
+        when(accountRepository.findById(10L)).thenReturn(Optional.of(account(10L, 2L, 75_00L)));
+
+        assertThrows(TransferNotFoundException.class, () -> transferService.findTransfer(transferId));
+    }
 
-        TransferRequestDTO dto = new TransferRequestDTO(1L, 2L, 50.0);
+    @Test
+    void transfer_ShouldReturnStoredResponse_WhenIdempotencyKeyRepeated() {
+        TransferResponseDTO stored = new TransferResponseDTO(UUID.randomUUID(), 10L, 20L,
+                new BigDecimal("50.00"), LocalDateTime.now(), "SUCCESS");
+        when(idempotencyStore.find(USER_ID, "key-1", "10:20:5000")).thenReturn(Optional.of(stored));
 
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
+        TransferResponseDTO response = transferService.transfer(
+                new TransferRequestDTO(10L, 20L, new BigDecimal("50.00")), "key-1");
+
+        assertEquals(stored, response);
+        verify(accountRepository, never()).findAllByIdForUpdate(anyCollection());
+        verify(transferEntryRepository, never()).appendAll(anyList());
+    }
 
-        try (MockedStatic<SecurityUtils> mocked = mockStatic(SecurityUtils.class)) {
-            mocked.when(SecurityUtils::getCurrentUserId).thenReturn(userId);
+    @Test
+    void transfer_ShouldStoreResponseInTransaction_WhenIdempotencyKeyIsNew() {
+        Account from = account(10L, USER_ID, 100_00L);
+        Account to = account(20L, 2L, 0L);
+        stubLoad(List.of(from, to), List.of(
+                card(100L, from, CardStatus.ACTIVE, 100_00L),
+                card(200L, to, CardStatus.ACTIVE, 0L)));
+
+        TransferResponseDTO response = transferService.transfer(
+                new TransferRequestDTO(10L, 20L, new BigDecimal("50.00")), "key-1");
+
+        verify(idempotencyStore).save(USER_ID, "key-1", "10:20:5000", response);
+        verify(idempotencyStore).remember(USER_ID, "key-1", "10:20:5000", response);
+    }
+
+    @Test
+    void transfer_ShouldReturnWinnerResponse_WhenConcurrentDuplicateKeyViolatesUniqueness() {
+        Account from = account(10L, USER_ID, 100_00L);
+        Account to = account(20L, 2L, 0L);
+        stubLoad(List.of(from, to), List.of(
+                card(100L, from, CardStatus.ACTIVE, 100_00L),
+                card(200L, to, CardStatus.ACTIVE, 0L)));
+        doThrow(new DataIntegrityViolationException("uk_idempotency_user_key"))
+                .when(idempotencyStore).save(eq(USER_ID), eq("key-1"), anyString(), any());
+
+        TransferResponseDTO winner = new TransferResponseDTO(UUID.randomUUID(), 10L, 20L,
+                new BigDecimal("50.00"), LocalDateTime.now(), "SUCCESS");
+        when(idempotencyStore.find(USER_ID, "key-1", "10:20:5000"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(winner));
+
+        TransferResponseDTO response = transferService.transfer(
+                new TransferRequestDTO(10L, 20L, new BigDecimal("50.00")), "key-1");
+
+        assertEquals(winner, response);
+        verify(idempotencyStore, never()).remember(anyLong(), anyString(), anyString(), any());
+    }
+
+    @Test
+    void transfer_ShouldThrow_WhenIdempotencyKeyTooLong() {
+        assertThrows(InvalidIdempotencyKeyException.class, () -> transferService.transfer(
+                new TransferRequestDTO(10L, 20L, new BigDecimal("50.00")), "k".repeat(65)));
+    }
+
+    /**
+     * Подставляет счета и карты для обоих путей перевода: загрузки с блокировкой
+     * и условных запросов UPDATE, которые применяются к тем же объектам.
+     */
+    private void stubLoad(List<Account> accounts, List<Card> cards) {
+        when(accountRepository.findAllByIdForUpdate(anyCollection())).thenReturn(accounts);
+        when(cardRepository.findByAccountIdInForUpdate(anyCollection())).thenReturn(cards);
+        when(accountRepository.findByIdInOrderById(anyCollection())).thenReturn(accounts);
+        when(cardRepository.findByAccountIdInOrderById(anyCollection())).thenReturn(cards);
+        when(accountRepository.findAllById(anyIterable())).thenReturn(accounts);
+
+        when(accountRepository.transferBalance(anyLong(), anyLong(), anyLong(), anyLong())).thenAnswer(inv -> {
+            Long fromId = inv.getArgument(0);
+            Long toId = inv.getArgument(1);
+            Long userId = inv.getArgument(2);
+            long amount = inv.getArgument(3);
+            int updated = 0;
+            for (Account account : accounts) {
+                if (account.getId().equals(toId)) {
+                    account.setBalance(account.getBalance() + amount);
+                    updated++;
+                } else if (account.getId().equals(fromId)
+                        && account.getUser().getId().equals(userId)
+                        && account.getBalance() >= amount) {
+                    account.setBalance(account.getBalance() - amount);
+                    updated++;
+                }
+            }
+            return updated;
+        });
+
+        when(cardRepository.findBalancesByAccountIdIn(anyCollection())).thenAnswer(inv -> cards.stream()
+                .map(card -> new CardBalanceView(card.getId(), card.getAccount().getId(),
+                        card.getAccount().getUser().getId(), card.getStatus(), card.getBalance()))
+                .toList());
+
+        when(cardRepository.debitAll(any(), any(), anyInt())).thenAnswer(inv -> {
+            long[] cardIds = inv.getArgument(0);
+            long[] amounts = inv.getArgument(1);
+            int count = inv.getArgument(2);
+            boolean debited = true;
+            for (int i = 0; i < count; i++) {
+                Card card = cardById(cards, cardIds[i]);
+                if (card.getStatus() != CardStatus.ACTIVE || card.getBalance() < amounts[i]) {
+                    debited = false;
+                } else {
+                    card.setBalance(card.getBalance() - amounts[i]);
+                }
+            }
+            return debited;
+        });
+
+        when(cardRepository.moveBalance(anyLong(), anyLong(), anyLong(), anyLong())).thenAnswer(inv -> {
+            Card fromCard = cardById(cards, inv.getArgument(0));
+            long debit = inv.getArgument(1);
+            Card toCard = cardById(cards, inv.getArgument(2));
+            long credit = inv.getArgument(3);
+            if (toCard.getStatus() != CardStatus.ACTIVE) {
+                return 0;
+            }
+            if (fromCard.getStatus() != CardStatus.ACTIVE || fromCard.getBalance() < debit) {
+                toCard.setBalance(toCard.getBalance() + credit);
+                return 1;
+            }
+            fromCard.setBalance(fromCard.getBalance() - debit);
+            toCard.setBalance(toCard.getBalance() + credit);
+            return 2;
+        });
+    }
+
+    private static Card cardById(List<Card> cards, Long id) {
+        return cards.stream().filter(card -> card.getId().equals(id)).findFirst().orElseThrow();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<TransferEntry> appendedEntries() {
+        ArgumentCaptor<List<TransferEntry>> captor = ArgumentCaptor.forClass(List.class);
+        verify(transferEntryRepository).appendAll(captor.capture());
+        return captor.getValue();
+    }
+
+    private TransactionStatus committedStatus() {
+        ArgumentCaptor<TransactionStatus> captor = ArgumentCaptor.forClass(TransactionStatus.class);
+        verify(transactionManager).commit(captor.capture());
+        return captor.getValue();
+    }
+
+    private static Account account(Long id, Long ownerId, long balance) {
+        User owner = new User();
+        owner.setId(ownerId);
+
+        Account account = new Account();
+        account.setId(id);
+        account.setUser(owner);
+        account.setBalance(balance);
+        return account;
+    }
 
-            assertThrows(InsufficientFundsException.class, () -> transferService.transfer(dto));
-        }
+    private static Card card(Long id, Account account, CardStatus status, long balance) {
+        Card card = new Card();
+        card.setId(id);
+        card.setAccount(account);
+        card.setStatus(status);
+        card.setBalance(balance);
+        return card;
     }
 }
-*/
@@ -0,0 +1,372 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BatchTransferMode;
+import com.example.bankcards.dto.BatchTransferRequestDTO;
+import com.example.bankcards.dto.TransferRequestDTO;
+import com.example.bankcards.dto.TransferResponseDTO;
+import com.example.bankcards.entity.Account;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.EntryDirection;
+import com.example.bankcards.entity.TransferEntry;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.CardInactiveException;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.repository.AccountRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.RoleRepository;
+import com.example.bankcards.repository.TransferEntryRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.util.SecurityUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+
+/**
+ * Проверяет путь перевода на H2 со схемой из миграций Liquibase и считает
+ * обращения к БД на уровне DataSource: отдельные запросы и выполнения пакетов JDBC
+ * как от Hibernate, так и от JdbcTemplate.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TransferStatementCountTest {
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransferEntryRepository transferEntryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private JdbcExecutions executions;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransferService transferService;
+    private CardBalanceCache balanceCache;
+    private CardSetVersions cardSetVersions;
+    private MockedStatic<SecurityUtils> securityUtils;
+
+    private Long senderId;
+    private Long fromAccountId;
+    private Long toAccountId;
+    private Long fromCardId;
+    private Long toCardId;
+
+    @BeforeEach
+    void setUp() {
+        balanceCache = new CardBalanceCache(cardRepository, true, 1000, 60_000, new SimpleMeterRegistry());
+        cardSetVersions = new CardSetVersions(true, 1024);
+        transferService = new TransferService(
+                accountRepository,
+                cardRepository,
+                transferEntryRepository,
+                new PessimisticTransferStrategy(
+                        new AccountLockManager(64, 1000, new SimpleMeterRegistry()),
+                        new TransactionTemplate(transactionManager)),
+                new SequentialCardDebitAllocator(),
+                mock(IdempotencyStore.class),
+                balanceCache,
+                cardSetVersions
+        );
+
+        User sender = user();
+        User recipient = user();
+        senderId = sender.getId();
+
+        Account fromAccount = accountRepository.save(account(sender, 100_00L));
+        Account toAccount = accountRepository.save(account(recipient, 0L));
+        fromAccountId = fromAccount.getId();
+        toAccountId = toAccount.getId();
+        fromCardId = cardRepository.save(card(fromAccount, 100_00L)).getId();
+        toCardId = cardRepository.save(card(toAccount, 0L)).getId();
+
+        securityUtils = mockStatic(SecurityUtils.class);
+        securityUtils.when(SecurityUtils::getCurrentUserId).thenReturn(senderId);
+
+        executions.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        securityUtils.close();
+    }
+
+    @Test
+    void transfer_ShouldUseFewerRoundTripsThanLoadAndFlush() {
+        transferService.transfer(new TransferRequestDTO(fromAccountId, toAccountId, new BigDecimal("10.00")));
+        int conditionalRoundTrips = executions.size();
+
+        executions.clear();
+        transferService.transferBatch(new BatchTransferRequestDTO(List.of(
+                new TransferRequestDTO(fromAccountId, toAccountId, new BigDecimal("10.00"))
+        ), BatchTransferMode.ALL_OR_NOTHING));
+        int loadAndFlushRoundTrips = executions.size();
+
+        assertEquals(4, conditionalRoundTrips);
+        assertTrue(conditionalRoundTrips < loadAndFlushRoundTrips,
+                () -> conditionalRoundTrips + " >= " + loadAndFlushRoundTrips);
+    }
+
+    @Test
+    void transfer_ShouldUpdateBalancesAndWriteLedger() {
+        TransferResponseDTO response = transferService.transfer(
+                new TransferRequestDTO(fromAccountId, toAccountId, new BigDecimal("30.00")));
+
+        assertEquals(70_00L, accountRepository.findById(fromAccountId).orElseThrow().getBalance());
+        assertEquals(30_00L, accountRepository.findById(toAccountId).orElseThrow().getBalance());
+        assertEquals(70_00L, cardRepository.findById(fromCardId).orElseThrow().getBalance());
+        assertEquals(30_00L, cardRepository.findById(toCardId).orElseThrow().getBalance());
+
+        List<TransferEntry> entries = transferEntryRepository.findByTransferIdOrderById(response.transferId());
+        assertEquals(2, entries.size());
+        assertEquals(EntryDirection.DEBIT, entries.get(0).getDirection());
+        assertEquals(70_00L, entries.get(0).getBalanceAfter());
+        assertEquals(EntryDirection.CREDIT, entries.get(1).getDirection());
+        assertEquals(30_00L, entries.get(1).getBalanceAfter());
+    }
+
+    @Test
+    void transfer_ShouldEvictCachedBalancesWhenCommitted() {
+        assertEquals(100_00L, balanceCache.find(fromCardId).orElseThrow().balance());
+        assertEquals(0L, balanceCache.find(toCardId).orElseThrow().balance());
+
+        transferService.transfer(new TransferRequestDTO(fromAccountId, toAccountId, new BigDecimal("30.00")));
+
+        assertEquals(70_00L, balanceCache.find(fromCardId).orElseThrow().balance());
+        assertEquals(30_00L, balanceCache.find(toCardId).orElseThrow().balance());
+    }
+
+    @Test
+    void transfer_ShouldBatchDebitsAcrossSeveralCards() {
+        Account fromAccount = accountRepository.findById(fromAccountId).orElseThrow();
+        Long secondCardId = cardRepository.save(card(fromAccount, 50_00L)).getId();
+        Long thirdCardId = cardRepository.save(card(fromAccount, 50_00L)).getId();
+        cardRepository.save(withBalance(cardRepository.findById(fromCardId).orElseThrow(), 20_00L));
+        accountRepository.save(withBalance(fromAccount, 120_00L));
+        executions.clear();
+
+        transferService.transfer(new TransferRequestDTO(fromAccountId, toAccountId, new BigDecimal("100.00")));
+
+        List<JdbcExecution> cardDebits = executions.matching("UPDATE bank_cards SET balance = balance -");
+        assertEquals(1, cardDebits.size());
+        assertEquals(2, cardDebits.get(0).batchSize());
+        assertEquals(0L, cardRepository.findById(fromCardId).orElseThrow().getBalance());
+        assertEquals(0L, cardRepository.findById(secondCardId).orElseThrow().getBalance());
+        assertEquals(20_00L, cardRepository.findById(thirdCardId).orElseThrow().getBalance());
+        assertEquals(100_00L, cardRepository.findById(toCardId).orElseThrow().getBalance());
+        assertEquals(20_00L, accountRepository.findById(fromAccountId).orElseThrow().getBalance());
+    }
+
+    @Test
+    void transfer_ShouldLeaveBalancesUntouched_WhenFundsAreInsufficient() {
+        assertThrows(InsufficientFundsException.class, () -> transferService.transfer(
+                new TransferRequestDTO(fromAccountId, toAccountId, new BigDecimal("500.00"))));
+
+        assertEquals(100_00L, accountRepository.findById(fromAccountId).orElseThrow().getBalance());
+        assertEquals(0L, accountRepository.findById(toAccountId).orElseThrow().getBalance());
+        assertEquals(0L, cardRepository.findById(toCardId).orElseThrow().getBalance());
+    }
+
+    @Test
+    void moveBalance_ShouldSkipInactiveCards() {
+        cardRepository.save(withStatus(cardRepository.findById(toCardId).orElseThrow(), CardStatus.BLOCKED));
+
+        assertEquals(1, cardRepository.moveBalance(fromCardId, 10_00L, toCardId, 10_00L));
+        assertEquals(0L, cardRepository.findById(toCardId).orElseThrow().getBalance());
+
+        cardRepository.save(withStatus(cardRepository.findById(fromCardId).orElseThrow(), CardStatus.EXPIRED));
+
+        assertFalse(cardRepository.debitAll(new long[] {fromCardId}, new long[] {10_00L}, 1));
+        assertEquals(90_00L, cardRepository.findById(fromCardId).orElseThrow().getBalance());
+    }
+
+    @Test
+    void transfer_ShouldLeaveBalancesUntouched_WhenRecipientCardIsBlocked() {
+        cardRepository.save(withStatus(cardRepository.findById(toCardId).orElseThrow(), CardStatus.BLOCKED));
+
+        assertThrows(CardInactiveException.class, () -> transferService.transfer(
+                new TransferRequestDTO(fromAccountId, toAccountId, new BigDecimal("10.00"))));
+
+        assertEquals(100_00L, accountRepository.findById(fromAccountId).orElseThrow().getBalance());
+        assertEquals(100_00L, cardRepository.findById(fromCardId).orElseThrow().getBalance());
+        assertEquals(0L, cardRepository.findById(toCardId).orElseThrow().getBalance());
+    }
+
+    private User user() {
+        User user = new User();
+        user.setUsername("user-" + UUID.randomUUID());
+        user.setPassword("password");
+        user.setFirstName("Test");
+        user.setSecondName("User");
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        user.setRole(roleRepository.findByRoleName("ROLE_USER").orElseThrow());
+        return userRepository.save(user);
+    }
+
+    private static Account account(User owner, long balance) {
+        Account account = new Account();
+        account.setUser(owner);
+        account.setBalance(balance);
+        return account;
+    }
+
+    private static Card withBalance(Card card, long balance) {
+        card.setBalance(balance);
+        return card;
+    }
+
+    private static Card withStatus(Card card, CardStatus status) {
+        card.setStatus(status);
+        return card;
+    }
+
+    private static Account withBalance(Account account, long balance) {
+        account.setBalance(balance);
+        return account;
+    }
+
+    private static Card card(Account account, long balance) {
+        Card card = new Card();
+        card.setCardNumber("4000123412341234");
+        card.setAccount(account);
+        card.setExpirationDate(LocalDate.now().plusYears(3));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(balance);
+        return card;
+    }
+
+    /**
+     * Обращение к БД: отдельный запрос ({@code batchSize == 0}) или выполнение пакета JDBC.
+     */
+    record JdbcExecution(String sql, int batchSize) {
+    }
+
+    /**
+     * Журнал обращений к БД через DataSource теста.
+     */
+    static class JdbcExecutions {
+
+        private final List<JdbcExecution> executions = new CopyOnWriteArrayList<>();
+
+        void record(String sql, int batchSize) {
+            executions.add(new JdbcExecution(sql, batchSize));
+        }
+
+        int size() {
+            return executions.size();
+        }
+
+        List<JdbcExecution> matching(String sqlPrefix) {
+            return executions.stream()
+                    .filter(execution -> execution.sql() != null && execution.sql().startsWith(sqlPrefix))
+                    .toList();
+        }
+
+        void clear() {
+            executions.clear();
+        }
+    }
+
+    /**
+     * Оборачивает DataSource теста, чтобы учитывать каждое выполнение запроса или пакета,
+     * независимо от того, отправлен он Hibernate или JdbcTemplate.
+     */
+    @TestConfiguration
+    static class CountingDataSourceConfig {
+
+        @Bean
+        JdbcExecutions jdbcExecutions() {
+            return new JdbcExecutions();
+        }
+
+        @Bean
+        static BeanPostProcessor countingDataSourcePostProcessor(ObjectProvider<JdbcExecutions> executions) {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource
+                            ? proxy(DataSource.class, dataSource, null, executions)
+                            : bean;
+                }
+            };
+        }
+
+        private static <T> T proxy(Class<T> type, Object target, String sql,
+                                   ObjectProvider<JdbcExecutions> executions) {
+            int[] pendingBatch = new int[1];
+            Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (p, method, args) -> {
+                String name = method.getName();
+                if (target instanceof Statement) {
+                    if (name.equals("addBatch")) {
+                        pendingBatch[0]++;
+                    } else if (name.equals("clearBatch")) {
+                        pendingBatch[0] = 0;
+                    } else if (name.startsWith("execute") && name.endsWith("Batch")) {
+                        executions.getObject().record(sql, pendingBatch[0]);
+                        pendingBatch[0] = 0;
+                    } else if (name.startsWith("execute")) {
+                        executions.getObject().record(args != null && args.length > 0 ? (String) args[0] : sql, 0);
+                    }
+                }
+
+                Object result;
+                try {
+                    result = method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getTargetException();
+                }
+
+                if (result instanceof Connection connection && method.getReturnType() == Connection.class) {
+                    return proxy(Connection.class, connection, null, executions);
+                }
+                if (result instanceof Statement statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                    String statementSql = args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+                    return proxy(method.getReturnType(), statement, statementSql, executions);
+                }
+                return result;
+            });
+            return type.cast(proxy);
+        }
+    }
+}
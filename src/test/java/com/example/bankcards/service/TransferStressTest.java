@@ -0,0 +1,388 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BatchTransferMode;
+import com.example.bankcards.dto.BatchTransferRequestDTO;
+import com.example.bankcards.dto.BatchTransferResponseDTO;
+import com.example.bankcards.dto.TransferRequestDTO;
+import com.example.bankcards.repository.AccountRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferEntryRepository;
+import com.example.bankcards.security.UserDetailsImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Нагрузочная проверка сохранения денег при параллельных переводах на H2.
+ * <p>
+ * Создает тысячи счетов с одной-тремя картами (часть карт заблокирована) и из множества
+ * потоков выполняет случайную смесь одиночных, пакетных и асинхронно принятых переводов
+ * случайных сумм, часть которых заведомо отклоняется. После этого проверяет, что суммы
+ * балансов счетов и карт не изменились, ни один баланс не стал отрицательным, баланс
+ * каждого счета равен сумме балансов его карт и начальному балансу с учетом проводок
+ * журнала. Достигнутое количество переводов в секунду пишется в лог.
+ * <p>
+ * Нагрузочный прогон не входит в обычный прогон тестов. Запуск: {@code mvn test -Pbenchmark}.
+ * Размер нагрузки задается системными свойствами {@code stress.threads} (по умолчанию 64),
+ * {@code stress.accounts} (2000) и {@code stress.operations} (операций на поток, 10).
+ */
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TransferStressTest {
+
+    private static final Logger log = LoggerFactory.getLogger(TransferStressTest.class);
+    private static final int THREADS = Integer.getInteger("stress.threads", 64);
+    private static final int ACCOUNTS = Integer.getInteger("stress.accounts", 2000);
+    private static final int OPERATIONS_PER_THREAD = Integer.getInteger("stress.operations", 10);
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransferEntryRepository transferEntryRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Tag("benchmark")
+    @ParameterizedTest
+    @ValueSource(strings = {"pessimistic", "optimistic", "serializable"})
+    void concurrentTransfers_ShouldConserveMoney(String strategyName) throws Exception {
+        TransferService transferService = new TransferService(
+                accountRepository,
+                cardRepository,
+                transferEntryRepository,
+                strategy(strategyName),
+                new SequentialCardDebitAllocator(),
+                null,
+                new CardBalanceCache(cardRepository, true, 1000, 60_000, new SimpleMeterRegistry()),
+                new CardSetVersions(true, 1024)
+        );
+
+        String prefix = "stress-" + UUID.randomUUID() + "-";
+        seed(prefix);
+        long[] accountIds = jdbcTemplate.queryForList(
+                "SELECT a.id FROM accounts a JOIN users u ON u.id = a.user_id WHERE u.username LIKE ? ORDER BY a.id",
+                Long.class, prefix + "%").stream().mapToLong(Long::longValue).toArray();
+        long[] ownerIds = jdbcTemplate.queryForList(
+                "SELECT a.user_id FROM accounts a JOIN users u ON u.id = a.user_id WHERE u.username LIKE ? ORDER BY a.id",
+                Long.class, prefix + "%").stream().mapToLong(Long::longValue).toArray();
+        Map<Long, Long> initialBalances = balancesByAccount(prefix);
+        long initialAccountTotal = total("accounts", prefix);
+        long initialCardTotal = total("bank_cards", prefix);
+
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        Queue<Throwable> unexpected = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        long startNanos = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    try {
+                        succeeded.addAndGet(randomOperation(transferService, accountIds, ownerIds));
+                    } catch (RuntimeException ex) {
+                        if (ex.getClass().getPackageName().equals("com.example.bankcards.exception")) {
+                            rejected.incrementAndGet();
+                        } else {
+                            unexpected.add(ex);
+                        }
+                    } finally {
+                        SecurityContextHolder.clearContext();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+        executor.shutdown();
+
+        log.info("{} threads={} accounts={} operations={} | {} transfers committed, {} rejected | {} transfers/s",
+                strategyName, THREADS, ACCOUNTS, (long) THREADS * OPERATIONS_PER_THREAD,
+                succeeded.get(), rejected.get(), Math.round(succeeded.get() / elapsedSeconds));
+
+        assertTrue(unexpected.isEmpty(), () -> "Неожиданные ошибки: " + unexpected);
+        assertTrue(succeeded.get() > 0);
+        assertEquals(initialAccountTotal, total("accounts", prefix));
+        assertEquals(initialCardTotal, total("bank_cards", prefix));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM accounts WHERE balance < 0", Long.class));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM bank_cards WHERE balance < 0", Long.class));
+        assertEquals(0, jdbcTemplate.queryForObject("""
+                SELECT COUNT(*) FROM accounts a JOIN users u ON u.id = a.user_id
+                WHERE u.username LIKE ?
+                  AND a.balance <> (SELECT COALESCE(SUM(c.balance), 0) FROM bank_cards c WHERE c.account_id = a.id)
+                """, Long.class, prefix + "%"));
+
+        Map<Long, Long> ledgerChanges = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT e.account_id, SUM(CASE WHEN e.direction = 'CREDIT' THEN e.amount ELSE -e.amount END) AS change,
+                       COUNT(*) AS entries
+                FROM transfer_entries e
+                JOIN accounts a ON a.id = e.account_id
+                JOIN users u ON u.id = a.user_id
+                WHERE u.username LIKE ?
+                GROUP BY e.account_id
+                """, rs -> {
+            ledgerChanges.put(rs.getLong("account_id"), rs.getLong("change"));
+        }, prefix + "%");
+        long entries = jdbcTemplate.queryForObject("""
+                SELECT COUNT(*) FROM transfer_entries e
+                JOIN accounts a ON a.id = e.account_id
+                JOIN users u ON u.id = a.user_id
+                WHERE u.username LIKE ?
+                """, Long.class, prefix + "%");
+        assertEquals(2 * succeeded.get(), entries);
+
+        Map<Long, Long> finalBalances = balancesByAccount(prefix);
+        for (long accountId : accountIds) {
+            assertEquals(initialBalances.get(accountId) + ledgerChanges.getOrDefault(accountId, 0L),
+                    finalBalances.get(accountId), "Баланс счета " + accountId + " расходится с журналом");
+        }
+    }
+
+    /**
+     * Встречные переводы между двумя счетами из многих потоков без блокировки строк в приложении
+     * и без повторов при конфликте: строки счетов и карт изменяются в порядке возрастания id,
+     * поэтому взаимная блокировка в БД, которая завершилась бы
+     * {@link com.example.bankcards.exception.TransferConflictException}, невозможна.
+     * Стратегия SERIALIZABLE не проверяется: на H2 она отклоняет встречные изменения
+     * как конфликт сериализации независимо от порядка строк и полагается на повторы.
+     */
+    @Test
+    void oppositeTransfers_ShouldNotDeadlock() throws Exception {
+        TransferService transferService = new TransferService(
+                accountRepository,
+                cardRepository,
+                transferEntryRepository,
+                new OptimisticTransferStrategy(new TransactionTemplate(transactionManager), 1, 1, 1,
+                        new SimpleMeterRegistry()),
+                new SequentialCardDebitAllocator(),
+                null,
+                new CardBalanceCache(cardRepository, true, 1000, 60_000, new SimpleMeterRegistry()),
+                new CardSetVersions(true, 1024)
+        );
+
+        String prefix = "opposite-" + UUID.randomUUID() + "-";
+        seedPair(prefix);
+        long[] accountIds = jdbcTemplate.queryForList(
+                "SELECT a.id FROM accounts a JOIN users u ON u.id = a.user_id WHERE u.username LIKE ? ORDER BY a.id",
+                Long.class, prefix + "%").stream().mapToLong(Long::longValue).toArray();
+        long[] ownerIds = jdbcTemplate.queryForList(
+                "SELECT a.user_id FROM accounts a JOIN users u ON u.id = a.user_id WHERE u.username LIKE ? ORDER BY a.id",
+                Long.class, prefix + "%").stream().mapToLong(Long::longValue).toArray();
+        long initialAccountTotal = total("accounts", prefix);
+
+        int threads = 16;
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int from = t % 2;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 50; i++) {
+                    try {
+                        authenticate(ownerIds[from]);
+                        transferService.transfer(new TransferRequestDTO(
+                                accountIds[from], accountIds[1 - from], new BigDecimal("1.00")));
+                    } catch (RuntimeException ex) {
+                        failures.add(ex);
+                    } finally {
+                        SecurityContextHolder.clearContext();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertTrue(failures.isEmpty(), () -> "Ошибки встречных переводов: " + failures);
+        assertEquals(initialAccountTotal, total("accounts", prefix));
+        assertEquals(initialAccountTotal, total("bank_cards", prefix));
+    }
+
+    /**
+     * Выполняет случайную операцию: одиночный перевод, пакет или асинхронно принятый перевод.
+     *
+     * @return количество зафиксированных переводов
+     */
+    private static int randomOperation(TransferService transferService, long[] accountIds, long[] ownerIds) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(accountIds.length);
+        int kind = random.nextInt(10);
+
+        if (kind < 6) {
+            authenticate(ownerIds[from]);
+            transferService.transfer(randomTransfer(accountIds, from));
+            return 1;
+        }
+
+        if (kind < 8) {
+            List<TransferRequestDTO> transfers = new ArrayList<>();
+            for (int i = random.nextInt(2, 5); i > 0; i--) {
+                transfers.add(randomTransfer(accountIds, from));
+            }
+            BatchTransferMode mode = random.nextBoolean() ? BatchTransferMode.ALL_OR_NOTHING : BatchTransferMode.BEST_EFFORT;
+            authenticate(ownerIds[from]);
+            return transferService.transferBatch(new BatchTransferRequestDTO(transfers, mode)).succeeded();
+        }
+
+        BatchTransferResponseDTO response = transferService.transferPending(List.of(
+                new PendingTransfer(UUID.randomUUID(), ownerIds[from], randomTransfer(accountIds, from))));
+        return response.succeeded();
+    }
+
+    private static TransferRequestDTO randomTransfer(long[] accountIds, int from) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int to = (from + 1 + random.nextInt(accountIds.length - 1)) % accountIds.length;
+        return new TransferRequestDTO(accountIds[from], accountIds[to],
+                BigDecimal.valueOf(random.nextLong(1, 30_000), 2));
+    }
+
+    private static void authenticate(long userId) {
+        UserDetailsImpl principal = new UserDetailsImpl(userId, "stress", "", List.of());
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.authorities()));
+    }
+
+    private TransferConcurrencyStrategy strategy(String name) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        return switch (name) {
+            case "pessimistic" -> new PessimisticTransferStrategy(
+                    new AccountLockManager(1024, 10_000, meterRegistry), new TransactionTemplate(transactionManager));
+            case "optimistic" -> new OptimisticTransferStrategy(
+                    new TransactionTemplate(transactionManager), 10, 1, 50, meterRegistry);
+            case "serializable" -> new SerializableTransferStrategy(
+                    transactionManager, 10, 1, 50, meterRegistry);
+            default -> throw new IllegalArgumentException(name);
+        };
+    }
+
+    /**
+     * Создает пользователей, счета и карты пакетными вставками JDBC.
+     * У каждого пользователя один счет с одной-тремя картами, около 5% карт заблокированы.
+     */
+    private void seed(String prefix) {
+        Long roleId = jdbcTemplate.queryForObject("SELECT id FROM roles WHERE role_name = 'ROLE_USER'", Long.class);
+        Date birthday = Date.valueOf(LocalDate.of(2000, 1, 1));
+
+        List<Object[]> users = new ArrayList<>(ACCOUNTS);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            users.add(new Object[]{prefix + i, "password", "Stress", "User", birthday, roleId});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO users (username, password, first_name, second_name, birthday, role_id) VALUES (?, ?, ?, ?, ?, ?)",
+                users);
+
+        jdbcTemplate.update("""
+                INSERT INTO accounts (user_id, balance)
+                SELECT id, 0 FROM users WHERE username LIKE ?
+                """, prefix + "%");
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Date expiration = Date.valueOf(LocalDate.now().plusYears(3));
+        List<Object[]> cards = new ArrayList<>();
+        for (Long accountId : jdbcTemplate.queryForList(
+                "SELECT a.id FROM accounts a JOIN users u ON u.id = a.user_id WHERE u.username LIKE ?",
+                Long.class, prefix + "%")) {
+            for (int i = random.nextInt(1, 4); i > 0; i--) {
+                String status = random.nextInt(20) == 0 ? "BLOCKED" : "ACTIVE";
+                cards.add(new Object[]{"encrypted", "400000", "1234", accountId, expiration, status,
+                        random.nextLong(0, 100_000)});
+            }
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO bank_cards (card_number, card_bin, card_last4, account_id, expiration_date, status, balance)"
+                        + " VALUES (?, ?, ?, ?, ?, ?, ?)",
+                cards);
+
+        jdbcTemplate.update("""
+                UPDATE accounts a
+                SET balance = (SELECT COALESCE(SUM(c.balance), 0) FROM bank_cards c WHERE c.account_id = a.id)
+                WHERE a.user_id IN (SELECT id FROM users WHERE username LIKE ?)
+                """, prefix + "%");
+    }
+
+    /**
+     * Создает двух пользователей со счетом и одной активной картой на 1000.00 у каждого.
+     */
+    private void seedPair(String prefix) {
+        Long roleId = jdbcTemplate.queryForObject("SELECT id FROM roles WHERE role_name = 'ROLE_USER'", Long.class);
+        Date birthday = Date.valueOf(LocalDate.of(2000, 1, 1));
+        for (int i = 0; i < 2; i++) {
+            jdbcTemplate.update(
+                    "INSERT INTO users (username, password, first_name, second_name, birthday, role_id) VALUES (?, ?, ?, ?, ?, ?)",
+                    prefix + i, "password", "Stress", "User", birthday, roleId);
+        }
+        jdbcTemplate.update("""
+                INSERT INTO accounts (user_id, balance)
+                SELECT id, 100000 FROM users WHERE username LIKE ?
+                """, prefix + "%");
+        jdbcTemplate.update("""
+                INSERT INTO bank_cards (card_number, card_bin, card_last4, account_id, expiration_date, status, balance)
+                SELECT 'encrypted', '400000', '1234', a.id, ?, 'ACTIVE', 100000
+                FROM accounts a JOIN users u ON u.id = a.user_id WHERE u.username LIKE ?
+                """, Date.valueOf(LocalDate.now().plusYears(3)), prefix + "%");
+    }
+
+    private Map<Long, Long> balancesByAccount(String prefix) {
+        Map<Long, Long> balances = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT a.id, a.balance FROM accounts a JOIN users u ON u.id = a.user_id WHERE u.username LIKE ?",
+                rs -> {
+                    balances.put(rs.getLong("id"), rs.getLong("balance"));
+                }, prefix + "%");
+        return balances;
+    }
+
+    private long total(String table, String prefix) {
+        String accountIds = "SELECT a.id FROM accounts a JOIN users u ON u.id = a.user_id WHERE u.username LIKE ?";
+        String sql = table.equals("accounts")
+                ? "SELECT SUM(balance) FROM accounts WHERE id IN (" + accountIds + ")"
+                : "SELECT SUM(balance) FROM bank_cards WHERE account_id IN (" + accountIds + ")";
+        return jdbcTemplate.queryForObject(sql, Long.class, prefix + "%");
+    }
+}
@@ -44,7 +44,7 @@ class UserServiceTest {
         User user1 = createUser(1L, "john_doe", userRole);
         User user2 = createUser(2L, "admin", adminRole);
 
-        when(userRepository.findAll()).thenReturn(Arrays.asList(user1, user2));
+        when(userRepository.findAllWithRole()).thenReturn(Arrays.asList(user1, user2));
 
         List<UserDTO> users = userService.getAllUsers();
 
@@ -55,7 +55,7 @@ class UserServiceTest {
 
     @Test
     void getAllUsers_ShouldReturnEmptyList_WhenNoUsers() {
-        when(userRepository.findAll()).thenReturn(Collections.emptyList());
+        when(userRepository.findAllWithRole()).thenReturn(Collections.emptyList());
 
         List<UserDTO> users = userService.getAllUsers();
 